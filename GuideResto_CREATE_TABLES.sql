@@ -12,6 +12,8 @@ DROP TABLE COMMENTAIRES CASCADE CONSTRAINTS;
 DROP TABLE LIKES CASCADE CONSTRAINTS;
 DROP TABLE NOTES CASCADE CONSTRAINTS;
 DROP TABLE CRITERES_EVALUATION CASCADE CONSTRAINTS;
+DROP TABLE RESTAURANT_RATING_SUMMARY CASCADE CONSTRAINTS;
+DROP TABLE SCHEMA_VERSION CASCADE CONSTRAINTS;
 
 CREATE TABLE RESTAURANTS (numero number(10) NOT NULL, nom varchar2(100) NOT NULL, adresse varchar2(100) NOT NULL, description clob, site_web varchar2(100), fk_type number(10) NOT NULL, fk_vill number(10) NOT NULL, PRIMARY KEY (numero));
 CREATE TABLE TYPES_GASTRONOMIQUES (numero number(10) NOT NULL, libelle varchar2(100) NOT NULL UNIQUE, description clob NOT NULL, PRIMARY KEY (numero));
@@ -20,6 +22,7 @@ CREATE TABLE COMMENTAIRES (numero number(10) NOT NULL, date_eval date NOT NULL,
 CREATE TABLE LIKES (numero number(10) NOT NULL, appreciation char(1) NOT NULL, date_eval date NOT NULL, adresse_ip varchar2(100) NOT NULL, fk_rest number(10) NOT NULL, PRIMARY KEY (numero));
 CREATE TABLE NOTES (numero number(10) NOT NULL, note number(3) NOT NULL, fk_comm number(10) NOT NULL, fk_crit number(10) NOT NULL, PRIMARY KEY (numero));
 CREATE TABLE CRITERES_EVALUATION (numero number(10) NOT NULL, nom varchar2(100) NOT NULL UNIQUE, description varchar2(512), PRIMARY KEY (numero));
+CREATE TABLE RESTAURANT_RATING_SUMMARY (fk_rest number(10) NOT NULL, fk_crit number(10) NOT NULL, somme_notes number(19) DEFAULT 0 NOT NULL, somme_carres number(19) DEFAULT 0 NOT NULL, nb_notes number(19) DEFAULT 0 NOT NULL, note_min number(3), note_max number(3), nb_likes number(19) DEFAULT 0 NOT NULL, nb_dislikes number(19) DEFAULT 0 NOT NULL, PRIMARY KEY (fk_rest, fk_crit));
 
 ALTER TABLE RESTAURANTS ADD CONSTRAINT FK_REST_TYPE FOREIGN KEY (fk_type) REFERENCES TYPES_GASTRONOMIQUES (numero) ON DELETE CASCADE;
 ALTER TABLE RESTAURANTS ADD CONSTRAINT FK_REST_VILL FOREIGN KEY (fk_vill) REFERENCES VILLES (numero) ON DELETE CASCADE;
@@ -27,6 +30,10 @@ ALTER TABLE COMMENTAIRES ADD CONSTRAINT FK_COMM_REST FOREIGN KEY (fk_rest) REFER
 ALTER TABLE NOTES ADD CONSTRAINT FK_NOTE_COMM FOREIGN KEY (fk_comm) REFERENCES COMMENTAIRES (numero) ON DELETE CASCADE;
 ALTER TABLE NOTES ADD CONSTRAINT FK_NOTE_CRIT FOREIGN KEY (fk_crit) REFERENCES CRITERES_EVALUATION (numero) ON DELETE CASCADE;
 ALTER TABLE LIKES ADD CONSTRAINT FK_LIKE_REST FOREIGN KEY (fk_rest) REFERENCES RESTAURANTS (numero) ON DELETE CASCADE;
+ALTER TABLE RESTAURANT_RATING_SUMMARY ADD CONSTRAINT FK_SUMM_REST FOREIGN KEY (fk_rest) REFERENCES RESTAURANTS (numero) ON DELETE CASCADE;
+
+CREATE INDEX IX_REST_NOM_UPPER ON RESTAURANTS (UPPER(nom));
+CREATE INDEX IX_TYPE_LIBELLE_UPPER ON TYPES_GASTRONOMIQUES (UPPER(libelle));
 
 CREATE SEQUENCE SEQ_RESTAURANTS;
 CREATE SEQUENCE SEQ_TYPES_GASTRONOMIQUES;
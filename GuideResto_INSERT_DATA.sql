@@ -41,4 +41,16 @@ INSERT INTO LIKES(appreciation, date_eval, adresse_ip, fk_rest) VALUES ('F', sys
 INSERT INTO LIKES(appreciation, date_eval, adresse_ip, fk_rest) VALUES ('T', sysdate, '1.2.3.7', 2);
 INSERT INTO LIKES(appreciation, date_eval, adresse_ip, fk_rest) VALUES ('T', sysdate, '1.2.3.8', 2);
 INSERT INTO LIKES(appreciation, date_eval, adresse_ip, fk_rest) VALUES ('T', sysdate, '1.2.3.9', 2);
+-- Synthse des notes, maintenue ensuite par l'application (voir RatingSummaryRebuilder)
+INSERT INTO RESTAURANT_RATING_SUMMARY (fk_rest, fk_crit, somme_notes, somme_carres, nb_notes, note_min, note_max, nb_likes, nb_dislikes)
+SELECT c.fk_rest, n.fk_crit, SUM(n.note), SUM(n.note * n.note), COUNT(*), MIN(n.note), MAX(n.note), 0, 0
+FROM NOTES n JOIN COMMENTAIRES c ON n.fk_comm = c.numero
+GROUP BY c.fk_rest, n.fk_crit;
+INSERT INTO RESTAURANT_RATING_SUMMARY (fk_rest, fk_crit, somme_notes, somme_carres, nb_notes, note_min, note_max, nb_likes, nb_dislikes)
+SELECT r.numero, 0, NVL(g.somme, 0), NVL(g.somme_carres, 0), NVL(g.nb_notes, 0), g.note_min, g.note_max, NVL(l.nb_likes, 0), NVL(l.nb_dislikes, 0)
+FROM RESTAURANTS r
+LEFT JOIN (SELECT c.fk_rest, SUM(n.note) AS somme, SUM(n.note * n.note) AS somme_carres, COUNT(*) AS nb_notes, MIN(n.note) AS note_min, MAX(n.note) AS note_max
+           FROM NOTES n JOIN COMMENTAIRES c ON n.fk_comm = c.numero GROUP BY c.fk_rest) g ON g.fk_rest = r.numero
+LEFT JOIN (SELECT fk_rest, SUM(CASE WHEN appreciation = 'Y' THEN 1 ELSE 0 END) AS nb_likes, SUM(CASE WHEN appreciation = 'N' THEN 1 ELSE 0 END) AS nb_dislikes
+           FROM LIKES GROUP BY fk_rest) l ON l.fk_rest = r.numero;
 COMMIT;
\ No newline at end of file
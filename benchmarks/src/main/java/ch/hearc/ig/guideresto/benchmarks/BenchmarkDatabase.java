@@ -0,0 +1,93 @@
+package ch.hearc.ig.guideresto.benchmarks;
+
+import ch.hearc.ig.guideresto.persistence.ConnectionUtils;
+import ch.hearc.ig.guideresto.persistence.PersistanceContext;
+import ch.hearc.ig.guideresto.tools.DataGenerator;
+import ch.hearc.ig.guideresto.tools.GeneratorSettings;
+import ch.hearc.ig.guideresto.tools.JdbcDataSink;
+import ch.hearc.ig.guideresto.tools.RatingSummaryRebuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Base H2 en mémoire (mode Oracle) des benchmarks : crée le schéma puis le remplit avec le {@link DataGenerator},
+ * une seule fois par JVM, avec un nombre donné de restaurants. Le contenu ne dépend que de ce nombre et de la
+ * graine, si bien que deux exécutions à la même échelle mesurent les mêmes données.
+ * <p>
+ * Volumes moyens par restaurant, réglables par propriétés système : {@code bench.evaluationsPerRestaurant}
+ * évaluations complètes (2 par défaut), notées sur chaque critère, et {@code bench.likesPerRestaurant}
+ * likes ou dislikes (4 par défaut). Comme en production, ils se concentrent sur les restaurants populaires.
+ * La graine se règle avec {@code bench.seed}.
+ */
+public final class BenchmarkDatabase {
+
+    private static int seededRestaurants;
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * Crée et remplit la base si ce n'est pas déjà fait dans cette JVM.
+     * @param restaurants le nombre de restaurants
+     * @throws IllegalStateException si la base a déjà été remplie à une autre échelle ;
+     * JMH lance chaque échelle dans sa propre JVM, sauf avec {@code -f 0}
+     */
+    public static synchronized void ensureSeeded(int restaurants) {
+        if (seededRestaurants == restaurants) {
+            return;
+        }
+        if (seededRestaurants != 0) {
+            throw new IllegalStateException("Base déjà remplie avec " + seededRestaurants
+                    + " restaurants : une seule échelle par JVM");
+        }
+        GeneratorSettings settings = GeneratorSettings.forRestaurants(restaurants)
+                .withSeed(Long.getLong("bench.seed", 42))
+                .withVolumes(Integer.getInteger("bench.evaluationsPerRestaurant", 2),
+                        Integer.getInteger("bench.likesPerRestaurant", 4));
+
+        long start = System.nanoTime();
+        Connection connection = ConnectionUtils.getConnection();
+        try {
+            executeScript(connection, "bench-schema.sql");
+            connection.setAutoCommit(false);
+            // Le générateur valide chaque lot et fait reprendre les séquences après les identifiants chargés
+            new DataGenerator(settings).generate(new JdbcDataSink(connection, JdbcDataSink.DEFAULT_BATCH_SIZE));
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur : " + e.getMessage(), e);
+        } finally {
+            ConnectionUtils.releaseConnection(connection);
+        }
+
+        RatingSummaryRebuilder.rebuild(ConnectionUtils.getPool().getMaxSize());
+        // Le premier contexte applique les migrations (index) et vérifie les séquences
+        PersistanceContext.open().close();
+        seededRestaurants = restaurants;
+        System.out.printf("Base de benchmark : %d restaurants chargés en %d ms%n",
+                restaurants, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static void executeScript(Connection connection, String resource) throws SQLException {
+        String script;
+        try (InputStream input = BenchmarkDatabase.class.getClassLoader().getResourceAsStream(resource)) {
+            if (input == null) {
+                throw new IllegalStateException("Ressource introuvable : " + resource);
+            }
+            script = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Impossible de lire " + resource + " : " + e.getMessage(), e);
+        }
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : script.replaceAll("(?m)^--.*$", "").split(";")) {
+                if (!sql.isBlank()) {
+                    statement.execute(sql.strip());
+                }
+            }
+        }
+    }
+}
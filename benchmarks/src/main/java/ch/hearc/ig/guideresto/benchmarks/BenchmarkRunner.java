@@ -0,0 +1,56 @@
+package ch.hearc.ig.guideresto.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lance les benchmarks avec le profileur GC (taux d'allocation, nombre et durée des collections)
+ * et écrit les résultats en JSON, pour comparer deux exécutions.
+ * <p>
+ * Usage : {@code java -jar target/benchmarks.jar [expression régulière des benchmarks]}, avec les propriétés :
+ * <ul>
+ *     <li>{@code bench.scales} : les nombres de restaurants, séparés par des virgules (par défaut 1000) ;</li>
+ *     <li>{@code bench.result} : le fichier JSON des résultats (par défaut {@code jmh-result-<date>.json}) ;</li>
+ *     <li>{@code bench.threads} : le nombre de threads de mesure (par défaut 1) ;</li>
+ *     <li>{@code bench.heap} : la taille maximale du tas des JVM de mesure (par défaut 4g, à augmenter vers 1M restaurants).</li>
+ * </ul>
+ * Les autres propriétés {@code bench.*} sont transmises aux JVM de mesure. Toutes les options de JMH restent
+ * disponibles avec {@code java -cp target/benchmarks.jar org.openjdk.jmh.Main}.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : BenchmarkRunner.class.getPackageName() + ".*Benchmark";
+        String[] scales = System.getProperty("bench.scales", "1000").split(",");
+        String result = System.getProperty("bench.result",
+                "jmh-result-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json");
+
+        List<String> jvmArgs = new ArrayList<>();
+        jvmArgs.add("-Xmx" + System.getProperty("bench.heap", "4g"));
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("bench.")) {
+                jvmArgs.add("-D" + name + "=" + System.getProperty(name));
+            }
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(include)
+                .param("restaurants", scales)
+                .threads(Integer.getInteger("bench.threads", 1))
+                .addProfiler(GCProfiler.class)
+                .jvmArgsAppend(jvmArgs.toArray(String[]::new))
+                .resultFormat(ResultFormatType.JSON)
+                .result(result);
+        new Runner(options.build()).run();
+        System.out.println("Résultats écrits dans " + result);
+    }
+}
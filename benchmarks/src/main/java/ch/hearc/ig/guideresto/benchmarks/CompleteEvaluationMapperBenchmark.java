@@ -0,0 +1,24 @@
+package ch.hearc.ig.guideresto.benchmarks;
+
+import ch.hearc.ig.guideresto.business.CompleteEvaluation;
+import ch.hearc.ig.guideresto.business.Restaurant;
+import ch.hearc.ig.guideresto.persistence.PersistanceContext;
+import org.openjdk.jmh.annotations.Benchmark;
+
+import java.util.Set;
+
+/**
+ * Lecture des évaluations complètes d'un restaurant, avec leurs notes.
+ */
+public class CompleteEvaluationMapperBenchmark extends PersistenceBenchmark {
+
+    @Benchmark
+    public Set<CompleteEvaluation> findByRestaurant(SeededDatabase database, SeededDatabase.Ids ids) {
+        // Seul l'identifiant du restaurant est lu : la mesure ne comprend pas son chargement
+        Restaurant restaurant = new Restaurant();
+        restaurant.setId(ids.nextRestaurantId());
+        try (PersistanceContext context = PersistanceContext.open()) {
+            return context.getCompleteEvaluationMapper().findByRestaurant(restaurant);
+        }
+    }
+}
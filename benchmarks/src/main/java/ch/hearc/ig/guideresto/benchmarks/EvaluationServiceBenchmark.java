@@ -0,0 +1,56 @@
+package ch.hearc.ig.guideresto.benchmarks;
+
+import ch.hearc.ig.guideresto.business.EvaluationCriteria;
+import ch.hearc.ig.guideresto.business.Restaurant;
+import ch.hearc.ig.guideresto.persistence.PersistanceContext;
+import ch.hearc.ig.guideresto.service.EvaluationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Opérations de {@code EvaluationService} : l'écriture d'une évaluation complète (commentaire, notes et
+ * synthèse des notes en une transaction) et le comptage des likes d'un restaurant.
+ */
+public class EvaluationServiceBenchmark extends PersistenceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Criteria {
+
+        private Set<EvaluationCriteria> criteria;
+
+        @Setup(Level.Trial)
+        public void load(SeededDatabase database) {
+            try (PersistanceContext context = PersistanceContext.open()) {
+                criteria = context.getEvaluationCriteriaMapper().findAll();
+            }
+        }
+    }
+
+    @Benchmark
+    public Restaurant evaluateRestaurant(SeededDatabase database, SeededDatabase.Ids ids, Criteria criteria) {
+        try (PersistanceContext context = PersistanceContext.open()) {
+            Restaurant restaurant = context.getRestaurantMapper().findById(ids.nextRestaurantId());
+            Map<EvaluationCriteria, Integer> grades = new HashMap<>();
+            int grade = 1;
+            for (EvaluationCriteria criterion : criteria.criteria) {
+                grades.put(criterion, grade++);
+            }
+            new EvaluationService(context).evaluateRestaurant(restaurant, "bench", "Évaluation de benchmark", grades);
+            return restaurant;
+        }
+    }
+
+    @Benchmark
+    public int countLikesForRestaurant(SeededDatabase database, SeededDatabase.Ids ids) {
+        try (PersistanceContext context = PersistanceContext.open()) {
+            return new EvaluationService(context).countLikesForRestaurant(ids.nextRestaurantId(), true);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package ch.hearc.ig.guideresto.benchmarks;
+
+import ch.hearc.ig.guideresto.business.Restaurant;
+import ch.hearc.ig.guideresto.persistence.PersistanceContext;
+import org.openjdk.jmh.annotations.Benchmark;
+
+import java.util.Set;
+
+/**
+ * Lectures de {@code RestaurantMapper}. Chaque opération ouvre son propre contexte de persistance,
+ * comme une requête de l'application : l'identity map est vide, seul le pool de connexions est partagé.
+ */
+public class RestaurantMapperBenchmark extends PersistenceBenchmark {
+
+    @Benchmark
+    public Restaurant findById(SeededDatabase database, SeededDatabase.Ids ids) {
+        try (PersistanceContext context = PersistanceContext.open()) {
+            return context.getRestaurantMapper().findById(ids.nextRestaurantId());
+        }
+    }
+
+    @Benchmark
+    public Set<Restaurant> findByName(SeededDatabase database, SeededDatabase.Ids ids) {
+        try (PersistanceContext context = PersistanceContext.open()) {
+            return context.getRestaurantMapper().findByName(ids.nextNameWord());
+        }
+    }
+
+    @Benchmark
+    public Set<Restaurant> findAll(SeededDatabase database) {
+        try (PersistanceContext context = PersistanceContext.open()) {
+            return context.getRestaurantMapper().findAll();
+        }
+    }
+}
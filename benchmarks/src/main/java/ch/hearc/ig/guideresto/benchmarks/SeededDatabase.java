@@ -0,0 +1,61 @@
+package ch.hearc.ig.guideresto.benchmarks;
+
+import ch.hearc.ig.guideresto.persistence.ConnectionUtils;
+import ch.hearc.ig.guideresto.service.ServiceExecutor;
+import ch.hearc.ig.guideresto.tools.DataGenerator;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.SplittableRandom;
+
+/**
+ * État partagé des benchmarks : la base remplie à l'échelle {@code restaurants}, et un tirage
+ * d'identifiants propre à chaque thread de mesure.
+ */
+@State(Scope.Benchmark)
+public class SeededDatabase {
+
+    @Param({"1000"})
+    public int restaurants;
+
+    @Setup(Level.Trial)
+    public void seed() {
+        BenchmarkDatabase.ensureSeeded(restaurants);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        ServiceExecutor.shutdown();
+        ConnectionUtils.closeConnection();
+    }
+
+    @State(Scope.Thread)
+    public static class Ids {
+
+        private final SplittableRandom random = new SplittableRandom(7);
+        private int restaurants;
+
+        @Setup(Level.Trial)
+        public void setUp(SeededDatabase database) {
+            this.restaurants = database.restaurants;
+        }
+
+        /**
+         * @return un identifiant de restaurant existant, tiré uniformément
+         */
+        public int nextRestaurantId() {
+            return 1 + random.nextInt(restaurants);
+        }
+
+        /**
+         * @return un mot présent dans le nom de nombreux restaurants
+         */
+        public String nextNameWord() {
+            return DataGenerator.NAME_WORDS.get(random.nextInt(DataGenerator.NAME_WORDS.size()));
+        }
+    }
+}
@@ -0,0 +1,26 @@
+-- Schéma de GuideResto_CREATE_TABLES.sql pour H2 en mode Oracle : sans triggers, les identifiants
+-- sont fournis par le générateur de données, puis par les séquences, qui reprennent après le chargement.
+-- Les index sont ajoutés ensuite par les migrations du projet.
+CREATE TABLE RESTAURANTS (numero number(10) NOT NULL, nom varchar2(100) NOT NULL, adresse varchar2(100) NOT NULL, description clob, site_web varchar2(100), fk_type number(10) NOT NULL, fk_vill number(10) NOT NULL, PRIMARY KEY (numero));
+CREATE TABLE TYPES_GASTRONOMIQUES (numero number(10) NOT NULL, libelle varchar2(100) NOT NULL UNIQUE, description clob NOT NULL, PRIMARY KEY (numero));
+CREATE TABLE VILLES (numero number(10) NOT NULL, code_postal varchar2(100) NOT NULL, nom_ville varchar2(100) NOT NULL, PRIMARY KEY (numero));
+CREATE TABLE COMMENTAIRES (numero number(10) NOT NULL, date_eval date NOT NULL, commentaire clob NOT NULL, nom_utilisateur varchar2(100) NOT NULL, fk_rest number(10), PRIMARY KEY (numero));
+CREATE TABLE LIKES (numero number(10) NOT NULL, appreciation char(1) NOT NULL, date_eval date NOT NULL, adresse_ip varchar2(100) NOT NULL, fk_rest number(10) NOT NULL, PRIMARY KEY (numero));
+CREATE TABLE NOTES (numero number(10) NOT NULL, note number(3) NOT NULL, fk_comm number(10) NOT NULL, fk_crit number(10) NOT NULL, PRIMARY KEY (numero));
+CREATE TABLE CRITERES_EVALUATION (numero number(10) NOT NULL, nom varchar2(100) NOT NULL UNIQUE, description varchar2(512), PRIMARY KEY (numero));
+CREATE TABLE RESTAURANT_RATING_SUMMARY (fk_rest number(10) NOT NULL, fk_crit number(10) NOT NULL, somme_notes number(19) DEFAULT 0 NOT NULL, somme_carres number(19) DEFAULT 0 NOT NULL, nb_notes number(19) DEFAULT 0 NOT NULL, note_min number(3), note_max number(3), nb_likes number(19) DEFAULT 0 NOT NULL, nb_dislikes number(19) DEFAULT 0 NOT NULL, PRIMARY KEY (fk_rest, fk_crit));
+
+ALTER TABLE RESTAURANTS ADD CONSTRAINT FK_REST_TYPE FOREIGN KEY (fk_type) REFERENCES TYPES_GASTRONOMIQUES (numero) ON DELETE CASCADE;
+ALTER TABLE RESTAURANTS ADD CONSTRAINT FK_REST_VILL FOREIGN KEY (fk_vill) REFERENCES VILLES (numero) ON DELETE CASCADE;
+ALTER TABLE COMMENTAIRES ADD CONSTRAINT FK_COMM_REST FOREIGN KEY (fk_rest) REFERENCES RESTAURANTS (numero) ON DELETE CASCADE;
+ALTER TABLE NOTES ADD CONSTRAINT FK_NOTE_COMM FOREIGN KEY (fk_comm) REFERENCES COMMENTAIRES (numero) ON DELETE CASCADE;
+ALTER TABLE NOTES ADD CONSTRAINT FK_NOTE_CRIT FOREIGN KEY (fk_crit) REFERENCES CRITERES_EVALUATION (numero) ON DELETE CASCADE;
+ALTER TABLE LIKES ADD CONSTRAINT FK_LIKE_REST FOREIGN KEY (fk_rest) REFERENCES RESTAURANTS (numero) ON DELETE CASCADE;
+ALTER TABLE RESTAURANT_RATING_SUMMARY ADD CONSTRAINT FK_SUMM_REST FOREIGN KEY (fk_rest) REFERENCES RESTAURANTS (numero) ON DELETE CASCADE;
+
+CREATE SEQUENCE SEQ_CRITERES_EVALUATION;
+CREATE SEQUENCE SEQ_TYPES_GASTRONOMIQUES;
+CREATE SEQUENCE SEQ_VILLES;
+CREATE SEQUENCE SEQ_RESTAURANTS;
+CREATE SEQUENCE SEQ_EVAL;
+CREATE SEQUENCE SEQ_NOTES;
@@ -2,4 +2,5 @@ package ch.hearc.ig.guideresto.business;
 
 public interface IBusinessObject {
     Integer getId();
+    void setId(Integer id);
 }
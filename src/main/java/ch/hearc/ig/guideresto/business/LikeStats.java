@@ -0,0 +1,11 @@
+package ch.hearc.ig.guideresto.business;
+
+/**
+ * Nombre d'appréciations positives et négatives reçues par un restaurant.
+ */
+public record LikeStats(int restaurantId, long likes, long dislikes) {
+
+    public long total() {
+        return likes + dislikes;
+    }
+}
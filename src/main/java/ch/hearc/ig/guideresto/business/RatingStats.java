@@ -0,0 +1,45 @@
+package ch.hearc.ig.guideresto.business;
+
+/**
+ * Statistiques d'un ensemble de notes, conservées sous forme de sommes pour pouvoir être combinées
+ * (par exemple les statistiques de chaque critère pour obtenir celles d'un restaurant).
+ *
+ * @param count        le nombre de notes
+ * @param sum          la somme des notes
+ * @param sumOfSquares la somme des carrés des notes
+ * @param min          la note minimale (0 s'il n'y a aucune note)
+ * @param max          la note maximale (0 s'il n'y a aucune note)
+ */
+public record RatingStats(long count, long sum, long sumOfSquares, int min, int max) {
+
+    public static final RatingStats EMPTY = new RatingStats(0, 0, 0, 0, 0);
+
+    public double average() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * @return l'écart-type de l'échantillon (0 s'il y a moins de deux notes)
+     */
+    public double standardDeviation() {
+        if (count < 2) {
+            return 0;
+        }
+        double variance = (sumOfSquares - (double) sum * sum / count) / (count - 1);
+        return Math.sqrt(Math.max(0, variance));
+    }
+
+    /**
+     * @return les statistiques de la réunion des deux ensembles de notes
+     */
+    public RatingStats plus(RatingStats other) {
+        if (count == 0) {
+            return other;
+        }
+        if (other.count == 0) {
+            return this;
+        }
+        return new RatingStats(count + other.count, sum + other.sum, sumOfSquares + other.sumOfSquares,
+                Math.min(min, other.min), Math.max(max, other.max));
+    }
+}
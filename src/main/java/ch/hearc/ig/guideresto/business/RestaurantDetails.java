@@ -0,0 +1,15 @@
+package ch.hearc.ig.guideresto.business;
+
+import java.util.Set;
+
+/**
+ * Tout ce qu'affiche la fiche d'un restaurant, chargé en une fois.
+ *
+ * @param restaurant  le restaurant, avec son adresse et son type
+ * @param likeStats   ses likes et dislikes
+ * @param evaluations ses évaluations complètes, avec leurs notes
+ * @param ratings     les statistiques de ses notes, globales et par critère
+ */
+public record RestaurantDetails(Restaurant restaurant, LikeStats likeStats, Set<CompleteEvaluation> evaluations,
+                                RestaurantRatings ratings) {
+}
@@ -0,0 +1,17 @@
+package ch.hearc.ig.guideresto.business;
+
+import java.util.Map;
+
+/**
+ * Statistiques des notes reçues par un restaurant, globalement et par critère d'évaluation.
+ *
+ * @param restaurantId l'identifiant du restaurant
+ * @param overall      les statistiques de toutes ses notes
+ * @param byCriteria   les statistiques par critère (seuls les critères ayant reçu au moins une note sont présents)
+ */
+public record RestaurantRatings(int restaurantId, RatingStats overall, Map<EvaluationCriteria, RatingStats> byCriteria) {
+
+    public static RestaurantRatings empty(int restaurantId) {
+        return new RestaurantRatings(restaurantId, RatingStats.EMPTY, Map.of());
+    }
+}
@@ -0,0 +1,8 @@
+package ch.hearc.ig.guideresto.business;
+
+/**
+ * Proposition de l'autocomplétion : un nom de restaurant et sa popularité (nombre de likes),
+ * qui détermine son rang parmi les propositions.
+ */
+public record RestaurantSuggestion(int restaurantId, String name, long popularity) {
+}
@@ -0,0 +1,8 @@
+package ch.hearc.ig.guideresto.business;
+
+/**
+ * Vue allégée d'un restaurant pour les listes : uniquement ce qui est affiché,
+ * sans description, type ni évaluations.
+ */
+public record RestaurantSummary(Integer id, String name, String street, String zipCode, String cityName) {
+}
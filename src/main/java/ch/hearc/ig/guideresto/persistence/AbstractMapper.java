@@ -9,23 +9,71 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 
 public abstract class AbstractMapper<T extends IBusinessObject> {
 
     protected static final Logger logger = LogManager.getLogger();
 
+    protected final Connection connection;
+    private PersistanceContext persistanceContext;
+    private IdentityMap identityMap = new IdentityMap();
+
+    protected AbstractMapper(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Rattache ce mapper à un contexte de persistance, dont il partage l'identity map.
+     */
+    public void setPersistanceContext(PersistanceContext persistanceContext) {
+        this.persistanceContext = persistanceContext;
+        this.identityMap = persistanceContext.getIdentityMap();
+    }
+
+    protected IdentityMap getIdentityMap() {
+        return identityMap;
+    }
+
+    /**
+     * Crée un ensemble chargé au premier accès à travers le contexte de persistance de ce mapper.
+     * @param loader la fonction de chargement du contenu
+     * @return un ensemble non encore initialisé
+     */
+    protected <E> Set<E> lazySet(Supplier<? extends Collection<E>> loader) {
+        return new LazyLoadingSet<>(persistanceContext, loader);
+    }
+
     public abstract T findById(int id);
     public abstract Set<T> findAll();
     public abstract T create(T object);
     public abstract boolean update(T object);
     public abstract boolean delete(T object);
     public abstract boolean deleteById(int id);
-    private Map<Integer, T> cache = new HashMap<>();
 
-    protected abstract String getSequenceQuery();
+    /**
+     * @return la classe des entités gérées, utilisée comme clé dans l'identity map
+     */
+    protected abstract Class<T> getEntityClass();
+    /**
+     * @return le nom de la séquence qui fournit les identifiants de ce type d'objet
+     */
+    protected abstract String getSequenceName();
+    /**
+     * @return la table associée à ce type d'objet
+     */
+    protected abstract String getTableName();
+    /**
+     * Valeurs des colonnes d'un objet, hors NUMERO, utilisées par l'unité de travail pour photographier
+     * l'état chargé et générer les écritures
+     * @param object l'objet
+     * @return les valeurs, indexées par nom de colonne
+     */
+    protected abstract Map<String, Object> getColumnValues(T object);
     protected abstract String getExistsQuery();
     protected abstract String getCountQuery();
 
@@ -35,8 +83,6 @@ public abstract class AbstractMapper<T extends IBusinessObject> {
      * @return true si l'objet existe, false sinon
      */
     public boolean exists(int id) {
-        Connection connection = ConnectionUtils.getConnection();
-
         try (PreparedStatement stmt = connection.prepareStatement(getExistsQuery())) {
             stmt.setInt(1, id);
 
@@ -54,8 +100,6 @@ public abstract class AbstractMapper<T extends IBusinessObject> {
      * @return
      */
     public int count() {
-        Connection connection = ConnectionUtils.getConnection();
-
         try (
                 PreparedStatement stmt = connection.prepareStatement(getCountQuery());
              ResultSet rs = stmt.executeQuery()) {
@@ -71,60 +115,201 @@ public abstract class AbstractMapper<T extends IBusinessObject> {
     }
 
     /**
-     * Obtient la valeur de la séquence actuelle en base de données
-     * @return Le nombre de villes
-     * @En cas d'erreur SQL
+     * Obtient un nouvel identifiant, distribué par le générateur d'identifiants depuis un bloc déjà réservé
+     * @return le nouvel identifiant
+     * @throws RuntimeException si la séquence ne peut pas être lue
      */
     protected Integer getSequenceValue() {
-        Connection connection = ConnectionUtils.getConnection();
-
-        try (PreparedStatement stmt = connection.prepareStatement(getSequenceQuery());
-             ResultSet rs = stmt.executeQuery()) {
-
-            if (rs.next()) {
-                return rs.getInt(1);
-            }
-            return 0;
+        try {
+            return ConnectionUtils.getIdGenerator().nextId(connection, getSequenceName());
         } catch (SQLException ex) {
             logger.error("SQLException: {}", ex.getMessage());
-            return 0;
+            throw new RuntimeException("Erreur : " + ex.getMessage(), ex);
         }
     }
 
+    /**
+     * Obtient plusieurs nouveaux identifiants, au plus en un seul aller-retour
+     * @param count le nombre d'identifiants
+     * @return les identifiants réservés
+     * @throws SQLException en cas d'erreur SQL
+     */
+    protected List<Integer> getSequenceValues(int count) throws SQLException {
+        return ConnectionUtils.getIdGenerator().nextIds(connection, getSequenceName(), count);
+    }
+
     /**
      * Vérifie si le cache est actuellement vide
-     * @return true si le cache ne contient aucun objet, false sinon
+     * @return true si le cache ne contient aucun objet de ce type, false sinon
      */
     protected boolean isCacheEmpty() {
-        if (cache.isEmpty()) {
-            return true;
-        } else {
-            return false;
-        }
+        return identityMap.isEmpty(getEntityClass());
     }
 
     /**
-     * Vide le cache
+     * Vide le cache pour ce type d'objet
      */
     protected void resetCache() {
-        cache.clear();
+        identityMap.clear(getEntityClass());
+    }
+
+    /**
+     * Recherche un objet déjà chargé dans le contexte
+     * @param id l'ID de l'objet
+     * @return l'instance déjà chargée, ou null
+     */
+    protected T findInCache(Integer id) {
+        return identityMap.get(getEntityClass(), id);
+    }
+
+    /**
+     * Recherche un objet déjà chargé sans mettre à jour les statistiques du cache,
+     * utilisé lors de l'hydratation d'une ligne dont la recherche a déjà été comptabilisée
+     */
+    protected T peekCache(Integer id) {
+        return identityMap.peek(getEntityClass(), id);
     }
 
     /**
      * Ajoute un objet au cache
      * @param objet l'objet à ajouter
+     * @return l'instance de référence pour cet ID (l'objet lui-même s'il n'était pas encore connu)
      */
-    protected void addToCache(T objet) {
+    protected T addToCache(T objet) {
         if (objet != null && objet.getId() != null) {
-            cache.put(objet.getId(), objet);
+            T canonical = identityMap.put(getEntityClass(), objet.getId(), objet);
+            if (canonical == objet) {
+                registerClean(objet);
+            }
+            return canonical;
         }
+        return objet;
     }
 
     /**
-     * Retire un objet du cache
+     * Photographie l'état actuel d'un objet dans l'unité de travail du contexte, comme référence
+     * pour la détection des modifications
+     * @param objet l'objet, tel qu'il est en base
+     */
+    void registerClean(IBusinessObject objet) {
+        if (persistanceContext != null) {
+            persistanceContext.getUnitOfWork().registerClean(objet);
+        }
+    }
+
+    /**
+     * Retire un objet du cache (identity map du contexte et cache de second niveau)
      * @param id l'ID de l'objet à retirer du cache
      */
     protected void removeFromCache(Integer id) {
-        cache.remove(id);
+        identityMap.remove(getEntityClass(), id);
+        invalidateSecondLevelCache(id);
+    }
+
+    /**
+     * Lit une ligne par son ID, en passant d'abord par le cache de second niveau partagé entre les contextes.
+     * Pendant une transaction, le cache est contourné : il ne doit contenir que des lignes validées,
+     * et la transaction doit voir ses propres écritures.
+     * @param query la requête de sélection, paramétrée par l'ID
+     * @param id l'ID recherché
+     * @return la ligne, ou null si elle n'existe pas
+     */
+    protected CachedRow findRowById(String query, int id) throws SQLException {
+        SecondLevelCache.Region region = hasOpenTransaction() ? null
+                : SecondLevelCache.getInstance().region(getEntityClass());
+        long stamp = 0;
+        if (region != null) {
+            CachedRow row = region.get(id);
+            if (row != null) {
+                return row;
+            }
+            stamp = region.stamp();
+        }
+
+        long start = System.nanoTime();
+        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                CachedRow row = CachedRow.of(rs);
+                if (region != null) {
+                    region.put(id, row, stamp, System.nanoTime() - start);
+                }
+                return row;
+            }
+        }
+    }
+
+    /**
+     * Invalide la ligne d'un objet dans le cache de second niveau, après une modification ou une suppression.
+     * Dans une transaction, l'invalidation est répétée après le commit : entre-temps, un autre contexte a pu
+     * remettre en cache l'ancienne ligne, encore validée.
+     * @param id l'ID de l'objet modifié
+     */
+    protected void invalidateSecondLevelCache(Integer id) {
+        SecondLevelCache.Region region = SecondLevelCache.getInstance().region(getEntityClass());
+        if (region != null && id != null) {
+            region.invalidate(id);
+            if (hasOpenTransaction()) {
+                afterCommit(() -> region.invalidate(id));
+            }
+        }
+    }
+
+    /**
+     * @return vrai si la connexion de ce mapper a une transaction ouverte, dont les écritures ne sont pas encore validées
+     */
+    protected boolean hasOpenTransaction() {
+        if (persistanceContext != null) {
+            return persistanceContext.hasOpenTransaction();
+        }
+        try {
+            return !connection.getAutoCommit();
+        } catch (SQLException ex) {
+            return true;
+        }
+    }
+
+    /**
+     * Exécute une action qui rend une écriture visible hors du contexte (cache de second niveau, index partagés) :
+     * tout de suite hors transaction, sinon après le commit. Elle est abandonnée si la transaction est annulée.
+     */
+    protected void afterCommit(Runnable action) {
+        if (persistanceContext != null) {
+            persistanceContext.afterCommit(action);
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Signale l'écriture d'un objet en base : {@link #afterWrite} est appelé une fois l'écriture validée.
+     */
+    void written(T objet) {
+        afterCommit(() -> afterWrite(objet));
+    }
+
+    /**
+     * Signale la suppression d'un objet en base : {@link #afterRemove} est appelé une fois la suppression validée.
+     */
+    void removed(Integer id) {
+        afterCommit(() -> afterRemove(id));
+    }
+
+    /**
+     * Appelé une fois validée l'écriture d'un objet en base (création ou modification), faite par le mapper
+     * lui-même ou par l'unité de travail. Sans effet par défaut.
+     * @param objet l'objet écrit
+     */
+    void afterWrite(T objet) {
+    }
+
+    /**
+     * Appelé une fois validée la suppression d'un objet en base. Sans effet par défaut.
+     * @param id l'ID de l'objet supprimé
+     */
+    void afterRemove(Integer id) {
     }
 }
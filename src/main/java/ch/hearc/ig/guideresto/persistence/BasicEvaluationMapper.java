@@ -1,28 +1,54 @@
 package ch.hearc.ig.guideresto.persistence;
 
 import ch.hearc.ig.guideresto.business.BasicEvaluation;
+import ch.hearc.ig.guideresto.business.LikeStats;
 import ch.hearc.ig.guideresto.business.Restaurant;
 
 import java.sql.*;
 import java.util.*;
 
-public class BasicEvaluationMapper extends AbstractMapper<BasicEvaluation>{
+public class BasicEvaluationMapper extends AbstractMapper<BasicEvaluation> {
 
-    private final Connection connection;
-    private RestaurantMapper restaurantMapper;
+    private static final String LIKE_STATS_QUERY = """
+            SELECT FK_REST,
+                   SUM(CASE WHEN APPRECIATION = 'Y' THEN 1 ELSE 0 END) AS NB_LIKES,
+                   SUM(CASE WHEN APPRECIATION = 'N' THEN 1 ELSE 0 END) AS NB_DISLIKES
+            FROM LIKES
+            WHERE %s
+            GROUP BY FK_REST
+            """;
+
+    /**
+     * Restaurant et appréciation d'une ligne de LIKES, tels qu'en base avant une modification.
+     */
+    private record StoredLike(int restaurantId, boolean like) {
+    }
 
-    private Map<Integer, BasicEvaluation> basicEvaluationCache = new HashMap<>();
+    private final LikeCounterStore likeCounters = LikeCounterStore.getInstance();
+    private final RestaurantNameTrie nameTrie = RestaurantNameTrie.getInstance();
+
+    private RestaurantMapper restaurantMapper;
+    private RatingSummaryMapper ratingSummaryMapper;
 
     public BasicEvaluationMapper(Connection connection) {
-        this.connection = connection;
+        super(connection);
     }
 
     public void setRestaurantMapper(RestaurantMapper restaurantMapper) {
         this.restaurantMapper = restaurantMapper;
     }
 
+    public void setRatingSummaryMapper(RatingSummaryMapper ratingSummaryMapper) {
+        this.ratingSummaryMapper = ratingSummaryMapper;
+    }
+
     private BasicEvaluation addToCache(ResultSet rs) throws SQLException{
         int id = rs.getInt("NUMERO");
+        BasicEvaluation cached = peekCache(id);
+        if (cached != null) {
+            return cached;
+        }
+
         BasicEvaluation basicEvaluation = new BasicEvaluation();
         basicEvaluation.setId(id);
         basicEvaluation.setIpAddress(rs.getString("ADRESSE_IP"));
@@ -41,8 +67,9 @@ public class BasicEvaluationMapper extends AbstractMapper<BasicEvaluation>{
 
     @Override
     public BasicEvaluation findById(int id) {
-        if (basicEvaluationCache.containsKey(id)) {
-            return basicEvaluationCache.get(id);
+        BasicEvaluation cached = findInCache(id);
+        if (cached != null) {
+            return cached;
         }
 
         String sql = "SELECT * FROM LIKES WHERE NUMERO = ?";
@@ -61,8 +88,6 @@ public class BasicEvaluationMapper extends AbstractMapper<BasicEvaluation>{
 
     @Override
     public Set<BasicEvaluation> findAll() {
-        resetCache();
-
         Set<BasicEvaluation> basicEvaluationSet = new HashSet<>();
         String sql = "SELECT * FROM LIKES";
 
@@ -92,28 +117,52 @@ public class BasicEvaluationMapper extends AbstractMapper<BasicEvaluation>{
     }
 
 
+    /**
+     * Compte les likes et dislikes de tous les restaurants qui en ont reçu.
+     */
+    public Map<Integer, LikeStats> findAllLikeStats() {
+        Map<Integer, LikeStats> stats = new HashMap<>();
+        try (PreparedStatement ps = connection.prepareStatement(LIKE_STATS_QUERY.formatted("1 = 1"))) {
+            readLikeStats(ps, stats);
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur : " + e.getMessage());
+        }
+        return stats;
+    }
+
+    private void readLikeStats(PreparedStatement ps, Map<Integer, LikeStats> stats) throws SQLException {
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                int restaurantId = rs.getInt("FK_REST");
+                stats.put(restaurantId, new LikeStats(restaurantId, rs.getLong("NB_LIKES"), rs.getLong("NB_DISLIKES")));
+            }
+        }
+    }
+
     @Override
     public BasicEvaluation create(BasicEvaluation eval) {
         String insertSql =
                 "INSERT INTO LIKES (NUMERO, APPRECIATION, DATE_EVAL, ADRESSE_IP, FK_REST) " +
-                        "VALUES (SEQ_EVAL.NEXTVAL, ?, ?, ?, ?)";
+                        "VALUES (?, ?, ?, ?, ?)";
 
         try (PreparedStatement ps = connection.prepareStatement(insertSql)) {
+            int nextId = getSequenceValue();
 
-            ps.setString(1, eval.getLikeRestaurant() ? "Y" : "N");
-            ps.setDate(2, new java.sql.Date(eval.getVisitDate().getTime()));
-            ps.setString(3, eval.getIpAddress());
-            ps.setInt(4, eval.getRestaurant().getId());
+            ps.setInt(1, nextId);
+            ps.setString(2, eval.getLikeRestaurant() ? "Y" : "N");
+            ps.setDate(3, new java.sql.Date(eval.getVisitDate().getTime()));
+            ps.setString(4, eval.getIpAddress());
+            ps.setInt(5, eval.getRestaurant().getId());
 
             ps.executeUpdate();
-            try (PreparedStatement ps2 = connection.prepareStatement("SELECT SEQ_EVAL.CURRVAL FROM dual");
-                 ResultSet rs = ps2.executeQuery()) {
-                if (rs.next()) {
-                    eval.setId(rs.getInt(1));
-                }
+            eval.setId(nextId);
+
+            if (ratingSummaryMapper != null) {
+                ratingSummaryMapper.addLike(eval.getRestaurant().getId(), eval.getLikeRestaurant(), 1);
             }
+            countLike(eval.getRestaurant().getId(), Boolean.TRUE.equals(eval.getLikeRestaurant()), 1);
 
-            return eval;
+            return addToCache(eval);
 
         } catch (SQLException e) {
             throw new RuntimeException("Erreur : "+ e.getMessage());
@@ -130,7 +179,18 @@ public class BasicEvaluationMapper extends AbstractMapper<BasicEvaluation>{
             ps.setInt(4, eval.getRestaurant().getId());
             ps.setInt(5, eval.getId());
 
-            return ps.executeUpdate() > 0;
+            StoredLike previous = tracksLikes() ? findStoredLike(eval.getId()) : null;
+            boolean updated = ps.executeUpdate() > 0;
+            if (updated && previous != null) {
+                boolean like = Boolean.TRUE.equals(eval.getLikeRestaurant());
+                if (ratingSummaryMapper != null) {
+                    ratingSummaryMapper.addLike(previous.restaurantId(), previous.like(), -1);
+                    ratingSummaryMapper.addLike(eval.getRestaurant().getId(), like, 1);
+                }
+                countLike(previous.restaurantId(), previous.like(), -1);
+                countLike(eval.getRestaurant().getId(), like, 1);
+            }
+            return updated;
         } catch (SQLException e) {
             throw new RuntimeException("Erreur : "+ e.getMessage());
         }
@@ -146,8 +206,15 @@ public class BasicEvaluationMapper extends AbstractMapper<BasicEvaluation>{
         String sql = "DELETE FROM LIKES WHERE NUMERO=?";
         try (PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setInt(1, id);
+            StoredLike previous = tracksLikes() ? findStoredLike(id) : null;
             int rows = ps.executeUpdate();
             if (rows > 0) {
+                if (previous != null) {
+                    if (ratingSummaryMapper != null) {
+                        ratingSummaryMapper.addLike(previous.restaurantId(), previous.like(), -1);
+                    }
+                    countLike(previous.restaurantId(), previous.like(), -1);
+                }
                 removeFromCache(id);
                 return true;
             }
@@ -157,9 +224,63 @@ public class BasicEvaluationMapper extends AbstractMapper<BasicEvaluation>{
         return false;
     }
 
+    /**
+     * @return vrai si l'ancienne appréciation doit être lue avant une modification : pour la synthèse des notes,
+     * pour les compteurs en mémoire ou pour la popularité de l'autocomplétion
+     */
+    private boolean tracksLikes() {
+        return ratingSummaryMapper != null || likeCounters.isEnabled() || nameTrie.isEnabled();
+    }
+
+    /**
+     * Reporte une appréciation ajoutée (+1) ou retirée (-1) sur les compteurs en mémoire et, pour un like,
+     * sur la popularité du restaurant dans l'arbre d'autocomplétion, une fois l'écriture validée.
+     */
+    void countLike(int restaurantId, boolean like, int delta) {
+        if (likeCounters.isEnabled()) {
+            afterCommit(() -> likeCounters.adjust(restaurantId, like ? delta : 0, like ? 0 : delta));
+        }
+        if (like && nameTrie.isEnabled()) {
+            afterCommit(() -> nameTrie.addPopularity(restaurantId, delta));
+        }
+    }
+
+    /**
+     * Lit le restaurant et l'appréciation enregistrés, pour retirer l'ancienne valeur de la synthèse des notes.
+     * @return null si la ligne n'existe pas
+     */
+    private StoredLike findStoredLike(int id) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT FK_REST, APPRECIATION FROM LIKES WHERE NUMERO = ?")) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? new StoredLike(rs.getInt("FK_REST"), "Y".equalsIgnoreCase(rs.getString("APPRECIATION"))) : null;
+            }
+        }
+    }
+
     @Override
-    protected String getSequenceQuery() {
-        return null;
+    protected Class<BasicEvaluation> getEntityClass() {
+        return BasicEvaluation.class;
+    }
+
+    @Override
+    protected String getSequenceName() {
+        return "SEQ_EVAL";
+    }
+
+    @Override
+    protected String getTableName() {
+        return "LIKES";
+    }
+
+    @Override
+    protected Map<String, Object> getColumnValues(BasicEvaluation eval) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("APPRECIATION", Boolean.TRUE.equals(eval.getLikeRestaurant()) ? "Y" : "N");
+        values.put("DATE_EVAL", eval.getVisitDate() == null ? null : new java.sql.Date(eval.getVisitDate().getTime()));
+        values.put("ADRESSE_IP", eval.getIpAddress());
+        values.put("FK_REST", eval.getRestaurant() == null ? null : eval.getRestaurant().getId());
+        return values;
     }
 
     @Override
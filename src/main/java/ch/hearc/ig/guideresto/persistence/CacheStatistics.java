@@ -0,0 +1,23 @@
+package ch.hearc.ig.guideresto.persistence;
+
+/**
+ * Statistiques d'une région du {@link SecondLevelCache}.
+ *
+ * @param size            nombre d'entrées actuellement en cache
+ * @param hits            nombre de lectures servies par le cache
+ * @param misses          nombre de lectures ayant nécessité un accès à la base
+ * @param evictions       nombre d'entrées évincées (LRU ou expiration)
+ * @param loads           nombre de lignes chargées depuis la base et mises en cache
+ * @param totalLoadMillis temps total passé à charger ces lignes
+ */
+public record CacheStatistics(int size, long hits, long misses, long evictions, long loads, long totalLoadMillis) {
+
+    public double hitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    public double averageLoadMillis() {
+        return loads == 0 ? 0 : (double) totalLoadMillis / loads;
+    }
+}
@@ -0,0 +1,75 @@
+package ch.hearc.ig.guideresto.persistence;
+
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Copie immuable d'une ligne de résultat, détachée de toute connexion.
+ * Elle permet de partager l'état lu en base entre plusieurs contextes de persistance
+ * (chaque contexte hydrate ensuite ses propres instances à partir de la même ligne).
+ */
+public final class CachedRow {
+
+    private final Map<String, Object> values;
+
+    private CachedRow(Map<String, Object> values) {
+        this.values = Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * Copie la ligne courante du ResultSet. Les CLOB sont lus immédiatement.
+     */
+    public static CachedRow of(ResultSet rs) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        Map<String, Object> values = new HashMap<>();
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            Object value = rs.getObject(i);
+            if (value instanceof Clob clob) {
+                value = clob.getSubString(1, (int) clob.length());
+            }
+            values.put(metaData.getColumnLabel(i).toUpperCase(Locale.ROOT), value);
+        }
+        return new CachedRow(values);
+    }
+
+    public int getInt(String column) {
+        Object value = get(column);
+        return value == null ? 0 : ((Number) value).intValue();
+    }
+
+    public String getString(String column) {
+        Object value = get(column);
+        return value == null ? null : value.toString();
+    }
+
+    public java.sql.Date getDate(String column) {
+        Object value = get(column);
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof java.sql.Date date) {
+            return date;
+        }
+        if (value instanceof Timestamp timestamp) {
+            return new java.sql.Date(timestamp.getTime());
+        }
+        if (value instanceof java.time.LocalDate localDate) {
+            return java.sql.Date.valueOf(localDate);
+        }
+        if (value instanceof java.time.LocalDateTime localDateTime) {
+            return java.sql.Date.valueOf(localDateTime.toLocalDate());
+        }
+        return new java.sql.Date(((java.util.Date) value).getTime());
+    }
+
+    private Object get(String column) {
+        return values.get(column.toUpperCase(Locale.ROOT));
+    }
+}
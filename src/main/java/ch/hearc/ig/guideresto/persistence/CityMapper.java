@@ -7,22 +7,29 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.HashMap;
 import java.util.Set;
 
 
 public class CityMapper extends AbstractMapper<City>{
 
-    private final Connection connection;
+    private RestaurantMapper restaurantMapper;
 
-    private Map<Integer, City> cityCache = new HashMap<>();//identity map
+    private City addToCache(CachedRow row) {
+        City cached = peekCache(row.getInt("NUMERO"));
+        if (cached != null) {
+            return cached;
+        }
 
-    private City addToCache(ResultSet rs) throws SQLException {
         City city = new City();
-        city.setId(rs.getInt("NUMERO"));
-        city.setCityName(rs.getString("NOM_VILLE"));
-        city.setZipCode(rs.getString("CODE_POSTAL"));
+        city.setId(row.getInt("NUMERO"));
+        city.setCityName(row.getString("NOM_VILLE"));
+        city.setZipCode(row.getString("CODE_POSTAL"));
+
+        if (restaurantMapper != null) {
+            city.setRestaurants(restaurantMapper.lazyRestaurants(city));
+        }
 
         addToCache(city);
 
@@ -31,21 +38,24 @@ public class CityMapper extends AbstractMapper<City>{
 
 
     public CityMapper(Connection connection) {
-        this.connection = connection;
+        super(connection);
+    }
+
+    public void setRestaurantMapper(RestaurantMapper restaurantMapper) {
+        this.restaurantMapper = restaurantMapper;
     }
 
     @Override
     public City findById(int id) {
-        if (this.cityCache.containsKey(id)) {
-            return this.cityCache.get(id);
+        City cached = findInCache(id);
+        if (cached != null) {
+            return cached;
         }
         String sql = "SELECT * FROM VILLES WHERE NUMERO = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setInt(1, id);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return addToCache(rs);
-                }
+        try {
+            CachedRow row = findRowById(sql, id);
+            if (row != null) {
+                return addToCache(row);
             }
         } catch (SQLException e) {
             System.out.println("Erreur : "+e.getMessage());
@@ -55,14 +65,13 @@ public class CityMapper extends AbstractMapper<City>{
 
     @Override
     public Set<City> findAll() {
-        resetCache();
         Set<City> cities = new HashSet<>();
         String sql = "SELECT * FROM VILLES";
         try (PreparedStatement ps = connection.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
 
             while (rs.next()) {
-                City city = addToCache(rs);
+                City city = addToCache(CachedRow.of(rs));
                 cities.add(city);
             }
 
@@ -74,18 +83,17 @@ public class CityMapper extends AbstractMapper<City>{
 
     @Override
     public City create(City city) {
-        String sql = "INSERT INTO VILLES (CODE_POSTAL, NOM_VILLE) VALUES (?, ?)";
-        try (PreparedStatement ps = connection.prepareStatement(sql, new String[] {"NUMERO"})) {
-            ps.setString(1, city.getZipCode());
-            ps.setString(2, city.getCityName());
+        String sql = "INSERT INTO VILLES (NUMERO, CODE_POSTAL, NOM_VILLE) VALUES (?, ?, ?)";
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            int nextId = getSequenceValue();
+            ps.setInt(1, nextId);
+            ps.setString(2, city.getZipCode());
+            ps.setString(3, city.getCityName());
 
             ps.executeUpdate();
 
-            try (ResultSet rs = ps.getGeneratedKeys()) {
-                if (rs.next()) {
-                    city.setId(rs.getInt(1));
-                }
-            }
+            city.setId(nextId);
+            addToCache(city);
 
             return city;
 
@@ -102,7 +110,12 @@ public class CityMapper extends AbstractMapper<City>{
             ps.setString(1, city.getCityName());
             ps.setString(2, city.getZipCode());
             ps.setInt(3, city.getId());
-            return ps.executeUpdate() > 0;
+            boolean updated = ps.executeUpdate() > 0;
+            invalidateSecondLevelCache(city.getId());
+            if (updated) {
+                written(city);
+            }
+            return updated;
 
         } catch (SQLException e) {
             System.err.println("Erreur mise à jour de la ville: " + e.getMessage());
@@ -119,6 +132,7 @@ public class CityMapper extends AbstractMapper<City>{
             int rows = ps.executeUpdate();
             if (rows > 0) {
                 removeFromCache(city.getId());
+                removed(city.getId());
                 return true;
             }
         } catch (SQLException e) {
@@ -133,7 +147,12 @@ public class CityMapper extends AbstractMapper<City>{
         String sql = "DELETE FROM VILLES WHERE NUMERO = ?";
         try (PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setInt(1, id);
-            return ps.executeUpdate() > 0;
+            if (ps.executeUpdate() > 0) {
+                removeFromCache(id);
+                removed(id);
+                return true;
+            }
+            return false;
 
         } catch (SQLException e) {
             System.err.println("Erreur de suppression de la ville: " + e.getMessage());
@@ -142,8 +161,26 @@ public class CityMapper extends AbstractMapper<City>{
     }
 
     @Override
-    protected String getSequenceQuery() {
-        return "SELECT SEQ_VILLES.NEXTVAL FROM DUAL";
+    protected Class<City> getEntityClass() {
+        return City.class;
+    }
+
+    @Override
+    protected String getSequenceName() {
+        return "SEQ_VILLES";
+    }
+
+    @Override
+    protected String getTableName() {
+        return "VILLES";
+    }
+
+    @Override
+    protected Map<String, Object> getColumnValues(City city) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("CODE_POSTAL", city.getZipCode());
+        values.put("NOM_VILLE", city.getCityName());
+        return values;
     }
 
     @Override
@@ -155,4 +192,20 @@ public class CityMapper extends AbstractMapper<City>{
     protected String getCountQuery() {
         return "SELECT COUNT(*) FROM VILLES";
     }
+
+    /**
+     * Répercute le nom et le code postal de la ville dans l'index de recherche.
+     */
+    @Override
+    void afterWrite(City city) {
+        RestaurantSearchIndex.getInstance().updateCity(city.getId(), city.getCityName(), city.getZipCode());
+    }
+
+    /**
+     * Retire de l'index de recherche la ville et ses restaurants, supprimés en cascade.
+     */
+    @Override
+    void afterRemove(Integer id) {
+        RestaurantSearchIndex.getInstance().removeCity(id);
+    }
 }
@@ -3,21 +3,36 @@ package ch.hearc.ig.guideresto.persistence;
 import ch.hearc.ig.guideresto.business.*;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 public class CompleteEvaluationMapper  extends AbstractMapper{
-    private final Connection connection;
+    private static final String PARALLEL_EVALUATIONS_QUERY = """
+            SELECT c.NUMERO, c.DATE_EVAL, c.COMMENTAIRE, c.NOM_UTILISATEUR, c.FK_REST
+            FROM COMMENTAIRES c
+            WHERE %s
+            """;
+
+    private static final String PARALLEL_GRADES_QUERY = """
+            SELECT n.NUMERO, n.NOTE, n.FK_COMM, n.FK_CRIT, ce.NOM AS NOM_CRITERE, ce.DESCRIPTION AS DESCRIPTION_CRITERE
+            FROM NOTES n
+            JOIN CRITERES_EVALUATION ce ON n.FK_CRIT = ce.NUMERO
+            WHERE %s
+            """;
+
     private RestaurantMapper restaurantMapper;
     private GradeMapper gradeMapper;
     private EvaluationCriteriaMapper evaluationCriteriaMapper;
-
-    private Map<Integer, CompleteEvaluation> completeEvaluationCache = new HashMap<>();
+    private RatingSummaryMapper ratingSummaryMapper;
 
     public CompleteEvaluationMapper(Connection connection) {
-        this.connection = connection;
+        super(connection);
     }
 
     public void setRestaurantMapper(RestaurantMapper restaurantMapper) {
@@ -32,39 +47,66 @@ public class CompleteEvaluationMapper  extends AbstractMapper{
         this.evaluationCriteriaMapper = evaluationCriteriaMapper;
     }
 
+    public void setRatingSummaryMapper(RatingSummaryMapper ratingSummaryMapper) {
+        this.ratingSummaryMapper = ratingSummaryMapper;
+    }
+
     private CompleteEvaluation addToCache(ResultSet rs) throws SQLException {
         int id = rs.getInt("NUMERO");
-            CompleteEvaluation completeEvaluation = new CompleteEvaluation();
-            completeEvaluation.setId(id);
-            completeEvaluation.setComment(rs.getString("COMMENTAIRE"));
-            completeEvaluation.setUsername(rs.getString("NOM_UTILISATEUR"));
-            completeEvaluation.setVisitDate(rs.getDate("DATE_EVAL"));
+        CompleteEvaluation cached = (CompleteEvaluation) peekCache(id);
+        if (cached != null) {
+            return cached;
+        }
 
-            //Restaurant
-            int restaurantId = rs.getInt("FK_REST");
+        CompleteEvaluation completeEvaluation = new CompleteEvaluation();
+        completeEvaluation.setId(id);
+        completeEvaluation.setComment(rs.getString("COMMENTAIRE"));
+        completeEvaluation.setUsername(rs.getString("NOM_UTILISATEUR"));
+        completeEvaluation.setVisitDate(rs.getDate("DATE_EVAL"));
 
-            if (restaurantMapper != null) {
-                completeEvaluation.setRestaurant(restaurantMapper.findById(restaurantId));
-            }
+        //Restaurant
+        int restaurantId = rs.getInt("FK_REST");
+
+        if (restaurantMapper != null) {
+            completeEvaluation.setRestaurant(restaurantMapper.findById(restaurantId));
+        }
+
+        addToCache(completeEvaluation);
+        return completeEvaluation;
+    }
 
-            //Grades
-            if (gradeMapper != null) {
-                Set<Grade> grades = gradeMapper.findByEvaluationId(id);
+    /**
+     * Charge les notes de toutes les évaluations données en une seule passe.
+     * @param evaluations les évaluations à compléter
+     */
+    private void loadGrades(Collection<CompleteEvaluation> evaluations) {
+        if (gradeMapper == null || evaluations.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, CompleteEvaluation> evaluationsById = new HashMap<>();
+        for (CompleteEvaluation evaluation : evaluations) {
+            evaluationsById.put(evaluation.getId(), evaluation);
+        }
 
-                for (Grade grade : grades) {
-                    grade.setEvaluation(completeEvaluation);
+        Map<Integer, Set<Grade>> gradesByEvaluation = gradeMapper.findByEvaluationIds(evaluationsById.keySet());
+        for (Map.Entry<Integer, Set<Grade>> entry : gradesByEvaluation.entrySet()) {
+            CompleteEvaluation evaluation = evaluationsById.get(entry.getKey());
+            for (Grade grade : entry.getValue()) {
+                if (grade.getEvaluation() == null) {
+                    grade.setEvaluation(evaluation);
+                    gradeMapper.registerClean(grade);
                 }
-                completeEvaluation.setGrades(grades);
             }
-
-            addToCache(completeEvaluation);
-        return completeEvaluation;
+            evaluation.setGrades(entry.getValue());
+        }
     }
 
     @Override
     public CompleteEvaluation findById(int id) {
-        if (completeEvaluationCache.containsKey(id)) {
-            return completeEvaluationCache.get(id);
+        CompleteEvaluation cached = (CompleteEvaluation) findInCache(id);
+        if (cached != null) {
+            return cached;
         }
 
         String selectQuery = "SELECT * FROM commentaires WHERE NUMERO = ?";
@@ -73,7 +115,9 @@ public class CompleteEvaluationMapper  extends AbstractMapper{
             s.setInt(1,id);
             try (ResultSet rs = s.executeQuery()) {
                 if (rs.next()) {
-                    return addToCache(rs);
+                    CompleteEvaluation evaluation = addToCache(rs);
+                    loadGrades(List.of(evaluation));
+                    return evaluation;
                 }
             }
         } catch (SQLException e) {
@@ -84,16 +128,22 @@ public class CompleteEvaluationMapper  extends AbstractMapper{
 
     @Override
     public Set<CompleteEvaluation> findAll() {
-        resetCache();
-
         Set<CompleteEvaluation> evaluations = new HashSet<>();
+        List<CompleteEvaluation> loadedEvaluations = new ArrayList<>();
         String selectQuery = "SELECT * FROM commentaires";
 
         try (PreparedStatement s = connection.prepareStatement(selectQuery);
              ResultSet rs = s.executeQuery()) {
             while (rs.next()) {
-                evaluations.add(addToCache(rs));
+                int id = rs.getInt("NUMERO");
+                CompleteEvaluation evaluation = (CompleteEvaluation) findInCache(id);
+                if (evaluation == null) {
+                    evaluation = addToCache(rs);
+                    loadedEvaluations.add(evaluation);
+                }
+                evaluations.add(evaluation);
             }
+            loadGrades(loadedEvaluations);
 
         } catch (SQLException e) {
             throw new RuntimeException("Erreur : "+ e.getMessage());
@@ -101,8 +151,62 @@ public class CompleteEvaluationMapper  extends AbstractMapper{
         return evaluations;
     }
 
+    /**
+     * Charge toutes les évaluations complètes et leurs notes en lisant des plages d'identifiants de commentaires
+     * en parallèle sur plusieurs connexions du pool. Les restaurants sont chargés d'abord de la même manière,
+     * pour que chaque évaluation trouve le sien dans l'identity map.
+     * @param threads le nombre de connexions utilisées simultanément
+     */
+    public Set<CompleteEvaluation> findAllParallel(int threads) {
+        ParallelScan scan = new ParallelScan(threads);
+        restaurantMapper.findAllParallel(threads);
+
+        Set<CompleteEvaluation> evaluations = new HashSet<>();
+        Map<Integer, CompleteEvaluation> loadedEvaluations = new HashMap<>();
+        scan.scan("COMMENTAIRES", PARALLEL_EVALUATIONS_QUERY, "c.NUMERO", row -> {
+            CompleteEvaluation evaluation = (CompleteEvaluation) peekCache(row.getInt("NUMERO"));
+            if (evaluation == null) {
+                evaluation = new CompleteEvaluation(row.getInt("NUMERO"), row.getDate("DATE_EVAL"),
+                        restaurantMapper.findById(row.getInt("FK_REST")), row.getString("COMMENTAIRE"),
+                        row.getString("NOM_UTILISATEUR"));
+                loadedEvaluations.put(evaluation.getId(), evaluation);
+            }
+            evaluations.add(evaluation);
+        });
+
+        // Les notes sont découpées selon les mêmes plages de commentaires ; seules celles des évaluations
+        // qui n'étaient pas encore chargées sont rattachées, les autres ont déjà les leurs
+        scan.scan("COMMENTAIRES", PARALLEL_GRADES_QUERY, "n.FK_COMM", row -> {
+            CompleteEvaluation evaluation = loadedEvaluations.get(row.getInt("FK_COMM"));
+            if (evaluation != null) {
+                evaluation.getGrades().add(new Grade(row.getInt("NUMERO"), row.getInt("NOTE"), evaluation, criterion(row)));
+            }
+        });
+
+        for (CompleteEvaluation evaluation : loadedEvaluations.values()) {
+            for (Grade grade : evaluation.getGrades()) {
+                getIdentityMap().put(Grade.class, grade.getId(), grade);
+                registerClean(grade);
+            }
+            addToCache(evaluation);
+        }
+        return evaluations;
+    }
+
+    private EvaluationCriteria criterion(CachedRow row) {
+        EvaluationCriteria criterion = getIdentityMap().get(EvaluationCriteria.class, row.getInt("FK_CRIT"));
+        if (criterion == null) {
+            criterion = new EvaluationCriteria(row.getInt("FK_CRIT"), row.getString("NOM_CRITERE"),
+                    row.getString("DESCRIPTION_CRITERE"));
+            getIdentityMap().put(EvaluationCriteria.class, criterion.getId(), criterion);
+            registerClean(criterion);
+        }
+        return criterion;
+    }
+
     public Set<CompleteEvaluation> findByRestaurant(Restaurant restaurant) {
         Set<CompleteEvaluation> evaluations = new HashSet<>();
+        List<CompleteEvaluation> loadedEvaluations = new ArrayList<>();
         String query = "SELECT * FROM commentaires WHERE fk_rest = ?";
 
         try (PreparedStatement stmt = connection.prepareStatement(query)) {
@@ -112,6 +216,12 @@ public class CompleteEvaluationMapper  extends AbstractMapper{
 
                 while (rs.next()) {
                     int evaluationId = rs.getInt("numero");
+                    CompleteEvaluation cached = (CompleteEvaluation) findInCache(evaluationId);
+                    if (cached != null) {
+                        evaluations.add(cached);
+                        continue;
+                    }
+
                     Date evaluationDate = rs.getDate("date_eval");
                     String comment = rs.getString("commentaire");
                     String username = rs.getString("nom_utilisateur");
@@ -123,16 +233,12 @@ public class CompleteEvaluationMapper  extends AbstractMapper{
                             comment,
                             username
                     );
-                    Set<Grade> grades = this.gradeMapper.findByEvaluationId(evaluationId);
-
-                    for (Grade grade : grades) {
-                        grade.setEvaluation(evaluation);
-                    }
-                    evaluation.setGrades(grades);
-
+                    addToCache(evaluation);
+                    loadedEvaluations.add(evaluation);
                     evaluations.add(evaluation);
                 }
             }
+            loadGrades(loadedEvaluations);
         } catch (SQLException e) {
             throw new RuntimeException("Erreur : "+ e.getMessage());
         }
@@ -150,7 +256,8 @@ public class CompleteEvaluationMapper  extends AbstractMapper{
         try (PreparedStatement s = connection.prepareStatement(insertQuery)) {
             int nextId = getSequenceValue();
             s.setInt(1, nextId);
-            s.setDate(2, new java.sql.Date(evaluation.getVisitDate().getTime()));            s.setString(3, evaluation.getComment());
+            s.setDate(2, new java.sql.Date(evaluation.getVisitDate().getTime()));
+            s.setString(3, evaluation.getComment());
             s.setString(4, evaluation.getUsername());
             s.setInt(5, evaluation.getRestaurant().getId());
 
@@ -158,11 +265,14 @@ public class CompleteEvaluationMapper  extends AbstractMapper{
 
             if (rowsInserted > 0) {
                 evaluation.setId(nextId);
+                addToCache(evaluation);
                 if (evaluation.getGrades() != null && !evaluation.getGrades().isEmpty()) {
-                    GradeMapper gradeMapper = new GradeMapper(connection);
                     for (Grade grade : evaluation.getGrades()) {
                         grade.setEvaluation(evaluation);
-                        gradeMapper.create(grade);
+                    }
+                    gradeMapper.createAll(evaluation.getGrades());
+                    if (ratingSummaryMapper != null) {
+                        ratingSummaryMapper.addGrades(evaluation.getRestaurant().getId(), evaluation.getGrades());
                     }
                 }
                 return evaluation;
@@ -189,11 +299,11 @@ public class CompleteEvaluationMapper  extends AbstractMapper{
             s.setInt(4, evaluation.getRestaurant().getId());
             s.setInt(5, evaluation.getId());
 
+            Integer previousRestaurantId = ratingSummaryMapper != null ? findStoredRestaurantId(evaluation.getId()) : null;
             int rowsUpdated = s.executeUpdate();
 
             if (rowsUpdated > 0) {
                 if (evaluation.getGrades() != null && !evaluation.getGrades().isEmpty()) {
-                    GradeMapper gradeMapper = new GradeMapper(connection);
                     for (Grade grade : evaluation.getGrades()) {
                         grade.setEvaluation(evaluation);
 
@@ -204,6 +314,13 @@ public class CompleteEvaluationMapper  extends AbstractMapper{
                         }
                     }
                 }
+                // Les notes ont pu baisser : le min et le max ne se décrémentent pas, on recalcule le restaurant
+                if (ratingSummaryMapper != null) {
+                    ratingSummaryMapper.refresh(evaluation.getRestaurant().getId());
+                    if (previousRestaurantId != null && !previousRestaurantId.equals(evaluation.getRestaurant().getId())) {
+                        ratingSummaryMapper.refresh(previousRestaurantId);
+                    }
+                }
                 return true;
             } else {
                 return false;
@@ -223,7 +340,6 @@ public class CompleteEvaluationMapper  extends AbstractMapper{
         String deleteQuery = "DELETE FROM commentaires WHERE numero = ?";
 
         try {
-            GradeMapper gradeMapper = new GradeMapper(connection);
             if (evaluation.getGrades() != null && !evaluation.getGrades().isEmpty()) {
                 for (Grade grade : evaluation.getGrades()) {
                     if (grade.getId() != null && gradeMapper.exists(grade.getId())) {
@@ -235,8 +351,10 @@ public class CompleteEvaluationMapper  extends AbstractMapper{
             try (PreparedStatement ps = connection.prepareStatement(deleteQuery)) {
                 ps.setInt(1, evaluation.getId());
                 int rowsDeleted = ps.executeUpdate();
-                int rows = ps.executeUpdate();
-                if (rows > 0) {
+                if (rowsDeleted > 0) {
+                    if (ratingSummaryMapper != null && evaluation.getRestaurant() != null) {
+                        ratingSummaryMapper.refresh(evaluation.getRestaurant().getId());
+                    }
                     removeFromCache(evaluation.getId());
                     return true;
                 }
@@ -259,9 +377,43 @@ public class CompleteEvaluationMapper  extends AbstractMapper{
         }
     }
 
+    /**
+     * Lit le restaurant enregistré d'une évaluation, pour recalculer aussi sa synthèse si elle en change.
+     * @return null si l'évaluation n'existe pas
+     */
+    private Integer findStoredRestaurantId(int id) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT FK_REST FROM commentaires WHERE numero = ?")) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt("FK_REST") : null;
+            }
+        }
+    }
+
+    @Override
+    protected Class<CompleteEvaluation> getEntityClass() {
+        return CompleteEvaluation.class;
+    }
+
+    @Override
+    protected String getSequenceName() {
+        return "SEQ_EVAL";
+    }
+
+    @Override
+    protected String getTableName() {
+        return "COMMENTAIRES";
+    }
+
     @Override
-    protected String getSequenceQuery() {
-        return "SELECT SEQ_EVAL.NEXTVAL FROM dual";
+    protected Map<String, Object> getColumnValues(IBusinessObject object) {
+        CompleteEvaluation evaluation = (CompleteEvaluation) object;
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("DATE_EVAL", evaluation.getVisitDate() == null ? null : new java.sql.Date(evaluation.getVisitDate().getTime()));
+        values.put("COMMENTAIRE", evaluation.getComment());
+        values.put("NOM_UTILISATEUR", evaluation.getUsername());
+        values.put("FK_REST", evaluation.getRestaurant() == null ? null : evaluation.getRestaurant().getId());
+        return values;
     }
 
     @Override
@@ -0,0 +1,338 @@
+package ch.hearc.ig.guideresto.persistence;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool de connexions JDBC borné.
+ * Chaque connexion empruntée avec {@link #borrow()} doit être rendue avec {@link #release(Connection)}.
+ * Les connexions sont validées à l'emprunt, fermées lorsqu'elles dépassent leur durée de vie maximale
+ * et évincées lorsqu'elles restent inactives trop longtemps (en conservant toujours {@code minSize} connexions).
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    /**
+     * Fixe une comparaison binaire des chaînes pour les sessions Oracle : tri (ORDER BY) et comparaisons (&gt;, =)
+     * suivent alors le même ordre, celui des points de code, quels que soient les paramètres NLS du client.
+     * La pagination par nom en dépend (voir {@link RestaurantSearchIndex#compareNames}).
+     */
+    private static final String ORACLE_SESSION_SQL = "ALTER SESSION SET NLS_SORT = BINARY NLS_COMP = BINARY";
+
+    private final String url;
+    private final String username;
+    private final String password;
+
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long maxLifetimeMillis;
+    private final int validationTimeoutSeconds;
+
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idleConnections = new ArrayDeque<>();
+    private final Map<Connection, PooledConnection> activeConnections = new IdentityHashMap<>();
+    private final ScheduledExecutorService housekeeper;
+
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+
+    private volatile boolean closed;
+
+    private static final class PooledConnection {
+        private final Connection connection;
+        private final long createdAt;
+        private final int defaultIsolation;
+        private long lastUsedAt;
+
+        private PooledConnection(Connection connection) throws SQLException {
+            this.connection = connection;
+            this.createdAt = System.currentTimeMillis();
+            this.lastUsedAt = createdAt;
+            this.defaultIsolation = connection.getTransactionIsolation();
+        }
+    }
+
+    public ConnectionPool(String url, String username, String password, int minSize, int maxSize,
+                          long borrowTimeoutMillis, long idleTimeoutMillis, long maxLifetimeMillis,
+                          int validationTimeoutSeconds) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Taille de pool invalide : min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000L, Math.min(idleTimeoutMillis, maxLifetimeMillis) / 2);
+        this.housekeeper.scheduleWithFixedDelay(this::evictAndFill, 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Emprunte une connexion au pool, en attendant au plus {@code borrowTimeoutMillis} qu'une connexion se libère.
+     * @return une connexion valide, en mode autocommit
+     * @throws SQLTimeoutException si aucune connexion n'est disponible dans le délai imparti
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Le pool de connexions est fermé");
+        }
+
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Attente d'une connexion interrompue", ex);
+        } finally {
+            totalWaitNanos.add(System.nanoTime() - start);
+        }
+
+        if (!acquired) {
+            timeoutCount.increment();
+            throw new SQLTimeoutException("Aucune connexion disponible après " + borrowTimeoutMillis + " ms");
+        }
+
+        try {
+            PooledConnection pooled = takeValidIdleConnection();
+            if (pooled == null) {
+                pooled = openConnection();
+            }
+            synchronized (this) {
+                activeConnections.put(pooled.connection, pooled);
+            }
+            borrowCount.increment();
+            return pooled.connection;
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    /**
+     * Rend une connexion au pool. Une transaction restée ouverte est annulée.
+     * @param connection la connexion obtenue par {@link #borrow()}
+     */
+    public void release(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+
+        PooledConnection pooled;
+        synchronized (this) {
+            pooled = activeConnections.remove(connection);
+        }
+        if (pooled == null) {
+            logger.warn("Tentative de rendre au pool une connexion qui n'en provient pas");
+            return;
+        }
+
+        try {
+            boolean reusable = reset(pooled);
+            pooled.lastUsedAt = System.currentTimeMillis();
+
+            if (reusable && !closed && !isExpired(pooled)) {
+                synchronized (this) {
+                    idleConnections.addFirst(pooled);
+                }
+            } else {
+                closeQuietly(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * @return vrai si la connexion a été empruntée à ce pool et n'a pas encore été rendue
+     */
+    public synchronized boolean owns(Connection connection) {
+        return activeConnections.containsKey(connection);
+    }
+
+    /**
+     * Retourne un instantané des métriques du pool.
+     */
+    public PoolMetrics getMetrics() {
+        int active;
+        int idle;
+        synchronized (this) {
+            active = activeConnections.size();
+            idle = idleConnections.size();
+        }
+        return new PoolMetrics(active, idle, maxSize, borrowCount.sum(),
+                TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.sum()), timeoutCount.sum());
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Ferme le pool : les connexions inactives sont fermées immédiatement,
+     * les connexions empruntées le seront lorsqu'elles seront rendues.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        List<PooledConnection> idle;
+        synchronized (this) {
+            idle = new ArrayList<>(idleConnections);
+            idleConnections.clear();
+        }
+        idle.forEach(this::closeQuietly);
+    }
+
+    private PooledConnection takeValidIdleConnection() {
+        while (true) {
+            PooledConnection pooled;
+            synchronized (this) {
+                pooled = idleConnections.pollFirst();
+            }
+            if (pooled == null) {
+                return null;
+            }
+            if (!isExpired(pooled) && isValid(pooled)) {
+                return pooled;
+            }
+            closeQuietly(pooled);
+        }
+    }
+
+    private PooledConnection openConnection() throws SQLException {
+        Connection connection = DriverManager.getConnection(url, username, password);
+        connection.setAutoCommit(true);
+        if (url.startsWith("jdbc:oracle:")) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(ORACLE_SESSION_SQL);
+            } catch (SQLException ex) {
+                connection.close();
+                throw ex;
+            }
+        }
+        return new PooledConnection(connection);
+    }
+
+    private boolean reset(PooledConnection pooled) {
+        Connection connection = pooled.connection;
+        try {
+            if (connection.isClosed()) {
+                return false;
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            if (connection.getTransactionIsolation() != pooled.defaultIsolation) {
+                connection.setTransactionIsolation(pooled.defaultIsolation);
+            }
+            return true;
+        } catch (SQLException ex) {
+            logger.warn("Connexion inutilisable retirée du pool : {}", ex.getMessage());
+            return false;
+        }
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            return pooled.connection.isValid(validationTimeoutSeconds);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private boolean isExpired(PooledConnection pooled) {
+        return System.currentTimeMillis() - pooled.createdAt >= maxLifetimeMillis;
+    }
+
+    /**
+     * Ferme les connexions inactives depuis trop longtemps ou trop anciennes,
+     * puis rouvre des connexions pour revenir à la taille minimale. Les connexions évincées sont fermées
+     * hors du verrou, pour ne pas bloquer les emprunts et les retours pendant ces allers-retours réseau.
+     */
+    private void evictAndFill() {
+        long now = System.currentTimeMillis();
+        List<PooledConnection> evicted = new ArrayList<>();
+        synchronized (this) {
+            Iterator<PooledConnection> iterator = idleConnections.descendingIterator();
+            while (iterator.hasNext()) {
+                PooledConnection pooled = iterator.next();
+                boolean idleTooLong = now - pooled.lastUsedAt >= idleTimeoutMillis
+                        && activeConnections.size() + idleConnections.size() > minSize;
+                if (idleTooLong || isExpired(pooled)) {
+                    iterator.remove();
+                    evicted.add(pooled);
+                }
+            }
+        }
+        evicted.forEach(this::closeQuietly);
+
+        while (!closed) {
+            synchronized (this) {
+                if (activeConnections.size() + idleConnections.size() >= minSize) {
+                    return;
+                }
+            }
+            if (!permits.tryAcquire()) {
+                return;
+            }
+            try {
+                PooledConnection pooled = openConnection();
+                synchronized (this) {
+                    idleConnections.addLast(pooled);
+                }
+            } catch (SQLException ex) {
+                logger.error("Impossible d'ouvrir une connexion pour le pool : {}", ex.getMessage());
+                return;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    private void closeQuietly(PooledConnection pooled) {
+        try {
+            pooled.connection.close();
+        } catch (SQLException ex) {
+            logger.debug("Erreur lors de la fermeture d'une connexion : {}", ex.getMessage());
+        }
+    }
+}
@@ -4,14 +4,16 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.List;
 import java.util.MissingResourceException;
 import java.util.ResourceBundle;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Provide helper methods to deal with database connections.
- * Ideally, this should also manage connection pools in a bigger application.
+ * Connections are borrowed from a bounded {@link ConnectionPool} created on first use
+ * and must be given back with {@link #releaseConnection(Connection)}.
  *
  * @author arnaud.geiser
  * @author alain.matile
@@ -20,9 +22,135 @@ public class ConnectionUtils {
 
     private static final Logger logger = LogManager.getLogger();
 
-    private static Connection connection;
+    private static volatile ConnectionPool pool;
+    /**
+     * Pools fermés puis remplacés dont des connexions sont encore empruntées : elles leur sont rendues, et fermées.
+     */
+    private static final List<ConnectionPool> retiredPools = new CopyOnWriteArrayList<>();
+    private static IdGenerator idGenerator;
 
+    public static ConnectionPool getPool() {
+        ConnectionPool current = ConnectionUtils.pool;
+        if (current != null && !current.isClosed()) {
+            return current;
+        }
+        synchronized (ConnectionUtils.class) {
+            if (ConnectionUtils.pool == null || ConnectionUtils.pool.isClosed()) {
+                if (ConnectionUtils.pool != null && ConnectionUtils.pool.getMetrics().active() > 0) {
+                    retiredPools.add(ConnectionUtils.pool);
+                }
+                ConnectionUtils.pool = createPool();
+            }
+            return ConnectionUtils.pool;
+        }
+    }
+
+    /**
+     * Borrow a connection from the pool. The caller is responsible for releasing it.
+     */
     public static Connection getConnection() {
+        try {
+            return getPool().borrow();
+        } catch (SQLException ex) {
+            logger.error(ex.getMessage(), ex);
+            throw new RuntimeException("Impossible d'obtenir une connexion : " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Rend une connexion à son pool, sans verrou global : la remise à zéro de la connexion peut demander
+     * un aller-retour vers la base. Une connexion d'un pool fermé entre-temps est rendue à ce pool, qui la ferme.
+     */
+    public static void releaseConnection(Connection connection) {
+        for (ConnectionPool retired : retiredPools) {
+            if (retired.owns(connection)) {
+                retired.release(connection);
+                if (retired.getMetrics().active() == 0) {
+                    retiredPools.remove(retired);
+                }
+                return;
+            }
+        }
+        ConnectionPool current = ConnectionUtils.pool;
+        if (current != null) {
+            current.release(connection);
+        }
+    }
+
+    /**
+     * Générateur d'identifiants partagé par tous les contextes ; par défaut un {@link PooledIdGenerator}
+     * dont la taille de bloc est lue dans {@code idGenerator.blockSize}.
+     */
+    public static synchronized IdGenerator getIdGenerator() {
+        if (ConnectionUtils.idGenerator == null) {
+            ResourceBundle dbProps = ResourceBundle.getBundle("database");
+            ConnectionUtils.idGenerator = new PooledIdGenerator(getInt(dbProps, "idGenerator.blockSize", 50));
+        }
+        return ConnectionUtils.idGenerator;
+    }
+
+    public static synchronized void setIdGenerator(IdGenerator idGenerator) {
+        ConnectionUtils.idGenerator = idGenerator;
+    }
+
+    /**
+     * @return la taille de fetch par défaut des parcours en streaming ({@code stream.fetchSize})
+     */
+    public static int getStreamFetchSize() {
+        return getInt(ResourceBundle.getBundle("database"), "stream.fetchSize", 500);
+    }
+
+    /**
+     * @return vrai si les migrations du schéma doivent être appliquées au démarrage ({@code schema.migrateOnStartup},
+     * désactivé par défaut : en production, elles sont appliquées au déploiement par {@code tools.MigrateSchema})
+     */
+    public static boolean isMigrateOnStartup() {
+        ResourceBundle bundle = ResourceBundle.getBundle("database");
+        return bundle.containsKey("schema.migrateOnStartup")
+                && Boolean.parseBoolean(bundle.getString("schema.migrateOnStartup").trim());
+    }
+
+    /**
+     * Nombre maximal d'appels asynchrones simultanés. Chaque appel occupe une connexion, mais les contextes
+     * ouverts hors de l'exécuteur (celui de l'application, celui qui attend une fiche chargée en parallèle)
+     * en occupent aussi : {@code async.reservedConnections} connexions du pool (1 par défaut) leur sont
+     * laissées, pour que les appels n'attendent pas le délai d'emprunt du pool puis échouent.
+     * @return {@code async.maxConcurrency}, par défaut et au plus la taille maximale du pool moins les
+     * connexions réservées, et au moins 1
+     */
+    public static int getAsyncMaxConcurrency() {
+        ResourceBundle bundle = ResourceBundle.getBundle("database");
+        int available = getPool().getMaxSize() - getInt(bundle, "async.reservedConnections", 1);
+        int configured = getInt(bundle, "async.maxConcurrency", available);
+        if (configured > available) {
+            logger.warn("async.maxConcurrency ({}) ramené à {} : le pool doit garder des connexions réservées",
+                    configured, available);
+        }
+        return Math.max(1, Math.min(configured, available));
+    }
+
+    /**
+     * @return le délai accordé au chargement parallèle d'une fiche de restaurant ({@code async.detailsTimeoutMillis})
+     */
+    public static int getDetailsTimeoutMillis() {
+        return getInt(ResourceBundle.getBundle("database"), "async.detailsTimeoutMillis", 5_000);
+    }
+
+    public static PoolMetrics getPoolMetrics() {
+        return getPool().getMetrics();
+    }
+
+    /**
+     * Ferme le pool. Il reste accessible jusqu'à la création du suivant, pour que les connexions encore
+     * empruntées lui soient rendues et fermées.
+     */
+    public static synchronized void closeConnection() {
+        if (ConnectionUtils.pool != null) {
+            ConnectionUtils.pool.close();
+        }
+    }
+
+    private static ConnectionPool createPool() {
         try {
             // Load database credentials from resources/database.properties
             ResourceBundle dbProps = ResourceBundle.getBundle("database");
@@ -30,27 +158,23 @@ public class ConnectionUtils {
             String username = dbProps.getString("database.username");
             String password = dbProps.getString("database.password");
 
-            logger.info("Trying to connect to user schema '{}' with JDBC string '{}'", username, url);
+            int minSize = getInt(dbProps, "pool.minSize", 1);
+            int maxSize = getInt(dbProps, "pool.maxSize", 10);
 
-            if (ConnectionUtils.connection == null || ConnectionUtils.connection.isClosed()) {
-                ConnectionUtils.connection = DriverManager.getConnection(url, username, password);
-                ConnectionUtils.connection.setAutoCommit(true);
-            }
-        } catch (SQLException ex) {
-            logger.error(ex.getMessage(), ex);
+            logger.info("Creating connection pool ({}-{}) for user schema '{}' with JDBC string '{}'", minSize, maxSize, username, url);
+
+            return new ConnectionPool(url, username, password, minSize, maxSize,
+                    getInt(dbProps, "pool.borrowTimeoutMillis", 30_000),
+                    getInt(dbProps, "pool.idleTimeoutMillis", 600_000),
+                    getInt(dbProps, "pool.maxLifetimeMillis", 1_800_000),
+                    getInt(dbProps, "pool.validationTimeoutSeconds", 2));
         } catch (MissingResourceException ex) {
             logger.error(ex.getMessage(), ex);
+            throw ex;
         }
-        return ConnectionUtils.connection;
     }
 
-    public static void closeConnection() {
-        try {
-            if (ConnectionUtils.connection != null && !ConnectionUtils.connection.isClosed()) {
-                ConnectionUtils.connection.close();
-            }
-        } catch (SQLException e) {
-            logger.error(e.getMessage(), e);
-        }
+    static int getInt(ResourceBundle bundle, String key, int defaultValue) {
+        return bundle.containsKey(key) ? Integer.parseInt(bundle.getString(key).trim()) : defaultValue;
     }
 }
@@ -7,28 +7,29 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 
 public class EvaluationCriteriaMapper extends AbstractMapper {
-    private final Connection connection;
-
-    private Map<Integer, EvaluationCriteria> evaluationCriteriaCache = new HashMap<>();
 
     public EvaluationCriteriaMapper(Connection connection) {
-        this.connection = connection;
+        super(connection);
     }
 
-    private EvaluationCriteria addToCache(ResultSet rs) throws SQLException {
-        int id = rs.getInt("NUMERO");
+    private EvaluationCriteria addToCache(CachedRow row) {
+        int id = row.getInt("NUMERO");
+        EvaluationCriteria cached = (EvaluationCriteria) peekCache(id);
+        if (cached != null) {
+            return cached;
+        }
 
         EvaluationCriteria evaluationCriteria = new EvaluationCriteria();
 
         evaluationCriteria.setId(id);
-        evaluationCriteria.setDescription(rs.getString("DESCRIPTION"));
-        evaluationCriteria.setName(rs.getString("NOM"));
+        evaluationCriteria.setDescription(row.getString("DESCRIPTION"));
+        evaluationCriteria.setName(row.getString("NOM"));
 
         addToCache(evaluationCriteria);
 
@@ -37,19 +38,17 @@ public class EvaluationCriteriaMapper extends AbstractMapper {
 
     @Override
     public EvaluationCriteria findById(int id) {
-        if (this.evaluationCriteriaCache.containsKey(id)) {
-            return this.evaluationCriteriaCache.get(id);
+        EvaluationCriteria cached = (EvaluationCriteria) findInCache(id);
+        if (cached != null) {
+            return cached;
         }
 
         String selectQuery = "SELECT * FROM criteres_evaluation WHERE numero = ?";
 
-        try (PreparedStatement s = connection.prepareStatement(selectQuery)) {
-            s.setInt(1, id);
-
-            try (ResultSet rs = s.executeQuery()) {
-                if (rs.next()) {
-                    return addToCache(rs);
-                }
+        try {
+            CachedRow row = findRowById(selectQuery, id);
+            if (row != null) {
+                return addToCache(row);
             }
         } catch (SQLException e) {
             throw new RuntimeException("Erreur : " +e.getMessage());
@@ -59,7 +58,6 @@ public class EvaluationCriteriaMapper extends AbstractMapper {
 
     @Override
     public Set<EvaluationCriteria> findAll() {
-        resetCache();
         Set<EvaluationCriteria> criteriaSet = new HashSet<>();
         String selectQuery = "SELECT * FROM criteres_evaluation";
 
@@ -67,7 +65,7 @@ public class EvaluationCriteriaMapper extends AbstractMapper {
              ResultSet rs = s.executeQuery()) {
 
             while (rs.next()) {
-                criteriaSet.add(addToCache(rs));
+                criteriaSet.add(addToCache(CachedRow.of(rs)));
             }
 
         } catch (SQLException e) {
@@ -95,7 +93,8 @@ public class EvaluationCriteriaMapper extends AbstractMapper {
             int rowsInserted = stmt.executeUpdate();
 
             if (rowsInserted > 0) {
-                return new EvaluationCriteria(nextId, criteria.getName(), criteria.getDescription());
+                criteria.setId(nextId);
+                return addToCache(criteria);
             } else {
                 throw new RuntimeException("Erreur d'insertion");
             }
@@ -119,6 +118,7 @@ public class EvaluationCriteriaMapper extends AbstractMapper {
             ps.setInt(3, criteria.getId());
 
             int rowsUpdated = ps.executeUpdate();
+            invalidateSecondLevelCache(criteria.getId());
 
             return rowsUpdated > 0;
 
@@ -171,8 +171,27 @@ public class EvaluationCriteriaMapper extends AbstractMapper {
     }
 
     @Override
-    protected String getSequenceQuery() {
-        return "SELECT SEQ_CRITERES_EVALUATION.NEXTVAL FROM dual";
+    protected Class<EvaluationCriteria> getEntityClass() {
+        return EvaluationCriteria.class;
+    }
+
+    @Override
+    protected String getSequenceName() {
+        return "SEQ_CRITERES_EVALUATION";
+    }
+
+    @Override
+    protected String getTableName() {
+        return "CRITERES_EVALUATION";
+    }
+
+    @Override
+    protected Map<String, Object> getColumnValues(IBusinessObject object) {
+        EvaluationCriteria criteria = (EvaluationCriteria) object;
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("NOM", criteria.getName());
+        values.put("DESCRIPTION", criteria.getDescription());
+        return values;
     }
 
     @Override
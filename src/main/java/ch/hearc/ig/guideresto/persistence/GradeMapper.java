@@ -8,16 +8,18 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
 
-public class GradeMapper extends AbstractMapper {
-    private final Connection connection;
+public class GradeMapper extends AbstractMapper<Grade> {
+    /**
+     * Nombre maximal d'éléments d'une liste IN (limite Oracle : 1000).
+     */
+    private static final int IN_LIST_CHUNK_SIZE = 1000;
 
-    private Map<Integer, Grade> gradeCache = new HashMap<>();
 
     private EvaluationCriteriaMapper evaluationCriteriaMapper;
     private CompleteEvaluationMapper completeEvaluationMapper;
 
     public GradeMapper(Connection connection) {
-        this.connection = connection;
+        super(connection);
     }
 
     public void setEvaluationCriteriaMapper(EvaluationCriteriaMapper evaluationCriteriaMapper) {
@@ -30,6 +32,10 @@ public class GradeMapper extends AbstractMapper {
 
     private Grade addToCache(ResultSet rs) throws SQLException {
         int id = rs.getInt("NUMERO");
+        Grade cached = peekCache(id);
+        if (cached != null) {
+            return cached;
+        }
 
         Grade grade = new Grade();
         grade.setId(id);
@@ -50,14 +56,16 @@ public class GradeMapper extends AbstractMapper {
         } else {
             System.out.println("evaluationCriteriaMapper est null ");
         }
+        registerClean(grade);
         return grade;
     }
 
 
     @Override
-    public IBusinessObject findById(int id) {
-        if (this.gradeCache.containsKey(id)) {
-            return this.gradeCache.get(id);
+    public Grade findById(int id) {
+        Grade cached = findInCache(id);
+        if (cached != null) {
+            return cached;
         }
 
         String selectQuery = "SELECT * FROM notes WHERE numero = ?";
@@ -89,9 +97,12 @@ public class GradeMapper extends AbstractMapper {
                     int note = rs.getInt("note");
                     int criteriaId = rs.getInt("fk_crit");
 
-                    EvaluationCriteria criteria = evaluationCriteriaMapper.findById(criteriaId);
-
-                    Grade grade = new Grade(gradeId, note, null, criteria);
+                    Grade grade = findInCache(gradeId);
+                    if (grade == null) {
+                        EvaluationCriteria criteria = evaluationCriteriaMapper.findById(criteriaId);
+                        grade = new Grade(gradeId, note, null, criteria);
+                        addToCache(grade);
+                    }
                     grades.add(grade);
                 }
             }
@@ -103,9 +114,57 @@ public class GradeMapper extends AbstractMapper {
     }
 
 
+    /**
+     * Charge les notes de plusieurs évaluations en une requête par tranche de {@value #IN_LIST_CHUNK_SIZE} identifiants.
+     * @param evaluationIds les identifiants des évaluations complètes
+     * @return les notes regroupées par identifiant d'évaluation (une entrée, éventuellement vide, par identifiant demandé)
+     */
+    public Map<Integer, Set<Grade>> findByEvaluationIds(Collection<Integer> evaluationIds) {
+        Map<Integer, Set<Grade>> gradesByEvaluation = new HashMap<>();
+        for (Integer evaluationId : evaluationIds) {
+            gradesByEvaluation.put(evaluationId, new HashSet<>());
+        }
+
+        Map<Integer, EvaluationCriteria> criteriaById = new HashMap<>();
+        List<Integer> ids = new ArrayList<>(gradesByEvaluation.keySet());
+
+        for (int from = 0; from < ids.size(); from += IN_LIST_CHUNK_SIZE) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + IN_LIST_CHUNK_SIZE, ids.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            String query = "SELECT * FROM notes WHERE fk_comm IN (" + placeholders + ")";
+
+            try (PreparedStatement stmt = connection.prepareStatement(query)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setInt(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        int gradeId = rs.getInt("numero");
+                        int note = rs.getInt("note");
+                        int evaluationId = rs.getInt("fk_comm");
+                        int criteriaId = rs.getInt("fk_crit");
+
+                        EvaluationCriteria criteria = criteriaById.computeIfAbsent(criteriaId, evaluationCriteriaMapper::findById);
+
+                        Grade grade = findInCache(gradeId);
+                        if (grade == null) {
+                            grade = new Grade(gradeId, note, null, criteria);
+                            addToCache(grade);
+                        }
+                        gradesByEvaluation.get(evaluationId).add(grade);
+                    }
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException("Erreur : " + e.getMessage());
+            }
+        }
+
+        return gradesByEvaluation;
+    }
+
+
     @Override
-    public Set findAll() {
-        resetCache();
+    public Set<Grade> findAll() {
         Set<Grade> grades = new HashSet<>();
         String selectQuery = "SELECT * FROM notes";
 
@@ -125,11 +184,7 @@ public class GradeMapper extends AbstractMapper {
     }
 
     @Override
-    public IBusinessObject create(IBusinessObject object) {
-        if (!(object instanceof Grade grade)) {
-            throw new IllegalArgumentException("Object must be an instance of Grade");
-        }
-
+    public Grade create(Grade grade) {
         String insertQuery = "INSERT INTO notes (numero, note, fk_comm, fk_crit) VALUES (?, ?, ?, ?)";
 
         try (PreparedStatement stmt = connection.prepareStatement(insertQuery)) {
@@ -142,7 +197,8 @@ public class GradeMapper extends AbstractMapper {
             int rowsInserted = stmt.executeUpdate();
 
             if (rowsInserted > 0) {
-                return new Grade(nextId, grade.getGrade(), grade.getEvaluation(), grade.getCriteria());
+                grade.setId(nextId);
+                return addToCache(grade);
             }
 
         } catch (SQLException e) {
@@ -151,12 +207,40 @@ public class GradeMapper extends AbstractMapper {
         return null;
     }
 
-    @Override
-    public boolean update(IBusinessObject object) {
-        if (!(object instanceof Grade grade)) {
-            throw new IllegalArgumentException("Object must be an instance of Grade");
+    /**
+     * Insère plusieurs notes en un seul lot JDBC : les identifiants sont réservés en une requête,
+     * puis toutes les lignes sont envoyées avec un unique executeBatch.
+     * @param grades les notes à insérer, déjà rattachées à leur évaluation et à leur critère
+     */
+    public void createAll(Collection<Grade> grades) {
+        if (grades.isEmpty()) {
+            return;
+        }
+
+        String insertQuery = "INSERT INTO notes (numero, note, fk_comm, fk_crit) VALUES (?, ?, ?, ?)";
+
+        try (PreparedStatement stmt = connection.prepareStatement(insertQuery)) {
+            Iterator<Integer> ids = getSequenceValues(grades.size()).iterator();
+            for (Grade grade : grades) {
+                grade.setId(ids.next());
+                stmt.setInt(1, grade.getId());
+                stmt.setInt(2, grade.getGrade());
+                stmt.setInt(3, grade.getEvaluation().getId());
+                stmt.setInt(4, grade.getCriteria().getId());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+
+            for (Grade grade : grades) {
+                addToCache(grade);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur : " + e.getMessage());
         }
+    }
 
+    @Override
+    public boolean update(Grade grade) {
         String updateQuery = "UPDATE notes SET note = ?, fk_comm = ?, fk_crit = ? WHERE numero = ?";
 
         try (PreparedStatement stmt = connection.prepareStatement(updateQuery)) {
@@ -174,11 +258,7 @@ public class GradeMapper extends AbstractMapper {
     }
 
     @Override
-    public boolean delete(IBusinessObject object) {
-        if (!(object instanceof Grade grade)) {
-            throw new IllegalArgumentException("Object must be an instance of Grade");
-        }
-
+    public boolean delete(Grade grade) {
         String deleteQuery = "DELETE FROM notes WHERE numero = ?";
 
         try (PreparedStatement ps = connection.prepareStatement(deleteQuery)) {
@@ -216,8 +296,27 @@ public class GradeMapper extends AbstractMapper {
     }
 
     @Override
-    protected String getSequenceQuery() {
-        return "SELECT SEQ_NOTES.NEXTVAL FROM dual";
+    protected Class<Grade> getEntityClass() {
+        return Grade.class;
+    }
+
+    @Override
+    protected String getSequenceName() {
+        return "SEQ_NOTES";
+    }
+
+    @Override
+    protected String getTableName() {
+        return "NOTES";
+    }
+
+    @Override
+    protected Map<String, Object> getColumnValues(Grade grade) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("NOTE", grade.getGrade());
+        values.put("FK_COMM", grade.getEvaluation() == null ? null : grade.getEvaluation().getId());
+        values.put("FK_CRIT", grade.getCriteria() == null ? null : grade.getCriteria().getId());
+        return values;
     }
 
     @Override
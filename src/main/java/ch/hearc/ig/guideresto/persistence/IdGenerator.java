@@ -0,0 +1,33 @@
+package ch.hearc.ig.guideresto.persistence;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Stratégie d'attribution des identifiants utilisée par les mappers lors des insertions.
+ * L'implémentation par défaut est {@link PooledIdGenerator} ; une autre peut être installée
+ * avec {@link ConnectionUtils#setIdGenerator(IdGenerator)}.
+ */
+public interface IdGenerator {
+
+    /**
+     * @param connection la connexion à utiliser si la séquence doit être interrogée
+     * @param sequenceName le nom de la séquence
+     * @return un nouvel identifiant
+     */
+    int nextId(Connection connection, String sequenceName) throws SQLException;
+
+    /**
+     * @param count le nombre d'identifiants souhaités
+     * @return {@code count} nouveaux identifiants
+     */
+    List<Integer> nextIds(Connection connection, String sequenceName, int count) throws SQLException;
+
+    /**
+     * Vérifie que les séquences existent dans le schéma.
+     * @throws SQLException si l'une d'elles est introuvable
+     */
+    void validate(Connection connection, Collection<String> sequenceNames) throws SQLException;
+}
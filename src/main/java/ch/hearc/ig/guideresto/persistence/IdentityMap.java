@@ -0,0 +1,96 @@
+package ch.hearc.ig.guideresto.persistence;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Identity map d'un {@link PersistanceContext} : garantit qu'un même enregistrement n'est représenté
+ * que par une seule instance, identifiée par le couple (classe de l'entité, identifiant).
+ */
+public class IdentityMap {
+
+    private final Map<Class<?>, Map<Integer, Object>> entities = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Recherche une entité déjà chargée.
+     * @param type la classe de l'entité
+     * @param id son identifiant
+     * @return l'instance chargée, ou null si elle ne l'a pas encore été
+     */
+    public <T> T get(Class<T> type, Integer id) {
+        if (id == null) {
+            return null;
+        }
+        Object entity = entitiesOf(type).get(id);
+        if (entity == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return type.cast(entity);
+    }
+
+    /**
+     * Recherche une entité déjà chargée sans la comptabiliser dans les statistiques de hits/misses.
+     */
+    public <T> T peek(Class<T> type, Integer id) {
+        return id == null ? null : type.cast(entitiesOf(type).get(id));
+    }
+
+    /**
+     * Enregistre une entité, sauf si une instance portant le même identifiant est déjà connue.
+     * @param type la classe de l'entité
+     * @param id son identifiant
+     * @param entity l'instance à enregistrer
+     * @return l'instance de référence pour cet identifiant
+     */
+    public <T> T put(Class<T> type, Integer id, T entity) {
+        if (id == null || entity == null) {
+            return entity;
+        }
+        Object existing = entitiesOf(type).putIfAbsent(id, entity);
+        return existing == null ? entity : type.cast(existing);
+    }
+
+    public void remove(Class<?> type, Integer id) {
+        if (id != null) {
+            entitiesOf(type).remove(id);
+        }
+    }
+
+    public boolean isEmpty(Class<?> type) {
+        return entitiesOf(type).isEmpty();
+    }
+
+    public void clear(Class<?> type) {
+        entitiesOf(type).clear();
+    }
+
+    public void clear() {
+        entities.clear();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Map<Integer, Object> map : entities.values()) {
+            size += map.size();
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private Map<Integer, Object> entitiesOf(Class<?> type) {
+        return entities.computeIfAbsent(type, key -> new ConcurrentHashMap<>());
+    }
+}
@@ -0,0 +1,29 @@
+package ch.hearc.ig.guideresto.persistence;
+
+import java.sql.Connection;
+
+/**
+ * Niveaux d'isolation utilisables pour une transaction. Oracle ne supporte que READ_COMMITTED et SERIALIZABLE.
+ */
+public enum Isolation {
+    /**
+     * Niveau par défaut de la connexion.
+     */
+    DEFAULT(-1),
+    READ_COMMITTED(Connection.TRANSACTION_READ_COMMITTED),
+    REPEATABLE_READ(Connection.TRANSACTION_REPEATABLE_READ),
+    SERIALIZABLE(Connection.TRANSACTION_SERIALIZABLE);
+
+    private final int level;
+
+    Isolation(int level) {
+        this.level = level;
+    }
+
+    /**
+     * @return la constante JDBC correspondante, ou -1 pour le niveau par défaut
+     */
+    public int getLevel() {
+        return level;
+    }
+}
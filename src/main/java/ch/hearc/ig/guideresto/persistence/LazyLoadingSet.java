@@ -0,0 +1,114 @@
+package ch.hearc.ig.guideresto.persistence;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Ensemble chargé à la demande : son contenu n'est lu en base qu'au premier accès,
+ * à travers le {@link PersistanceContext} qui l'a créé.
+ * Le chargement peut être forcé avec {@link #initialize()} (ou {@link PersistanceContext#initialize(Collection)}),
+ * par exemple avant de fermer le contexte.
+ * <p>
+ * Tant que l'ensemble n'est pas chargé, {@link #add} et {@link #remove} ne le chargent pas : les modifications
+ * sont retenues, dans leur ordre, puis rejouées sur le contenu lu en base lors du chargement. Elles retournent
+ * alors toujours vrai, l'ensemble ne pouvant savoir s'il contenait déjà l'élément.
+ *
+ * @param <E> le type des éléments
+ */
+public class LazyLoadingSet<E> extends AbstractSet<E> {
+
+    private final PersistanceContext persistanceContext;
+    private Supplier<? extends Collection<E>> loader;
+    private Set<E> delegate;
+    private List<Change<E>> pendingChanges = new ArrayList<>();
+
+    /**
+     * Ajout ou retrait reçu avant le chargement.
+     */
+    private record Change<E>(E element, boolean added) {
+    }
+
+    public LazyLoadingSet(PersistanceContext persistanceContext, Supplier<? extends Collection<E>> loader) {
+        this.persistanceContext = persistanceContext;
+        this.loader = loader;
+    }
+
+    public boolean isInitialized() {
+        return delegate != null;
+    }
+
+    /**
+     * Charge le contenu de l'ensemble s'il ne l'a pas encore été.
+     * @throws IllegalStateException si le contexte de persistance propriétaire est déjà fermé
+     */
+    public synchronized void initialize() {
+        if (delegate != null) {
+            return;
+        }
+        if (persistanceContext != null && persistanceContext.isClosed()) {
+            throw new IllegalStateException("Chargement impossible : le contexte de persistance est fermé");
+        }
+        Set<E> loaded = new HashSet<>(loader.get());
+        for (Change<E> change : pendingChanges) {
+            if (change.added()) {
+                loaded.add(change.element());
+            } else {
+                loaded.remove(change.element());
+            }
+        }
+        delegate = loaded;
+        loader = null;
+        pendingChanges = null;
+    }
+
+    private Set<E> delegate() {
+        initialize();
+        return delegate;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return delegate().iterator();
+    }
+
+    @Override
+    public int size() {
+        return delegate().size();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return delegate().contains(o);
+    }
+
+    @Override
+    public synchronized boolean add(E e) {
+        if (delegate == null) {
+            pendingChanges.add(new Change<>(e, true));
+            return true;
+        }
+        return delegate.add(e);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized boolean remove(Object o) {
+        if (delegate == null) {
+            // Un élément d'un autre type ne peut pas être dans l'ensemble : il sera ignoré au chargement
+            pendingChanges.add(new Change<>((E) o, false));
+            return true;
+        }
+        return delegate.remove(o);
+    }
+
+    @Override
+    public void clear() {
+        delegate().clear();
+    }
+}
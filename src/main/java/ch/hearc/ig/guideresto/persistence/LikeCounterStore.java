@@ -0,0 +1,178 @@
+package ch.hearc.ig.guideresto.persistence;
+
+import ch.hearc.ig.guideresto.business.LikeStats;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Compteurs de likes/dislikes en mémoire, partagés par toute l'application. Ils sont initialisés une seule fois
+ * depuis la base, puis incrémentés à chaque nouvelle appréciation : les restaurants les plus consultés
+ * sont servis sans requête. Les compteurs reposent sur des {@link LongAdder}, qui répartissent les incréments
+ * concurrents sur plusieurs cellules.
+ * <p>
+ * Les variations signalées pendant l'initialisation sont mises de côté, puis appliquées après la lecture des
+ * totaux : une appréciation validée après cette lecture n'est pas perdue. Une variation signalée entre le commit
+ * de son écriture et le début de la lecture serait comptée deux fois ; {@link #reset()} corrige un tel écart.
+ * <p>
+ * Les compteurs ne restent exacts que si toutes les appréciations passent par cette application.
+ * Ils sont activés par {@code likeCounters.enabled} dans {@code cache.properties}, et {@link #reset()} force une
+ * nouvelle initialisation.
+ */
+public class LikeCounterStore {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    private static final LikeCounterStore instance = new LikeCounterStore();
+
+    private final Map<Integer, Counters> counters = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private volatile boolean seeded;
+
+    /**
+     * Variations reçues pendant l'initialisation, null hors initialisation. Protégé par {@code pendingLock}.
+     */
+    private final Object pendingLock = new Object();
+    private List<Delta> pending;
+
+    private record Delta(int restaurantId, long likes, long dislikes) {
+    }
+
+    private record Counters(LongAdder likes, LongAdder dislikes) {
+        Counters() {
+            this(new LongAdder(), new LongAdder());
+        }
+    }
+
+    private LikeCounterStore() {
+        boolean configured = false;
+        try {
+            ResourceBundle bundle = ResourceBundle.getBundle("cache");
+            configured = bundle.containsKey("likeCounters.enabled")
+                    && Boolean.parseBoolean(bundle.getString("likeCounters.enabled").trim());
+        } catch (MissingResourceException ex) {
+            logger.info("Aucun fichier cache.properties : compteurs de likes désactivés");
+        }
+        this.enabled = configured;
+    }
+
+    public static LikeCounterStore getInstance() {
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Retourne les compteurs d'un restaurant, en initialisant le magasin au premier appel.
+     * @param restaurantId l'identifiant du restaurant
+     * @param loader le chargement des compteurs de tous les restaurants, appelé une seule fois
+     */
+    public LikeStats get(int restaurantId, Supplier<Map<Integer, LikeStats>> loader) {
+        seed(loader);
+        Counters restaurantCounters = counters.get(restaurantId);
+        if (restaurantCounters == null) {
+            return new LikeStats(restaurantId, 0, 0);
+        }
+        return new LikeStats(restaurantId, restaurantCounters.likes().sum(), restaurantCounters.dislikes().sum());
+    }
+
+    /**
+     * Comptabilise une nouvelle appréciation, déjà validée en base.
+     */
+    public void increment(int restaurantId, boolean like) {
+        adjust(restaurantId, like ? 1 : 0, like ? 0 : 1);
+    }
+
+    /**
+     * Retire une appréciation supprimée ou modifiée, déjà validée en base.
+     */
+    public void decrement(int restaurantId, boolean like) {
+        adjust(restaurantId, like ? -1 : 0, like ? 0 : -1);
+    }
+
+    /**
+     * Applique une variation déjà validée en base. Avant l'initialisation, elle est ignorée : la lecture des
+     * totaux la prendra en compte ; pendant l'initialisation, elle est appliquée une fois les totaux lus.
+     */
+    public void adjust(int restaurantId, long likesDelta, long dislikesDelta) {
+        if (!seeded) {
+            synchronized (pendingLock) {
+                if (!seeded) {
+                    if (pending != null) {
+                        pending.add(new Delta(restaurantId, likesDelta, dislikesDelta));
+                    }
+                    return;
+                }
+            }
+        }
+        apply(restaurantId, likesDelta, dislikesDelta);
+    }
+
+    private void apply(int restaurantId, long likesDelta, long dislikesDelta) {
+        Counters restaurantCounters = counters.computeIfAbsent(restaurantId, id -> new Counters());
+        restaurantCounters.likes().add(likesDelta);
+        restaurantCounters.dislikes().add(dislikesDelta);
+    }
+
+    /**
+     * Oublie les compteurs d'un restaurant supprimé.
+     */
+    public void remove(int restaurantId) {
+        counters.remove(restaurantId);
+    }
+
+    /**
+     * Vide le magasin ; il sera réinitialisé depuis la base au prochain accès.
+     */
+    public synchronized void reset() {
+        seeded = false;
+        counters.clear();
+    }
+
+    private void seed(Supplier<Map<Integer, LikeStats>> loader) {
+        if (seeded) {
+            return;
+        }
+        synchronized (this) {
+            if (seeded) {
+                return;
+            }
+            synchronized (pendingLock) {
+                pending = new ArrayList<>();
+            }
+            Map<Integer, LikeStats> loaded;
+            try {
+                loaded = loader.get();
+            } catch (RuntimeException e) {
+                synchronized (pendingLock) {
+                    pending = null;
+                }
+                throw e;
+            }
+            for (LikeStats stats : loaded.values()) {
+                Counters restaurantCounters = new Counters();
+                restaurantCounters.likes().add(stats.likes());
+                restaurantCounters.dislikes().add(stats.dislikes());
+                counters.put(stats.restaurantId(), restaurantCounters);
+            }
+            synchronized (pendingLock) {
+                for (Delta delta : pending) {
+                    apply(delta.restaurantId(), delta.likes(), delta.dislikes());
+                }
+                pending = null;
+                seeded = true;
+            }
+            logger.debug("Compteurs de likes initialisés pour {} restaurants", counters.size());
+        }
+    }
+}
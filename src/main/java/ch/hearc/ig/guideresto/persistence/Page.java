@@ -0,0 +1,13 @@
+package ch.hearc.ig.guideresto.persistence;
+
+import java.util.List;
+
+/**
+ * Page de résultats retournée pour une {@link PageRequest}.
+ *
+ * @param content    les éléments de la page, dans l'ordre du tri
+ * @param hasNext    true s'il existe au moins un élément après cette page
+ * @param nextCursor le curseur à passer pour obtenir la page suivante, ou null s'il n'y en a pas
+ */
+public record Page<T>(List<T> content, boolean hasNext, String nextCursor) {
+}
@@ -0,0 +1,84 @@
+package ch.hearc.ig.guideresto.persistence;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Demande d'une page de résultats, paginés par clé (keyset) plutôt que par OFFSET :
+ * chaque page reprend après la dernière clé de la précédente, transmise sous forme de curseur opaque.
+ * Le coût d'une page ne dépend donc pas de sa profondeur.
+ *
+ * @param sort   l'ordre de tri, stable grâce à NUMERO qui départage les égalités
+ * @param size   le nombre maximal d'éléments par page
+ * @param cursor le curseur retourné par la page précédente, ou null pour la première page
+ */
+public record PageRequest(Sort sort, int size, String cursor) {
+
+    public enum Sort {
+        /**
+         * Tri par NUMERO.
+         */
+        BY_ID,
+        /**
+         * Tri par NOM, puis par NUMERO.
+         */
+        BY_NAME
+    }
+
+    /**
+     * Position décodée d'un curseur : clé du dernier élément de la page précédente.
+     */
+    record Cursor(int id, String name) {
+    }
+
+    public PageRequest {
+        if (sort == null) {
+            throw new IllegalArgumentException("Le tri est obligatoire");
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("La taille de page doit être positive");
+        }
+    }
+
+    public static PageRequest first(Sort sort, int size) {
+        return new PageRequest(sort, size, null);
+    }
+
+    /**
+     * @param page la page courante
+     * @return la demande de la page suivante
+     */
+    public PageRequest next(Page<?> page) {
+        if (!page.hasNext()) {
+            throw new IllegalStateException("Il n'y a pas de page suivante");
+        }
+        return new PageRequest(sort, size, page.nextCursor());
+    }
+
+    /**
+     * Encode la position après un élément.
+     */
+    String cursorAfter(int id, String name) {
+        String key = sort.name() + "|" + id + "|" + (name == null ? "" : name);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return la position décodée, ou null pour la première page
+     * @throws IllegalArgumentException si le curseur est invalide ou a été produit pour un autre tri
+     */
+    Cursor decodeCursor() {
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 3);
+            if (parts.length != 3 || !parts[0].equals(sort.name())) {
+                throw new IllegalArgumentException("Curseur de pagination invalide pour le tri " + sort);
+            }
+            return new Cursor(Integer.parseInt(parts[1]), parts[2]);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Curseur de pagination invalide : " + cursor, ex);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package ch.hearc.ig.guideresto.persistence;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Lecture parallèle d'une table entière : les identifiants sont découpés en plages de {@code NUMERO},
+ * lues simultanément chacune sur sa propre connexion du pool.
+ * <p>
+ * Les lignes de chaque plage sont copiées en {@link CachedRow}, détachées de leur connexion, puis transmises au
+ * consommateur sur le thread appelant, plage par plage dans l'ordre où elles se terminent. Le consommateur n'a donc
+ * pas besoin d'être thread-safe : il peut hydrater l'identity map d'un contexte ou écrire un export.
+ * <p>
+ * Au plus {@link #getThreads()} plages sont en cours à la fois, lues ou en attente du consommateur : une plage
+ * n'est soumise qu'une fois une précédente consommée, et la mémoire reste bornée quelle que soit la taille de la table.
+ */
+public class ParallelScan {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    /**
+     * Nombre de plages par thread, pour équilibrer la charge entre plages plus ou moins denses.
+     */
+    private static final int RANGES_PER_THREAD = 4;
+
+    private final int threads;
+
+    /**
+     * @param threads le nombre de plages lues simultanément, borné par la taille maximale du pool moins la connexion
+     *                déjà tenue par l'appelant (celle de son contexte de persistance)
+     */
+    public ParallelScan(int threads) {
+        this.threads = Math.max(1, Math.min(threads, ConnectionUtils.getPool().getMaxSize() - 1));
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Lit toutes les lignes d'une requête, plage par plage.
+     * @param boundsTable la table dont les NUMERO minimal et maximal délimitent les plages
+     * @param query la requête, dont le {@code %s} est remplacé par la condition de plage
+     * @param rangeColumn la colonne comparée aux bornes de chaque plage, par exemple {@code r.NUMERO}
+     * @param sink le consommateur des lignes, appelé sur le thread appelant
+     * @return le nombre de lignes lues
+     */
+    public long scan(String boundsTable, String query, String rangeColumn, Consumer<CachedRow> sink) {
+        long[] bounds = findIdBounds(boundsTable);
+        if (bounds == null) {
+            return 0;
+        }
+        long minId = bounds[0];
+        long maxIdExclusive = bounds[1] + 1;
+        int rangeCount = threads * RANGES_PER_THREAD;
+        long rangeSize = Math.max(1, (maxIdExclusive - minId + rangeCount - 1) / rangeCount);
+        String sql = query.formatted(rangeColumn + " >= ? AND " + rangeColumn + " < ?");
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CompletionService<List<CachedRow>> completion = new ExecutorCompletionService<>(executor);
+            int ranges = 0;
+            int inFlight = 0;
+            long from = minId;
+            long count = 0;
+            while (from < maxIdExclusive || inFlight > 0) {
+                // Une nouvelle plage n'est soumise que si une place s'est libérée
+                while (from < maxIdExclusive && inFlight < threads) {
+                    long fromId = from;
+                    long toId = Math.min(from + rangeSize, maxIdExclusive);
+                    completion.submit(() -> readRange(sql, fromId, toId));
+                    from = toId;
+                    inFlight++;
+                    ranges++;
+                }
+                List<CachedRow> rows = completion.take().get();
+                inFlight--;
+                rows.forEach(sink);
+                count += rows.size();
+            }
+            logger.debug("Lecture parallèle de {} : {} lignes en {} plages sur {} connexions",
+                    boundsTable, count, ranges, threads);
+            return count;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Erreur : lecture interrompue", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Erreur : " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<CachedRow> readRange(String sql, long fromId, long toId) throws SQLException {
+        Connection connection = ConnectionUtils.getConnection();
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setLong(1, fromId);
+            ps.setLong(2, toId);
+            ps.setFetchSize(ConnectionUtils.getStreamFetchSize());
+            List<CachedRow> rows = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(CachedRow.of(rs));
+                }
+            }
+            return rows;
+        } finally {
+            ConnectionUtils.releaseConnection(connection);
+        }
+    }
+
+    /**
+     * @return le plus petit et le plus grand NUMERO de la table, ou null si elle est vide
+     */
+    private static long[] findIdBounds(String table) {
+        Connection connection = ConnectionUtils.getConnection();
+        try (PreparedStatement ps = connection.prepareStatement("SELECT MIN(NUMERO), MAX(NUMERO) FROM " + table);
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            long minId = rs.getLong(1);
+            return rs.wasNull() ? null : new long[]{minId, rs.getLong(2)};
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur : " + e.getMessage(), e);
+        } finally {
+            ConnectionUtils.releaseConnection(connection);
+        }
+    }
+}
@@ -1,27 +1,73 @@
 package ch.hearc.ig.guideresto.persistence;
 
+import ch.hearc.ig.guideresto.business.*;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
+/**
+ * Contexte de persistance : emprunte une connexion au pool pour toute sa durée de vie
+ * et la rend au pool lors de sa fermeture. Plusieurs contextes peuvent être utilisés en parallèle.
+ * Un contexte s'obtient par {@link #open()}.
+ */
 public class PersistanceContext implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    private final ConnectionPool pool;
     private final Connection connection;
+    private final IdentityMap identityMap = new IdentityMap();
+    private UnitOfWork unitOfWork;
 
     private final BasicEvaluationMapper basicEvaluationMapper;
     private final EvaluationCriteriaMapper evaluationCriteriaMapper;
     private final CompleteEvaluationMapper completeEvaluationMapper;
     private final GradeMapper gradeMapper;
+    private final RatingSummaryMapper ratingSummaryMapper;
 
     private final RestaurantMapper restaurantMapper;
     private final RestaurantTypeMapper restaurantTypeMapper;
     private final CityMapper cityMapper;
 
-    public PersistanceContext() {
-        this.connection = ConnectionUtils.getConnection();
+    private static volatile boolean schemaChecked;
+
+    private final List<Runnable> afterCommitActions = new ArrayList<>();
+
+    private boolean closed;
+    private boolean inTransaction;
+    private boolean rollbackOnly;
+
+    /**
+     * Ouvre un contexte : emprunte une connexion, relie l'unité de travail et les mappers au contexte,
+     * puis vérifie le schéma lors de la première ouverture.
+     */
+    public static PersistanceContext open() {
+        PersistanceContext context = new PersistanceContext();
+        context.attach();
+        context.checkSchema();
+        return context;
+    }
+
+    private PersistanceContext() {
+        this.pool = ConnectionUtils.getPool();
+        try {
+            this.connection = pool.borrow();
+        } catch (SQLException e) {
+            throw new RuntimeException("Impossible d'obtenir une connexion : " + e.getMessage(), e);
+        }
 
         this.basicEvaluationMapper = new BasicEvaluationMapper(connection);
         this.evaluationCriteriaMapper = new EvaluationCriteriaMapper(connection);
         this.completeEvaluationMapper = new CompleteEvaluationMapper(connection);
         this.gradeMapper = new GradeMapper(connection);
+        this.ratingSummaryMapper = new RatingSummaryMapper(connection);
 
         this.restaurantMapper = new RestaurantMapper(connection);
         this.restaurantTypeMapper = new RestaurantTypeMapper(connection);
@@ -29,26 +75,287 @@ public class PersistanceContext implements AutoCloseable {
 
         gradeMapper.setEvaluationCriteriaMapper(evaluationCriteriaMapper);
         completeEvaluationMapper.setGradeMapper(gradeMapper);
+        completeEvaluationMapper.setRatingSummaryMapper(ratingSummaryMapper);
+        basicEvaluationMapper.setRatingSummaryMapper(ratingSummaryMapper);
+        ratingSummaryMapper.setEvaluationCriteriaMapper(evaluationCriteriaMapper);
 
         restaurantMapper.setCityMapper(cityMapper);
         restaurantMapper.setRestaurantTypeMapper(restaurantTypeMapper);
         restaurantMapper.setCompleteEvaluationMapper(completeEvaluationMapper);
 
         completeEvaluationMapper.setRestaurantMapper(restaurantMapper);
+        cityMapper.setRestaurantMapper(restaurantMapper);
+        restaurantTypeMapper.setRestaurantMapper(restaurantMapper);
+    }
 
+    /**
+     * Relie l'unité de travail et les mappers à ce contexte, une fois celui-ci entièrement construit.
+     */
+    private void attach() {
+        unitOfWork = new UnitOfWork(this);
+        basicEvaluationMapper.setPersistanceContext(this);
+        evaluationCriteriaMapper.setPersistanceContext(this);
+        completeEvaluationMapper.setPersistanceContext(this);
+        gradeMapper.setPersistanceContext(this);
+        restaurantMapper.setPersistanceContext(this);
+        restaurantTypeMapper.setPersistanceContext(this);
+        cityMapper.setPersistanceContext(this);
+    }
+
+    /**
+     * Une seule fois, à la création du premier contexte : applique les migrations du schéma si
+     * {@code schema.migrateOnStartup} est activé, puis vérifie que les séquences utilisées par les mappers
+     * existent, plutôt que d'échouer lors de la première insertion.
+     */
+    private void checkSchema() {
+        if (schemaChecked) {
+            return;
+        }
+        synchronized (PersistanceContext.class) {
+            if (schemaChecked) {
+                return;
+            }
+            List<String> sequenceNames = List.of(
+                    cityMapper.getSequenceName(),
+                    restaurantTypeMapper.getSequenceName(),
+                    restaurantMapper.getSequenceName(),
+                    completeEvaluationMapper.getSequenceName(),
+                    basicEvaluationMapper.getSequenceName(),
+                    gradeMapper.getSequenceName(),
+                    evaluationCriteriaMapper.getSequenceName());
+            try {
+                if (ConnectionUtils.isMigrateOnStartup()) {
+                    new SchemaMigrator(connection).migrate();
+                }
+                ConnectionUtils.getIdGenerator().validate(connection, sequenceNames);
+            } catch (SQLException e) {
+                close();
+                throw new RuntimeException("Erreur : " + e.getMessage(), e);
+            }
+            schemaChecked = true;
+        }
     }
 
     @Override
     public void close() {
-        if (connection != null) {
+        if (!closed) {
+            closed = true;
+            pool.release(connection);
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Force le chargement d'une collection chargée à la demande (sans effet sur une collection ordinaire).
+     * À utiliser avant de fermer le contexte pour les collections qui seront encore lues ensuite.
+     * @param collection la collection à initialiser
+     */
+    public void initialize(Collection<?> collection) {
+        if (collection instanceof LazyLoadingSet<?> lazyLoadingSet) {
+            lazyLoadingSet.initialize();
+        }
+    }
+
+    /**
+     * Exécute un travail dans une transaction (propagation REQUIRED, isolation par défaut de la connexion).
+     * @see #inTransaction(Propagation, Isolation, Function)
+     */
+    public <R> R inTransaction(Function<PersistanceContext, R> work) {
+        return inTransaction(Propagation.REQUIRED, Isolation.DEFAULT, work);
+    }
+
+    /**
+     * Variante de {@link #inTransaction(Function)} sans valeur de retour.
+     */
+    public void runInTransaction(Consumer<PersistanceContext> work) {
+        inTransaction(context -> {
+            work.accept(context);
+            return null;
+        });
+    }
+
+    /**
+     * Exécute un travail dans une transaction : toutes ses écritures, ainsi que les modifications enregistrées
+     * dans l'unité de travail, sont validées en un seul commit à la fin du travail, ou toutes annulées
+     * si celui-ci lève une exception.
+     * <p>
+     * Un travail qui rejoint une transaction en cours (REQUIRED, MANDATORY) et échoue marque cette transaction
+     * pour annulation : elle sera annulée à la fin, même si l'exception est interceptée entre-temps.
+     *
+     * @param propagation le comportement si une transaction est déjà en cours
+     * @param isolation le niveau d'isolation, appliqué seulement lorsqu'une transaction est démarrée
+     * @param work le travail, qui reçoit le contexte dans lequel il s'exécute
+     * @return le résultat du travail
+     */
+    public <R> R inTransaction(Propagation propagation, Isolation isolation, Function<PersistanceContext, R> work) {
+        if (closed) {
+            throw new IllegalStateException("Le contexte de persistance est fermé");
+        }
+        if (inTransaction) {
+            if (propagation == Propagation.REQUIRES_NEW) {
+                try (PersistanceContext context = PersistanceContext.open()) {
+                    return context.inTransaction(Propagation.REQUIRED, isolation, work);
+                }
+            }
+            try {
+                return work.apply(this);
+            } catch (RuntimeException | Error e) {
+                rollbackOnly = true;
+                throw e;
+            }
+        }
+        if (propagation == Propagation.MANDATORY) {
+            throw new IllegalStateException("Aucune transaction en cours");
+        }
+        return doInTransaction(isolation, work);
+    }
+
+    public boolean isInTransaction() {
+        return inTransaction;
+    }
+
+    private <R> R doInTransaction(Isolation isolation, Function<PersistanceContext, R> work) {
+        int previousIsolation;
+        try {
+            previousIsolation = connection.getTransactionIsolation();
+            connection.setAutoCommit(false);
+            if (isolation != Isolation.DEFAULT) {
+                connection.setTransactionIsolation(isolation.getLevel());
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur : " + e.getMessage(), e);
+        }
+
+        inTransaction = true;
+        rollbackOnly = false;
+        try {
+            R result = work.apply(this);
+            unitOfWork.commit();
+            if (rollbackOnly) {
+                throw new IllegalStateException("Transaction annulée : une opération imbriquée a échoué");
+            }
+            connection.commit();
+            runAfterCommitActions();
+            return result;
+        } catch (SQLException e) {
+            rollback();
+            throw new RuntimeException("Erreur : " + e.getMessage(), e);
+        } catch (RuntimeException | Error e) {
+            rollback();
+            throw e;
+        } finally {
+            inTransaction = false;
+            rollbackOnly = false;
             try {
-                connection.close();
+                connection.setAutoCommit(true);
+                connection.setTransactionIsolation(previousIsolation);
             } catch (SQLException e) {
-                System.err.println("Erreur lors de la fermeture de la connexion : " + e.getMessage());
+                logger.error("Impossible de restaurer l'état de la connexion : {}", e.getMessage());
             }
         }
     }
 
+    /**
+     * Annule la transaction. Les objets chargés ou écrits pendant celle-ci ne reflètent plus la base :
+     * l'identity map et l'unité de travail sont vidées, et les actions en attente du commit abandonnées.
+     */
+    private void rollback() {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            logger.error("Erreur lors de l'annulation de la transaction : {}", e.getMessage());
+        }
+        discardAfterCommitActions();
+        unitOfWork.clear();
+        identityMap.clear();
+    }
+
+    /**
+     * @return vrai si une transaction est ouverte sur la connexion, par {@link #inTransaction} ou par l'unité de travail
+     */
+    boolean hasOpenTransaction() {
+        if (inTransaction) {
+            return true;
+        }
+        try {
+            return !connection.getAutoCommit();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Exécute une action qui rend une écriture visible des autres contextes (cache de second niveau, index
+     * en mémoire) : tout de suite si aucune transaction n'est ouverte, sinon après son commit. Les autres
+     * contextes ne voient ainsi jamais une écriture qui sera annulée, ni ne remettent en cache une ligne
+     * que le commit va rendre périmée.
+     */
+    void afterCommit(Runnable action) {
+        if (hasOpenTransaction()) {
+            afterCommitActions.add(action);
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Exécute, dans leur ordre d'enregistrement, les actions en attente, une fois la transaction validée.
+     * L'échec de l'une n'empêche pas les suivantes : les écritures sont déjà validées.
+     */
+    void runAfterCommitActions() {
+        List<Runnable> actions = List.copyOf(afterCommitActions);
+        afterCommitActions.clear();
+        for (Runnable action : actions) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                logger.error("Erreur après le commit : {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    void discardAfterCommitActions() {
+        afterCommitActions.clear();
+    }
+
+    /**
+     * Écrit en une transaction toutes les modifications enregistrées dans l'unité de travail.
+     */
+    public void commit() {
+        unitOfWork.commit();
+    }
+
+    public UnitOfWork getUnitOfWork() {
+        return unitOfWork;
+    }
+
+    Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * @return le mapper qui gère le type de l'objet
+     */
+    AbstractMapper<?> mapperFor(IBusinessObject object) {
+        return switch (object) {
+            case City city -> cityMapper;
+            case RestaurantType type -> restaurantTypeMapper;
+            case Restaurant restaurant -> restaurantMapper;
+            case EvaluationCriteria criteria -> evaluationCriteriaMapper;
+            case CompleteEvaluation evaluation -> completeEvaluationMapper;
+            case BasicEvaluation evaluation -> basicEvaluationMapper;
+            case Grade grade -> gradeMapper;
+            default -> throw new IllegalArgumentException("Aucun mapper pour " + object.getClass().getSimpleName());
+        };
+    }
+
+    public IdentityMap getIdentityMap() {
+        return identityMap;
+    }
+
     public BasicEvaluationMapper getBasicEvaluationMapper() {
         return basicEvaluationMapper;
     }
@@ -64,6 +371,11 @@ public class PersistanceContext implements AutoCloseable {
     public GradeMapper getGradeMapper() {
         return gradeMapper;
     }
+
+    public RatingSummaryMapper getRatingSummaryMapper() {
+        return ratingSummaryMapper;
+    }
+
     public RestaurantMapper getRestaurantMapper() {
         return restaurantMapper;
     }
@@ -0,0 +1,22 @@
+package ch.hearc.ig.guideresto.persistence;
+
+/**
+ * Instantané des métriques d'un {@link ConnectionPool}.
+ *
+ * @param active          nombre de connexions actuellement empruntées
+ * @param idle            nombre de connexions ouvertes en attente dans le pool
+ * @param maxSize         taille maximale du pool
+ * @param borrowCount     nombre total d'emprunts réussis
+ * @param totalWaitMillis temps total passé à attendre une connexion
+ * @param timeouts        nombre d'emprunts abandonnés faute de connexion disponible
+ */
+public record PoolMetrics(int active, int idle, int maxSize, long borrowCount, long totalWaitMillis, long timeouts) {
+
+    /**
+     * Temps d'attente moyen par emprunt, en millisecondes.
+     */
+    public double averageWaitMillis() {
+        long attempts = borrowCount + timeouts;
+        return attempts == 0 ? 0 : (double) totalWaitMillis / attempts;
+    }
+}
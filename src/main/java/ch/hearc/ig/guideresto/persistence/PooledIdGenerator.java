@@ -0,0 +1,175 @@
+package ch.hearc.ig.guideresto.persistence;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Générateur d'identifiants qui réserve des blocs de valeurs par séquence et les distribue ensuite depuis la mémoire.
+ * <ul>
+ *     <li>si la séquence est définie avec {@code INCREMENT BY n} (n &gt; 1), chaque {@code NEXTVAL} réserve
+ *     les n valeurs {@code [v, v + n - 1]} (schéma hi/lo « pooled ») ;</li>
+ *     <li>sinon, {@code blockSize} valeurs sont tirées en une seule requête.</li>
+ * </ul>
+ * Dans les deux cas, les insertions qui passent encore par {@code NEXTVAL} (triggers, scripts) restent compatibles :
+ * elles ne peuvent pas obtenir une valeur déjà réservée. Les valeurs non utilisées à l'arrêt de l'application sont perdues.
+ * <p>
+ * Thread-safe : chaque séquence a son propre allocateur synchronisé, partagé par tous les contextes.
+ */
+public class PooledIdGenerator implements IdGenerator {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    private static final Pattern SEQUENCE_NAME = Pattern.compile("[A-Z][A-Z0-9_$#]*");
+
+    private final int blockSize;
+    private final Map<String, Allocator> allocators = new ConcurrentHashMap<>();
+
+    public PooledIdGenerator(int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("La taille de bloc doit être positive");
+        }
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public int nextId(Connection connection, String sequenceName) throws SQLException {
+        return nextIds(connection, sequenceName, 1).get(0);
+    }
+
+    @Override
+    public List<Integer> nextIds(Connection connection, String sequenceName, int count) throws SQLException {
+        if (count <= 0) {
+            return new ArrayList<>();
+        }
+        return allocator(connection, sequenceName).take(connection, count);
+    }
+
+    @Override
+    public void validate(Connection connection, Collection<String> sequenceNames) throws SQLException {
+        for (String sequenceName : sequenceNames) {
+            allocator(connection, sequenceName);
+        }
+    }
+
+    /**
+     * Retourne l'allocateur d'une séquence, en vérifiant lors du premier accès qu'elle existe dans le schéma.
+     */
+    private Allocator allocator(Connection connection, String sequenceName) throws SQLException {
+        String name = sequenceName.toUpperCase(Locale.ROOT);
+        Allocator allocator = allocators.get(name);
+        if (allocator != null) {
+            return allocator;
+        }
+        if (!SEQUENCE_NAME.matcher(name).matches()) {
+            throw new SQLException("Nom de séquence invalide : " + sequenceName);
+        }
+
+        int increment = readIncrement(connection, name);
+        boolean oracle = connection.getMetaData().getDatabaseProductName().toUpperCase(Locale.ROOT).contains("ORACLE");
+        logger.debug("Séquence {} : INCREMENT BY {}", name, increment);
+
+        Allocator existing = allocators.putIfAbsent(name, new Allocator(name, increment, oracle));
+        return existing != null ? existing : allocators.get(name);
+    }
+
+    private int readIncrement(Connection connection, String name) throws SQLException {
+        try {
+            return readIncrement(connection, "SELECT INCREMENT_BY FROM USER_SEQUENCES WHERE SEQUENCE_NAME = ?", name);
+        } catch (SQLException ex) {
+            // Pas de dictionnaire Oracle (H2 par exemple) : vue standard INFORMATION_SCHEMA
+            return readIncrement(connection, "SELECT INCREMENT FROM INFORMATION_SCHEMA.SEQUENCES WHERE UPPER(SEQUENCE_NAME) = ?", name);
+        }
+    }
+
+    private int readIncrement(Connection connection, String query, String name) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            stmt.setString(1, name);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("Séquence introuvable dans le schéma : " + name);
+                }
+                return Math.max(1, rs.getInt(1));
+            }
+        }
+    }
+
+    /**
+     * Valeurs réservées pour une séquence, sous forme d'intervalles [début, fin[.
+     */
+    private class Allocator {
+
+        private final String sequenceName;
+        private final int increment;
+        private final String query;
+        private final Deque<int[]> ranges = new ArrayDeque<>();
+        private int available;
+
+        private Allocator(String sequenceName, int increment, boolean oracle) {
+            this.sequenceName = sequenceName;
+            this.increment = increment;
+            this.query = oracle
+                    ? "SELECT " + sequenceName + ".NEXTVAL FROM DUAL CONNECT BY LEVEL <= ?"
+                    : "SELECT NEXT VALUE FOR " + sequenceName + " FROM SYSTEM_RANGE(1, ?)";
+        }
+
+        private synchronized List<Integer> take(Connection connection, int count) throws SQLException {
+            if (available < count) {
+                reserve(connection, count - available);
+            }
+
+            List<Integer> ids = new ArrayList<>(count);
+            while (ids.size() < count) {
+                int[] range = ranges.peekFirst();
+                ids.add(range[0]++);
+                if (range[0] == range[1]) {
+                    ranges.removeFirst();
+                }
+            }
+            available -= count;
+            return ids;
+        }
+
+        /**
+         * Réserve au moins {@code missing} valeurs en un seul aller-retour.
+         */
+        private void reserve(Connection connection, int missing) throws SQLException {
+            int calls = increment > 1 ? (missing + increment - 1) / increment : Math.max(missing, blockSize);
+
+            try (PreparedStatement stmt = connection.prepareStatement(query)) {
+                stmt.setInt(1, calls);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        add(rs.getInt(1));
+                    }
+                }
+            }
+            if (available < missing) {
+                throw new SQLException("Impossible de réserver " + missing + " valeurs de " + sequenceName);
+            }
+        }
+
+        private void add(int value) {
+            int[] last = ranges.peekLast();
+            if (last != null && last[1] == value) {
+                last[1] += increment;
+            } else {
+                ranges.addLast(new int[]{value, value + increment});
+            }
+            available += increment;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package ch.hearc.ig.guideresto.persistence;
+
+/**
+ * Comportement de {@link PersistanceContext#inTransaction(Propagation, Isolation, java.util.function.Function)}
+ * lorsqu'une transaction est déjà en cours sur le contexte.
+ */
+public enum Propagation {
+    /**
+     * Rejoint la transaction en cours, ou en démarre une s'il n'y en a pas.
+     */
+    REQUIRED,
+    /**
+     * Exige une transaction en cours ; échoue s'il n'y en a pas.
+     */
+    MANDATORY,
+    /**
+     * Démarre toujours une transaction indépendante. Si une transaction est déjà en cours, le travail est exécuté
+     * dans un nouveau contexte, avec sa propre connexion et sa propre identity map.
+     */
+    REQUIRES_NEW
+}
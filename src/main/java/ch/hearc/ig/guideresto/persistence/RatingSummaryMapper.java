@@ -0,0 +1,390 @@
+package ch.hearc.ig.guideresto.persistence;
+
+import ch.hearc.ig.guideresto.business.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maintient la table matérialisée RESTAURANT_RATING_SUMMARY : pour chaque restaurant, une ligne par critère
+ * (somme, somme des carrés, nombre, min et max des notes) et une ligne de totaux ({@code FK_CRIT = 0})
+ * qui porte aussi le nombre de likes et de dislikes.
+ * <p>
+ * Les mappers d'évaluations la mettent à jour sur la même connexion que leurs propres écritures, donc dans
+ * la même transaction lorsqu'ils sont appelés dans {@link PersistanceContext#inTransaction}. Les ajouts sont
+ * incrémentaux (MERGE) ; les modifications et suppressions de notes recalculent les lignes du restaurant,
+ * car le minimum et le maximum ne peuvent pas être décrémentés.
+ * <p>
+ * Deux transactions qui créent en même temps la même ligne se heurtent à la clé primaire : le MERGE de la seconde
+ * échoue (ORA-00001) une fois la première validée. Les MERGE sont alors annulés jusqu'à un point de sauvegarde
+ * et rejoués ; la ligne existe désormais et ils la mettent à jour.
+ */
+public class RatingSummaryMapper {
+
+    /**
+     * Pseudo-critère de la ligne qui totalise toutes les notes et les appréciations d'un restaurant.
+     */
+    static final int ALL_CRITERIA = 0;
+
+    private static final int IN_LIST_CHUNK_SIZE = 1000;
+
+    /**
+     * ORA-00001 (violation de contrainte unique) et son équivalent H2, 23505.
+     */
+    private static final Set<Integer> UNIQUE_VIOLATION_ERRORS = Set.of(1, 23505);
+
+    private static final int MAX_MERGE_ATTEMPTS = 3;
+
+    /**
+     * Lie les paramètres d'un lot de MERGE sur la requête préparée.
+     */
+    @FunctionalInterface
+    private interface MergeBatch {
+        void bind(PreparedStatement ps) throws SQLException;
+    }
+
+    private static final String MERGE_QUERY = """
+            MERGE INTO RESTAURANT_RATING_SUMMARY s
+            USING (SELECT CAST(? AS NUMBER(10)) AS FK_REST, CAST(? AS NUMBER(10)) AS FK_CRIT,
+                          CAST(? AS NUMBER(19)) AS SOMME_NOTES, CAST(? AS NUMBER(19)) AS SOMME_CARRES,
+                          CAST(? AS NUMBER(19)) AS NB_NOTES, CAST(? AS NUMBER(3)) AS NOTE_MIN, CAST(? AS NUMBER(3)) AS NOTE_MAX,
+                          CAST(? AS NUMBER(19)) AS NB_LIKES, CAST(? AS NUMBER(19)) AS NB_DISLIKES FROM DUAL) d
+            ON (s.FK_REST = d.FK_REST AND s.FK_CRIT = d.FK_CRIT)
+            WHEN MATCHED THEN UPDATE SET
+                s.SOMME_NOTES = s.SOMME_NOTES + d.SOMME_NOTES,
+                s.SOMME_CARRES = s.SOMME_CARRES + d.SOMME_CARRES,
+                s.NB_NOTES = s.NB_NOTES + d.NB_NOTES,
+                s.NOTE_MIN = LEAST(NVL(s.NOTE_MIN, d.NOTE_MIN), NVL(d.NOTE_MIN, s.NOTE_MIN)),
+                s.NOTE_MAX = GREATEST(NVL(s.NOTE_MAX, d.NOTE_MAX), NVL(d.NOTE_MAX, s.NOTE_MAX)),
+                s.NB_LIKES = s.NB_LIKES + d.NB_LIKES,
+                s.NB_DISLIKES = s.NB_DISLIKES + d.NB_DISLIKES
+            WHEN NOT MATCHED THEN
+                INSERT (FK_REST, FK_CRIT, SOMME_NOTES, SOMME_CARRES, NB_NOTES, NOTE_MIN, NOTE_MAX, NB_LIKES, NB_DISLIKES)
+                VALUES (d.FK_REST, d.FK_CRIT, d.SOMME_NOTES, d.SOMME_CARRES, d.NB_NOTES, d.NOTE_MIN, d.NOTE_MAX, d.NB_LIKES, d.NB_DISLIKES)
+            """;
+
+    private static final String DELETE_RANGE_QUERY =
+            "DELETE FROM RESTAURANT_RATING_SUMMARY WHERE FK_REST >= ? AND FK_REST < ?";
+
+    private static final String INSERT_CRITERIA_RANGE_QUERY = """
+            INSERT INTO RESTAURANT_RATING_SUMMARY (FK_REST, FK_CRIT, SOMME_NOTES, SOMME_CARRES, NB_NOTES, NOTE_MIN, NOTE_MAX, NB_LIKES, NB_DISLIKES)
+            SELECT c.FK_REST, n.FK_CRIT, SUM(n.NOTE), SUM(n.NOTE * n.NOTE), COUNT(*), MIN(n.NOTE), MAX(n.NOTE), 0, 0
+            FROM NOTES n
+            JOIN COMMENTAIRES c ON n.FK_COMM = c.NUMERO
+            WHERE c.FK_REST >= ? AND c.FK_REST < ?
+            GROUP BY c.FK_REST, n.FK_CRIT
+            """;
+
+    private static final String INSERT_TOTALS_RANGE_QUERY = """
+            INSERT INTO RESTAURANT_RATING_SUMMARY (FK_REST, FK_CRIT, SOMME_NOTES, SOMME_CARRES, NB_NOTES, NOTE_MIN, NOTE_MAX, NB_LIKES, NB_DISLIKES)
+            SELECT r.NUMERO, 0, NVL(g.SOMME, 0), NVL(g.SOMME_CARRES, 0), NVL(g.NB_NOTES, 0), g.NOTE_MIN, g.NOTE_MAX,
+                   NVL(l.NB_LIKES, 0), NVL(l.NB_DISLIKES, 0)
+            FROM RESTAURANTS r
+            LEFT JOIN (SELECT c.FK_REST, SUM(n.NOTE) AS SOMME, SUM(n.NOTE * n.NOTE) AS SOMME_CARRES, COUNT(*) AS NB_NOTES,
+                              MIN(n.NOTE) AS NOTE_MIN, MAX(n.NOTE) AS NOTE_MAX
+                       FROM NOTES n
+                       JOIN COMMENTAIRES c ON n.FK_COMM = c.NUMERO
+                       WHERE c.FK_REST >= ? AND c.FK_REST < ?
+                       GROUP BY c.FK_REST) g ON g.FK_REST = r.NUMERO
+            LEFT JOIN (SELECT FK_REST,
+                              SUM(CASE WHEN APPRECIATION = 'Y' THEN 1 ELSE 0 END) AS NB_LIKES,
+                              SUM(CASE WHEN APPRECIATION = 'N' THEN 1 ELSE 0 END) AS NB_DISLIKES
+                       FROM LIKES
+                       WHERE FK_REST >= ? AND FK_REST < ?
+                       GROUP BY FK_REST) l ON l.FK_REST = r.NUMERO
+            WHERE r.NUMERO >= ? AND r.NUMERO < ?
+            """;
+
+    private final Connection connection;
+    private EvaluationCriteriaMapper evaluationCriteriaMapper;
+
+    public RatingSummaryMapper(Connection connection) {
+        this.connection = connection;
+    }
+
+    public void setEvaluationCriteriaMapper(EvaluationCriteriaMapper evaluationCriteriaMapper) {
+        this.evaluationCriteriaMapper = evaluationCriteriaMapper;
+    }
+
+    /**
+     * Ajoute les notes d'une nouvelle évaluation complète : une ligne par critère noté et la ligne de totaux,
+     * en un seul lot.
+     */
+    public void addGrades(int restaurantId, Collection<Grade> grades) {
+        if (grades.isEmpty()) {
+            return;
+        }
+        Map<Integer, RatingStats> byCriteria = new HashMap<>();
+        RatingStats total = RatingStats.EMPTY;
+        for (Grade grade : grades) {
+            int note = grade.getGrade();
+            RatingStats stats = new RatingStats(1, note, (long) note * note, note, note);
+            byCriteria.merge(grade.getCriteria().getId(), stats, RatingStats::plus);
+            total = total.plus(stats);
+        }
+
+        RatingStats totals = total;
+        try {
+            merge(ps -> {
+                for (Map.Entry<Integer, RatingStats> entry : byCriteria.entrySet()) {
+                    bindMerge(ps, restaurantId, entry.getKey(), entry.getValue(), 0, 0);
+                    ps.addBatch();
+                }
+                bindMerge(ps, restaurantId, ALL_CRITERIA, totals, 0, 0);
+                ps.addBatch();
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Ajoute (delta positif) ou retire (delta négatif) une appréciation d'un restaurant.
+     */
+    public void addLike(int restaurantId, boolean like, int delta) {
+        try {
+            merge(ps -> {
+                bindMerge(ps, restaurantId, ALL_CRITERIA, RatingStats.EMPTY, like ? delta : 0, like ? 0 : delta);
+                ps.addBatch();
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Exécute un lot de MERGE dans une transaction, celle en cours ou une transaction ouverte pour l'occasion.
+     * Si une autre transaction a créé entre-temps une des lignes, le lot est annulé jusqu'au point de sauvegarde
+     * pris avant lui, puis rejoué, au plus {@value #MAX_MERGE_ATTEMPTS} fois.
+     */
+    private void merge(MergeBatch batch) throws SQLException {
+        boolean ownTransaction = connection.getAutoCommit();
+        if (ownTransaction) {
+            connection.setAutoCommit(false);
+        }
+        try (PreparedStatement ps = connection.prepareStatement(MERGE_QUERY)) {
+            for (int attempt = 1; ; attempt++) {
+                Savepoint savepoint = connection.setSavepoint();
+                try {
+                    batch.bind(ps);
+                    ps.executeBatch();
+                    break;
+                } catch (SQLException e) {
+                    connection.rollback(savepoint);
+                    ps.clearBatch();
+                    if (attempt >= MAX_MERGE_ATTEMPTS || !isUniqueViolation(e)) {
+                        throw e;
+                    }
+                }
+            }
+            if (ownTransaction) {
+                connection.commit();
+            }
+        } catch (SQLException | RuntimeException e) {
+            if (ownTransaction) {
+                connection.rollback();
+            }
+            throw e;
+        } finally {
+            if (ownTransaction) {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static boolean isUniqueViolation(SQLException e) {
+        for (SQLException current = e; current != null; current = current.getNextException()) {
+            if (UNIQUE_VIOLATION_ERRORS.contains(current.getErrorCode())
+                    || current.getCause() instanceof SQLException cause && UNIQUE_VIOLATION_ERRORS.contains(cause.getErrorCode())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Recalcule toutes les lignes d'un restaurant depuis NOTES et LIKES.
+     */
+    public void refresh(int restaurantId) {
+        try {
+            rebuildRange(restaurantId, restaurantId + 1);
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Recalcule entièrement les lignes des restaurants dont l'identifiant est compris dans [fromId, toId[.
+     * Les restaurants de la plage reçoivent tous une ligne de totaux, même sans note ni appréciation.
+     */
+    public void rebuildRange(int fromId, int toId) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(DELETE_RANGE_QUERY)) {
+            ps.setInt(1, fromId);
+            ps.setInt(2, toId);
+            ps.executeUpdate();
+        }
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_CRITERIA_RANGE_QUERY)) {
+            ps.setInt(1, fromId);
+            ps.setInt(2, toId);
+            ps.executeUpdate();
+        }
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_TOTALS_RANGE_QUERY)) {
+            for (int i = 0; i < 3; i++) {
+                ps.setInt(2 * i + 1, fromId);
+                ps.setInt(2 * i + 2, toId);
+            }
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Statistiques globales d'un restaurant : lecture d'une seule ligne par clé primaire.
+     */
+    public RatingStats findOverall(int restaurantId) {
+        String sql = "SELECT * FROM RESTAURANT_RATING_SUMMARY WHERE FK_REST = ? AND FK_CRIT = " + ALL_CRITERIA;
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setInt(1, restaurantId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? readStats(rs) : RatingStats.EMPTY;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Likes et dislikes d'un restaurant : lecture d'une seule ligne par clé primaire.
+     */
+    public LikeStats findLikeStats(int restaurantId) {
+        String sql = "SELECT NB_LIKES, NB_DISLIKES FROM RESTAURANT_RATING_SUMMARY WHERE FK_REST = ? AND FK_CRIT = " + ALL_CRITERIA;
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setInt(1, restaurantId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next()
+                        ? new LikeStats(restaurantId, rs.getLong("NB_LIKES"), rs.getLong("NB_DISLIKES"))
+                        : new LikeStats(restaurantId, 0, 0);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Likes et dislikes de plusieurs restaurants, lus sur leur ligne de totaux, en une requête par tranche
+     * de {@value #IN_LIST_CHUNK_SIZE} identifiants.
+     * @return les compteurs par identifiant de restaurant (une entrée, éventuellement à zéro, par identifiant demandé)
+     */
+    public Map<Integer, LikeStats> findLikeStatsByRestaurantIds(Collection<Integer> restaurantIds) {
+        Map<Integer, LikeStats> stats = new HashMap<>();
+        for (Integer restaurantId : restaurantIds) {
+            stats.put(restaurantId, new LikeStats(restaurantId, 0, 0));
+        }
+
+        List<Integer> ids = new ArrayList<>(stats.keySet());
+        for (int from = 0; from < ids.size(); from += IN_LIST_CHUNK_SIZE) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + IN_LIST_CHUNK_SIZE, ids.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            String sql = "SELECT FK_REST, NB_LIKES, NB_DISLIKES FROM RESTAURANT_RATING_SUMMARY WHERE FK_CRIT = "
+                    + ALL_CRITERIA + " AND FK_REST IN (" + placeholders + ")";
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    ps.setInt(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        int restaurantId = rs.getInt("FK_REST");
+                        stats.put(restaurantId, new LikeStats(restaurantId, rs.getLong("NB_LIKES"), rs.getLong("NB_DISLIKES")));
+                    }
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException("Erreur : " + e.getMessage());
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Statistiques globales et par critère d'un restaurant, lues par préfixe de clé primaire.
+     */
+    public RestaurantRatings findRatings(int restaurantId) {
+        return findRatingsByRestaurantIds(List.of(restaurantId)).get(restaurantId);
+    }
+
+    /**
+     * Statistiques de plusieurs restaurants, en une requête par tranche de {@value #IN_LIST_CHUNK_SIZE} identifiants.
+     * @return les statistiques par identifiant de restaurant (une entrée, éventuellement vide, par identifiant demandé)
+     */
+    public Map<Integer, RestaurantRatings> findRatingsByRestaurantIds(Collection<Integer> restaurantIds) {
+        Map<Integer, RatingStats> overall = new HashMap<>();
+        Map<Integer, Map<EvaluationCriteria, RatingStats>> byCriteria = new HashMap<>();
+        for (Integer restaurantId : restaurantIds) {
+            byCriteria.put(restaurantId, new HashMap<>());
+        }
+
+        List<Integer> ids = new ArrayList<>(byCriteria.keySet());
+        for (int from = 0; from < ids.size(); from += IN_LIST_CHUNK_SIZE) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + IN_LIST_CHUNK_SIZE, ids.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            String sql = "SELECT * FROM RESTAURANT_RATING_SUMMARY WHERE FK_REST IN (" + placeholders + ")";
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    ps.setInt(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        int restaurantId = rs.getInt("FK_REST");
+                        int criteriaId = rs.getInt("FK_CRIT");
+                        if (criteriaId == ALL_CRITERIA) {
+                            overall.put(restaurantId, readStats(rs));
+                        } else {
+                            byCriteria.get(restaurantId).put(evaluationCriteriaMapper.findById(criteriaId), readStats(rs));
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException("Erreur : " + e.getMessage());
+            }
+        }
+
+        Map<Integer, RestaurantRatings> ratings = new HashMap<>();
+        for (Map.Entry<Integer, Map<EvaluationCriteria, RatingStats>> entry : byCriteria.entrySet()) {
+            ratings.put(entry.getKey(), new RestaurantRatings(entry.getKey(),
+                    overall.getOrDefault(entry.getKey(), RatingStats.EMPTY), Map.copyOf(entry.getValue())));
+        }
+        return ratings;
+    }
+
+    private static RatingStats readStats(ResultSet rs) throws SQLException {
+        return new RatingStats(rs.getLong("NB_NOTES"), rs.getLong("SOMME_NOTES"), rs.getLong("SOMME_CARRES"),
+                rs.getInt("NOTE_MIN"), rs.getInt("NOTE_MAX"));
+    }
+
+    private static void bindMerge(PreparedStatement ps, int restaurantId, int criteriaId, RatingStats stats,
+                                  long likes, long dislikes) throws SQLException {
+        ps.setInt(1, restaurantId);
+        ps.setInt(2, criteriaId);
+        ps.setLong(3, stats.sum());
+        ps.setLong(4, stats.sumOfSquares());
+        ps.setLong(5, stats.count());
+        if (stats.count() == 0) {
+            ps.setNull(6, Types.INTEGER);
+            ps.setNull(7, Types.INTEGER);
+        } else {
+            ps.setInt(6, stats.min());
+            ps.setInt(7, stats.max());
+        }
+        ps.setLong(8, likes);
+        ps.setLong(9, dislikes);
+    }
+}
@@ -0,0 +1,280 @@
+package ch.hearc.ig.guideresto.persistence;
+
+import ch.hearc.ig.guideresto.business.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Charge un ensemble de restaurants avec leur ville et leur type, et si demandé tout leur graphe
+ * (évaluations complètes, notes et critères), en un nombre constant de requêtes, quel que soit le nombre de restaurants :
+ * <ol>
+ *     <li>les restaurants, joints à leur ville et à leur type ;</li>
+ *     <li>les commentaires de ces restaurants ;</li>
+ *     <li>les notes de ces commentaires, jointes à leur critère.</li>
+ * </ol>
+ * Les trois requêtes partagent le même filtre, exprimé sur les alias {@code r} (RESTAURANTS) et {@code v} (VILLES).
+ * Le graphe est ensuite reconstitué en mémoire, en réutilisant les instances déjà présentes dans l'identity map.
+ */
+class RestaurantGraphLoader {
+
+    private static final String RESTAURANTS_QUERY = """
+            SELECT r.NUMERO, r.NOM, r.ADRESSE, r.DESCRIPTION, r.SITE_WEB, r.FK_TYPE, r.FK_VILL,
+                   v.CODE_POSTAL, v.NOM_VILLE, t.LIBELLE, t.DESCRIPTION AS DESCRIPTION_TYPE
+            FROM RESTAURANTS r
+            JOIN VILLES v ON r.FK_VILL = v.NUMERO
+            JOIN TYPES_GASTRONOMIQUES t ON r.FK_TYPE = t.NUMERO
+            WHERE %s
+            """;
+
+    private static final String EVALUATIONS_QUERY = """
+            SELECT c.NUMERO, c.DATE_EVAL, c.COMMENTAIRE, c.NOM_UTILISATEUR, c.FK_REST
+            FROM COMMENTAIRES c
+            JOIN RESTAURANTS r ON c.FK_REST = r.NUMERO
+            JOIN VILLES v ON r.FK_VILL = v.NUMERO
+            WHERE %s
+            """;
+
+    private static final String GRADES_QUERY = """
+            SELECT n.NUMERO, n.NOTE, n.FK_COMM, n.FK_CRIT, ce.NOM AS NOM_CRITERE, ce.DESCRIPTION AS DESCRIPTION_CRITERE
+            FROM NOTES n
+            JOIN CRITERES_EVALUATION ce ON n.FK_CRIT = ce.NUMERO
+            JOIN COMMENTAIRES c ON n.FK_COMM = c.NUMERO
+            JOIN RESTAURANTS r ON c.FK_REST = r.NUMERO
+            JOIN VILLES v ON r.FK_VILL = v.NUMERO
+            WHERE %s
+            """;
+
+    private final Connection connection;
+    private final IdentityMap identityMap;
+    private final RestaurantMapper restaurantMapper;
+
+    RestaurantGraphLoader(Connection connection, IdentityMap identityMap, RestaurantMapper restaurantMapper) {
+        this.connection = connection;
+        this.identityMap = identityMap;
+        this.restaurantMapper = restaurantMapper;
+    }
+
+    /**
+     * Charge les restaurants correspondant au filtre.
+     * @param filter condition SQL sur les alias {@code r} et {@code v}, ou null pour tous les restaurants
+     * @param fetchEvaluations true pour charger aussi les évaluations, notes et critères ; sinon seule la première requête est exécutée
+     * @param parameters les valeurs des paramètres du filtre
+     * @return les restaurants hydratés
+     */
+    Set<Restaurant> load(String filter, boolean fetchEvaluations, Object... parameters) throws SQLException {
+        String where = filter == null ? "1 = 1" : filter;
+
+        Map<Integer, Restaurant> restaurants = new LinkedHashMap<>();
+
+        try (PreparedStatement ps = prepare(RESTAURANTS_QUERY.formatted(where), parameters);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                Restaurant restaurant = restaurant(rs, fetchEvaluations);
+                restaurants.put(restaurant.getId(), restaurant);
+            }
+        }
+
+        if (!fetchEvaluations || restaurants.isEmpty()) {
+            return new HashSet<>(restaurants.values());
+        }
+
+        Map<Integer, CompleteEvaluation> evaluations = new HashMap<>();
+        try (PreparedStatement ps = prepare(EVALUATIONS_QUERY.formatted(where), parameters);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                Restaurant restaurant = restaurants.get(rs.getInt("FK_REST"));
+                CompleteEvaluation evaluation = identityMap.get(CompleteEvaluation.class, rs.getInt("NUMERO"));
+                if (evaluation == null) {
+                    evaluation = new CompleteEvaluation(rs.getInt("NUMERO"), rs.getDate("DATE_EVAL"),
+                            restaurant, rs.getString("COMMENTAIRE"), rs.getString("NOM_UTILISATEUR"));
+                    identityMap.put(CompleteEvaluation.class, evaluation.getId(), evaluation);
+                    restaurantMapper.registerClean(evaluation);
+                }
+                restaurant.getEvaluations().add(evaluation);
+                evaluations.put(evaluation.getId(), evaluation);
+            }
+        }
+
+        if (!evaluations.isEmpty()) {
+            try (PreparedStatement ps = prepare(GRADES_QUERY.formatted(where), parameters);
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    CompleteEvaluation evaluation = evaluations.get(rs.getInt("FK_COMM"));
+                    Grade grade = identityMap.get(Grade.class, rs.getInt("NUMERO"));
+                    if (grade == null) {
+                        grade = new Grade(rs.getInt("NUMERO"), rs.getInt("NOTE"), evaluation, criterion(rs));
+                        identityMap.put(Grade.class, grade.getId(), grade);
+                        restaurantMapper.registerClean(grade);
+                    }
+                    evaluation.getGrades().add(grade);
+                }
+            }
+        }
+
+        return new HashSet<>(restaurants.values());
+    }
+
+    /**
+     * Charge tous les restaurants, sans leurs évaluations, en lisant des plages de NUMERO en parallèle
+     * sur plusieurs connexions ; les lignes sont hydratées ici, dans l'identity map de ce chargeur.
+     * @param scan la lecture parallèle à utiliser
+     * @return les restaurants hydratés
+     */
+    Set<Restaurant> loadParallel(ParallelScan scan) {
+        Set<Restaurant> restaurants = new HashSet<>();
+        scan.scan("RESTAURANTS", RESTAURANTS_QUERY, "r.NUMERO", row -> restaurants.add(restaurant(row)));
+        return restaurants;
+    }
+
+    /**
+     * Charge une page de restaurants, sans leurs évaluations, en une seule requête bornée.
+     * @param filter condition SQL sur les alias {@code r} et {@code v}, incluant la condition de reprise après la page précédente
+     * @param orderBy l'ordre de tri, qui doit être total pour que la pagination soit stable
+     * @param limit le nombre maximal de lignes lues
+     * @param parameters les valeurs des paramètres du filtre
+     * @return les restaurants, dans l'ordre du tri
+     */
+    List<Restaurant> loadPage(String filter, String orderBy, int limit, Object... parameters) throws SQLException {
+        String sql = RESTAURANTS_QUERY.formatted(filter) + "ORDER BY " + orderBy + " FETCH FIRST " + limit + " ROWS ONLY";
+
+        List<Restaurant> restaurants = new ArrayList<>(limit);
+        try (PreparedStatement ps = prepare(sql, parameters)) {
+            ps.setFetchSize(limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    restaurants.add(restaurant(rs, false));
+                }
+            }
+        }
+        return restaurants;
+    }
+
+    /**
+     * Parcourt les restaurants correspondant au filtre sans les charger tous en mémoire : le curseur est lu
+     * en avant seulement, par paquets de {@code fetchSize} lignes. Les restaurants déjà présents dans l'identity map
+     * sont réutilisés, mais les autres n'y sont pas enregistrés, pour que la mémoire reste constante sur un grand parcours.
+     * Leurs villes et types, peu nombreux, sont partagés via l'identity map.
+     * @param filter condition SQL sur les alias {@code r} et {@code v}, ou null pour tous les restaurants
+     * @param fetchSize le nombre de lignes lues à chaque aller-retour
+     * @param parameters les valeurs des paramètres du filtre
+     * @return un stream à fermer après usage
+     */
+    Stream<Restaurant> stream(String filter, int fetchSize, Object... parameters) throws SQLException {
+        String where = filter == null ? "1 = 1" : filter;
+        PreparedStatement ps = prepare(RESTAURANTS_QUERY.formatted(where), parameters);
+        ps.setFetchSize(fetchSize);
+        return ResultSetStream.of(ps, rs -> {
+            Restaurant restaurant = identityMap.peek(Restaurant.class, rs.getInt("NUMERO"));
+            if (restaurant == null) {
+                restaurant = new Restaurant(rs.getInt("NUMERO"), rs.getString("NOM"), rs.getString("DESCRIPTION"),
+                        rs.getString("SITE_WEB"), rs.getString("ADRESSE"), city(rs), type(rs));
+                restaurant.setEvaluations(restaurantMapper.lazyEvaluations(restaurant));
+            }
+            return restaurant;
+        });
+    }
+
+    private Restaurant restaurant(ResultSet rs, boolean fetchEvaluations) throws SQLException {
+        Restaurant restaurant = identityMap.get(Restaurant.class, rs.getInt("NUMERO"));
+        if (restaurant == null) {
+            restaurant = new Restaurant(rs.getInt("NUMERO"), rs.getString("NOM"), rs.getString("DESCRIPTION"),
+                    rs.getString("SITE_WEB"), rs.getString("ADRESSE"), city(rs), type(rs));
+            restaurant.setEvaluations(fetchEvaluations ? new HashSet<>() : restaurantMapper.lazyEvaluations(restaurant));
+            identityMap.put(Restaurant.class, restaurant.getId(), restaurant);
+            restaurantMapper.registerClean(restaurant);
+        } else if (fetchEvaluations) {
+            restaurant.setEvaluations(new HashSet<>());
+        }
+        return restaurant;
+    }
+
+    private Restaurant restaurant(CachedRow row) {
+        Restaurant restaurant = identityMap.get(Restaurant.class, row.getInt("NUMERO"));
+        if (restaurant == null) {
+            restaurant = new Restaurant(row.getInt("NUMERO"), row.getString("NOM"), row.getString("DESCRIPTION"),
+                    row.getString("SITE_WEB"), row.getString("ADRESSE"), city(row), type(row));
+            restaurant.setEvaluations(restaurantMapper.lazyEvaluations(restaurant));
+            identityMap.put(Restaurant.class, restaurant.getId(), restaurant);
+            restaurantMapper.registerClean(restaurant);
+        }
+        return restaurant;
+    }
+
+    private City city(CachedRow row) {
+        City city = identityMap.get(City.class, row.getInt("FK_VILL"));
+        if (city == null) {
+            city = new City(row.getInt("FK_VILL"), row.getString("CODE_POSTAL"), row.getString("NOM_VILLE"));
+            city.setRestaurants(restaurantMapper.lazyRestaurants(city));
+            identityMap.put(City.class, city.getId(), city);
+            restaurantMapper.registerClean(city);
+        }
+        return city;
+    }
+
+    private RestaurantType type(CachedRow row) {
+        RestaurantType type = identityMap.get(RestaurantType.class, row.getInt("FK_TYPE"));
+        if (type == null) {
+            type = new RestaurantType(row.getInt("FK_TYPE"), row.getString("LIBELLE"), row.getString("DESCRIPTION_TYPE"));
+            type.setRestaurants(restaurantMapper.lazyRestaurants(type));
+            identityMap.put(RestaurantType.class, type.getId(), type);
+            restaurantMapper.registerClean(type);
+        }
+        return type;
+    }
+
+    private City city(ResultSet rs) throws SQLException {
+        City city = identityMap.get(City.class, rs.getInt("FK_VILL"));
+        if (city == null) {
+            city = new City(rs.getInt("FK_VILL"), rs.getString("CODE_POSTAL"), rs.getString("NOM_VILLE"));
+            city.setRestaurants(restaurantMapper.lazyRestaurants(city));
+            identityMap.put(City.class, city.getId(), city);
+            restaurantMapper.registerClean(city);
+        }
+        return city;
+    }
+
+    private RestaurantType type(ResultSet rs) throws SQLException {
+        RestaurantType type = identityMap.get(RestaurantType.class, rs.getInt("FK_TYPE"));
+        if (type == null) {
+            type = new RestaurantType(rs.getInt("FK_TYPE"), rs.getString("LIBELLE"), rs.getString("DESCRIPTION_TYPE"));
+            type.setRestaurants(restaurantMapper.lazyRestaurants(type));
+            identityMap.put(RestaurantType.class, type.getId(), type);
+            restaurantMapper.registerClean(type);
+        }
+        return type;
+    }
+
+    private EvaluationCriteria criterion(ResultSet rs) throws SQLException {
+        EvaluationCriteria criterion = identityMap.get(EvaluationCriteria.class, rs.getInt("FK_CRIT"));
+        if (criterion == null) {
+            criterion = new EvaluationCriteria(rs.getInt("FK_CRIT"), rs.getString("NOM_CRITERE"), rs.getString("DESCRIPTION_CRITERE"));
+            identityMap.put(EvaluationCriteria.class, criterion.getId(), criterion);
+            restaurantMapper.registerClean(criterion);
+        }
+        return criterion;
+    }
+
+    private PreparedStatement prepare(String sql, Object... parameters) throws SQLException {
+        PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+            for (int i = 0; i < parameters.length; i++) {
+                ps.setObject(i + 1, parameters[i]);
+            }
+        } catch (SQLException ex) {
+            ps.close();
+            throw ex;
+        }
+        return ps;
+    }
+}
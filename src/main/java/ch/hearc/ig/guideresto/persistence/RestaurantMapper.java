@@ -6,74 +6,94 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 public class RestaurantMapper extends AbstractMapper<Restaurant> {
-    private final Connection connection;
+
+    private static final int IN_LIST_CHUNK_SIZE = 1000;
+
+    private static final String SUMMARY_QUERY = """
+            SELECT r.NUMERO, r.NOM, r.ADRESSE, v.CODE_POSTAL, v.NOM_VILLE
+            FROM RESTAURANTS r
+            JOIN VILLES v ON r.FK_VILL = v.NUMERO
+            WHERE %s
+            """;
+
+    private static final String SUGGESTION_QUERY = """
+            SELECT r.NUMERO, r.NOM, NVL(s.NB_LIKES, 0) AS NB_LIKES
+            FROM RESTAURANTS r
+            LEFT JOIN RESTAURANT_RATING_SUMMARY s ON s.FK_REST = r.NUMERO AND s.FK_CRIT = 0
+            """;
+
+    private static final String SEARCH_ENTRIES_QUERY = """
+            SELECT r.NUMERO, r.NOM, r.FK_VILL, v.NOM_VILLE, v.CODE_POSTAL
+            FROM RESTAURANTS r
+            JOIN VILLES v ON r.FK_VILL = v.NUMERO
+            """;
 
     private RestaurantTypeMapper restaurantTypeMapper;
     private CompleteEvaluationMapper completeEvaluationMapper;
     private CityMapper cityMapper;
     private BasicEvaluationMapper basicEvaluationMapper;
+    private int fetchSize = ConnectionUtils.getStreamFetchSize();
 
-    private Map<Integer, Restaurant> restaurantsCache = new HashMap<>(); //identity map
+    private Restaurant addToCache(CachedRow row) {
+        int id = row.getInt("NUMERO");
+        Restaurant cached = peekCache(id);
+        if (cached != null) {
+            return cached;
+        }
 
-    private Restaurant addToCache(ResultSet rs) throws SQLException {
-        int id = rs.getInt("NUMERO");
-            Restaurant restaurant = new Restaurant();
-            restaurant.setId(id);
-            restaurant.setName(rs.getString("NOM"));
-            restaurant.setDescription(rs.getString("DESCRIPTION"));
-            restaurant.setWebsite(rs.getString("SITE_WEB"));
+        Restaurant restaurant = new Restaurant();
+        restaurant.setId(id);
+        restaurant.setName(row.getString("NOM"));
+        restaurant.setDescription(row.getString("DESCRIPTION"));
+        restaurant.setWebsite(row.getString("SITE_WEB"));
 
-            String adresse = rs.getString("ADRESSE");
-            int cityId = rs.getInt("FK_VILL");
-            City city = cityMapper.findById(cityId);
-            Localisation localisation = new Localisation(adresse, city);
-            restaurant.setAddress(localisation);
+        String adresse = row.getString("ADRESSE");
+        int cityId = row.getInt("FK_VILL");
+        City city = cityMapper.findById(cityId);
+        Localisation localisation = new Localisation(adresse, city);
+        restaurant.setAddress(localisation);
 
-            int typeId = rs.getInt("FK_TYPE");
-            RestaurantType restaurantType = restaurantTypeMapper.findById(typeId);
-            restaurant.setType(restaurantType);
+        int typeId = row.getInt("FK_TYPE");
+        RestaurantType restaurantType = restaurantTypeMapper.findById(typeId);
+        restaurant.setType(restaurantType);
 
-        if (completeEvaluationMapper != null) {
-            Set<CompleteEvaluation> completeEvals = completeEvaluationMapper.findByRestaurant(restaurant);
-            restaurant.getEvaluations().addAll(completeEvals);
-        }
+        restaurant.setEvaluations(lazyEvaluations(restaurant));
 
-            addToCache(restaurant);
+        addToCache(restaurant);
         return restaurant;
     }
 
     public RestaurantMapper(Connection connection) {
-        this.connection = connection;
+        super(connection);
     }
 
 
 
     @Override
     public Restaurant findById(int id) {
-        if (restaurantsCache.containsKey(id)) {
-            return restaurantsCache.get(id);
+        Restaurant cached = findInCache(id);
+        if (cached != null) {
+            return cached;
         }
         String sql= "SELECT * FROM restaurants WHERE numero = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setInt(1, id);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-
-                    Restaurant restaurant = addToCache(rs);
-
-                    Set<CompleteEvaluation> completeEvaluations = completeEvaluationMapper.findByRestaurant(restaurant);
-                    Set<Evaluation> evaluations = new HashSet<>(completeEvaluations);
-                    restaurant.setEvaluations(evaluations);
-
-                    return restaurant;
-                }
-
+        try {
+            CachedRow row = findRowById(sql, id);
+            if (row != null) {
+                return addToCache(row);
             }
         } catch (SQLException ex){
             System.err.println("Erreur : "+ex.getMessage());
@@ -83,137 +103,467 @@ public class RestaurantMapper extends AbstractMapper<Restaurant> {
 
     @Override
     public Set<Restaurant> findAll() {
-        resetCache();
-        Set<Restaurant> restaurantSet = new HashSet<>();
-        String sql = "SELECT * FROM RESTAURANTS";
-        try (PreparedStatement ps = connection.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-
-            while (rs.next()) {
-                Restaurant restaurant = addToCache(rs);
-
-                if (restaurant.getEvaluations() == null) {
-                    Set<CompleteEvaluation> completeEvaluations = completeEvaluationMapper.findByRestaurant(restaurant);
-                    Set<Evaluation> evaluations = new HashSet<>(completeEvaluations);
-                    restaurant.setEvaluations(evaluations);
-                }
-                restaurantSet.add(restaurant);
-            }
+        try {
+            return loadGraph(null, false);
         } catch (SQLException ex) {
             System.err.println("Erreur : "+ex.getMessage());
         }
-        return restaurantSet;
+        return new HashSet<>();
+    }
+
+    /**
+     * Charge tous les restaurants avec leur graphe complet (évaluations, notes, critères)
+     * en un nombre constant de requêtes, plutôt qu'au premier accès à chaque collection.
+     */
+    public Set<Restaurant> findAllWithEvaluations() {
+        try {
+            return loadGraph(null, true);
+        } catch (SQLException ex) {
+            throw new RuntimeException("Erreur : " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Charge tous les restaurants, sans leurs évaluations, en lisant des plages d'identifiants en parallèle
+     * sur plusieurs connexions du pool, par exemple pour remplir l'identity map au démarrage.
+     * @param threads le nombre de connexions utilisées simultanément
+     */
+    public Set<Restaurant> findAllParallel(int threads) {
+        return new RestaurantGraphLoader(connection, getIdentityMap(), this).loadParallel(new ParallelScan(threads));
     }
 
     public Set<Restaurant> findByCity(String cityName) {
-        Set<Restaurant> restaurantSet = new HashSet<>();
-        String sql = """
-        SELECT r.*
-        FROM RESTAURANTS r
-        JOIN VILLES v ON r.FK_VILL = v.NUMERO
-        WHERE LOWER(v.NOM_VILLE) LIKE LOWER(?)
-    """;
+        RestaurantSearchIndex index = searchIndex();
+        if (index != null) {
+            return findByIds(index.searchByCity(cityName));
+        }
+        try {
+            return loadGraph("LOWER(v.NOM_VILLE) LIKE LOWER(?)", false, "%" + cityName + "%");
+        } catch (SQLException ex) {
+            throw new RuntimeException("Erreur : " + ex.getMessage());
+        }
+    }
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, "%" + cityName + "%");
+    public Set<Restaurant> findByCityId(int cityId) {
+        try {
+            return loadGraph("r.FK_VILL = ?", false, cityId);
+        } catch (SQLException ex) {
+            throw new RuntimeException("Erreur lors de la recherche des restaurants pour la ville ID " + ex.getMessage());
+        }
+    }
 
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    Restaurant restaurant = addToCache(rs);
+    public Set<Restaurant> findByType(int typeId) {
+        try {
+            return loadGraph("r.FK_TYPE = ?", false, typeId);
+        } catch (SQLException ex) {
+            throw new RuntimeException("Erreur lors de la recherche des restaurants pour le type ID " + ex.getMessage());
+        }
+    }
+
+    public Set<Restaurant> findByName(String name) {
+        RestaurantSearchIndex index = searchIndex();
+        if (index != null) {
+            return findByIds(index.searchByName(name));
+        }
+        try {
+            return loadGraph("LOWER(r.NOM) LIKE LOWER(?)", false, "%" + name + "%");
+        } catch (SQLException ex) {
+            throw new RuntimeException("Erreur lors de la recherche de restaurants par nom : " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Restaurants portant exactement ce nom, sans tenir compte de la casse, trouvés par l'index sur UPPER(NOM).
+     */
+    public Set<Restaurant> findByExactName(String name) {
+        try {
+            return loadGraph("UPPER(r.NOM) = UPPER(?)", false, name);
+        } catch (SQLException ex) {
+            throw new RuntimeException("Erreur lors de la recherche de restaurants par nom : " + ex.getMessage());
+        }
+    }
 
-                    if (restaurant.getEvaluations() == null) {
-                        Set<CompleteEvaluation> completeEvaluations = completeEvaluationMapper.findByRestaurant(restaurant);
-                        Set<Evaluation> evaluations = new HashSet<>(completeEvaluations);
-                        restaurant.setEvaluations(evaluations);
-                    }
+    /**
+     * Charge des restaurants par clé primaire, en une requête par tranche de {@value #IN_LIST_CHUNK_SIZE} identifiants.
+     */
+    public Set<Restaurant> findByIds(Collection<Integer> ids) {
+        return findByIds(ids.stream().mapToInt(Integer::intValue).toArray());
+    }
 
-                    restaurantSet.add(restaurant);
-                }
+    private Set<Restaurant> findByIds(int[] ids) {
+        Set<Restaurant> restaurants = new HashSet<>();
+        try {
+            for (int from = 0; from < ids.length; from += IN_LIST_CHUNK_SIZE) {
+                Object[] chunk = chunk(ids, from);
+                restaurants.addAll(loadGraph(idFilter(chunk.length), false, chunk));
             }
         } catch (SQLException ex) {
             throw new RuntimeException("Erreur : " + ex.getMessage());
         }
+        return restaurants;
+    }
 
-        return restaurantSet;
+    /**
+     * Construit l'index de recherche en mémoire s'il est activé et pas encore construit,
+     * pour que la première recherche n'en paie pas le coût.
+     */
+    public void buildSearchIndex() {
+        searchIndex();
     }
 
+    /**
+     * @return l'index de recherche, construit au besoin, ou null s'il est désactivé
+     */
+    private RestaurantSearchIndex searchIndex() {
+        RestaurantSearchIndex index = RestaurantSearchIndex.getInstance();
+        if (!index.isEnabled()) {
+            return null;
+        }
+        index.ensureBuilt(this::streamSearchEntries);
+        return index;
+    }
 
-    public Set<Restaurant> findByType(int typeId) {
-        Set<Restaurant> restaurantSet = new HashSet<>();
-        String sql = "SELECT * FROM RESTAURANTS WHERE FK_TYPE = ?";
+    /**
+     * Parcourt en streaming les colonnes indexées de tous les restaurants, sans hydrater d'objets métier.
+     */
+    private Stream<RestaurantSearchIndex.Entry> streamSearchEntries() {
+        try {
+            PreparedStatement ps = connection.prepareStatement(SEARCH_ENTRIES_QUERY,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            return ResultSetStream.of(ps, rs -> new RestaurantSearchIndex.Entry(rs.getInt("NUMERO"), rs.getString("NOM"),
+                    rs.getInt("FK_VILL"), rs.getString("NOM_VILLE"), rs.getString("CODE_POSTAL")));
+        } catch (SQLException ex) {
+            throw new RuntimeException("Erreur : " + ex.getMessage());
+        }
+    }
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setInt(1, typeId);
+    /**
+     * Parcourt en streaming le nom et le nombre de likes de tous les restaurants, pour construire l'autocomplétion.
+     * Le stream doit être fermé après usage.
+     */
+    public Stream<RestaurantSuggestion> streamSuggestions() {
+        try {
+            PreparedStatement ps = connection.prepareStatement(SUGGESTION_QUERY,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            return ResultSetStream.of(ps, rs -> new RestaurantSuggestion(rs.getInt("NUMERO"), rs.getString("NOM"),
+                    rs.getLong("NB_LIKES")));
+        } catch (SQLException ex) {
+            throw new RuntimeException("Erreur : " + ex.getMessage());
+        }
+    }
 
+    /**
+     * Restaurants dont le nom commence par un préfixe, les plus aimés d'abord, lus en base
+     * lorsque l'autocomplétion en mémoire est désactivée.
+     */
+    public List<RestaurantSuggestion> findSuggestions(String prefix, int limit) {
+        String sql = SUGGESTION_QUERY + "WHERE LOWER(r.NOM) LIKE LOWER(?) ORDER BY NB_LIKES DESC, r.NOM, r.NUMERO FETCH FIRST "
+                + limit + " ROWS ONLY";
+        List<RestaurantSuggestion> suggestions = new ArrayList<>();
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setString(1, prefix + "%");
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    Restaurant restaurant = addToCache(rs);
+                    suggestions.add(new RestaurantSuggestion(rs.getInt("NUMERO"), rs.getString("NOM"), rs.getLong("NB_LIKES")));
+                }
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException("Erreur : " + ex.getMessage());
+        }
+        return suggestions;
+    }
 
-                    if (restaurant.getEvaluations() == null) {
-                        Set<CompleteEvaluation> completeEvaluations = completeEvaluationMapper.findByRestaurant(restaurant);
-                        Set<Evaluation> evaluations = new HashSet<>(completeEvaluations);
-                        restaurant.setEvaluations(evaluations);
-                    }
+    private static RestaurantSearchIndex.Entry searchEntry(Restaurant restaurant) {
+        City city = restaurant.getAddress().getCity();
+        return new RestaurantSearchIndex.Entry(restaurant.getId(), restaurant.getName(), city.getId(),
+                city.getCityName(), city.getZipCode());
+    }
 
-                    restaurantSet.add(restaurant);
-                }
+    /**
+     * Condition sur une liste d'identifiants, découpée en plusieurs IN si elle dépasse la limite d'Oracle.
+     */
+    private static String idFilter(int count) {
+        List<String> lists = new ArrayList<>();
+        for (int from = 0; from < count; from += IN_LIST_CHUNK_SIZE) {
+            int size = Math.min(IN_LIST_CHUNK_SIZE, count - from);
+            lists.add("r.NUMERO IN (" + String.join(", ", Collections.nCopies(size, "?")) + ")");
+        }
+        return "(" + String.join(" OR ", lists) + ")";
+    }
+
+    private static Object[] chunk(int[] ids, int from) {
+        return Arrays.stream(ids, from, Math.min(from + IN_LIST_CHUNK_SIZE, ids.length)).boxed().toArray();
+    }
+
+    /**
+     * Charge une page de restaurants, par pagination sur clé : la page reprend après la clé
+     * du dernier restaurant de la page précédente, en une requête bornée quelle que soit sa profondeur.
+     */
+    public Page<Restaurant> findPage(PageRequest request) {
+        return findPage(null, request);
+    }
+
+    public Page<Restaurant> findPageByName(String name, PageRequest request) {
+        RestaurantSearchIndex index = searchIndex();
+        if (index != null) {
+            List<Integer> ids = index.page(index.searchByName(name), request);
+            return ids.isEmpty() ? emptyPage() : findPage(idFilter(ids.size()), request, ids.toArray());
+        }
+        return findPage("LOWER(r.NOM) LIKE LOWER(?)", request, "%" + name + "%");
+    }
+
+    public Page<Restaurant> findPageByCity(String cityName, PageRequest request) {
+        RestaurantSearchIndex index = searchIndex();
+        if (index != null) {
+            List<Integer> ids = index.page(index.searchByCity(cityName), request);
+            return ids.isEmpty() ? emptyPage() : findPage(idFilter(ids.size()), request, ids.toArray());
+        }
+        return findPage("LOWER(v.NOM_VILLE) LIKE LOWER(?)", request, "%" + cityName + "%");
+    }
+
+    private Page<Restaurant> findPage(String filter, PageRequest request, Object... filterParameters) {
+        PageQuery query = pageQuery(filter, request, filterParameters);
+        try {
+            List<Restaurant> restaurants = new RestaurantGraphLoader(connection, getIdentityMap(), this)
+                    .loadPage(query.where(), query.orderBy(), request.size() + 1, query.parameters());
+            return toPage(restaurants, request, Restaurant::getId, Restaurant::getName);
+        } catch (SQLException ex) {
+            throw new RuntimeException("Erreur lors du chargement d'une page de restaurants : " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Condition, tri et paramètres d'une requête paginée par clé.
+     */
+    private record PageQuery(String where, String orderBy, Object[] parameters) {
+    }
+
+    /**
+     * Complète un filtre avec la condition de reprise après la page précédente. Le tri et la comparaison
+     * des noms sont binaires (NLS_SORT et NLS_COMP fixés par {@link ConnectionPool}), comme dans
+     * {@link RestaurantSearchIndex#compareNames} : les deux chemins de pagination donnent le même ordre.
+     */
+    private PageQuery pageQuery(String filter, PageRequest request, Object... filterParameters) {
+        List<Object> parameters = new ArrayList<>(Arrays.asList(filterParameters));
+        StringBuilder where = new StringBuilder(filter == null ? "1 = 1" : filter);
+
+        PageRequest.Cursor cursor = request.decodeCursor();
+        String orderBy;
+        if (request.sort() == PageRequest.Sort.BY_NAME) {
+            orderBy = "r.NOM, r.NUMERO";
+            if (cursor != null) {
+                where.append(" AND (r.NOM > ? OR (r.NOM = ? AND r.NUMERO > ?))");
+                parameters.addAll(List.of(cursor.name(), cursor.name(), cursor.id()));
+            }
+        } else {
+            orderBy = "r.NUMERO";
+            if (cursor != null) {
+                where.append(" AND r.NUMERO > ?");
+                parameters.add(cursor.id());
+            }
+        }
+        return new PageQuery(where.toString(), orderBy, parameters.toArray());
+    }
+
+    private static <T> Page<T> emptyPage() {
+        return new Page<>(List.of(), false, null);
+    }
+
+    /**
+     * Construit la page à partir des lignes lues (une de plus que la taille de page, qui indique s'il existe une page suivante).
+     */
+    private static <T> Page<T> toPage(List<T> rows, PageRequest request, Function<T, Integer> id, Function<T, String> name) {
+        boolean hasNext = rows.size() > request.size();
+        List<T> content = hasNext ? rows.subList(0, request.size()) : rows;
+        T last = content.isEmpty() ? null : content.get(content.size() - 1);
+        String nextCursor = hasNext ? request.cursorAfter(id.apply(last), name.apply(last)) : null;
+        return new Page<>(List.copyOf(content), hasNext, nextCursor);
+    }
+
+    /**
+     * Liste allégée de tous les restaurants, triée par nom : seules les colonnes affichées sont lues,
+     * sans CLOB ni hydratation d'objets métier.
+     */
+    public List<RestaurantSummary> findAllSummaries() {
+        return findSummaries(null);
+    }
+
+    public List<RestaurantSummary> findSummariesByName(String name) {
+        RestaurantSearchIndex index = searchIndex();
+        if (index != null) {
+            return findSummariesByIds(index.searchByName(name));
+        }
+        return findSummaries("LOWER(r.NOM) LIKE LOWER(?)", "%" + name + "%");
+    }
+
+    public List<RestaurantSummary> findSummariesByCity(String cityName) {
+        RestaurantSearchIndex index = searchIndex();
+        if (index != null) {
+            return findSummariesByIds(index.searchByCity(cityName));
+        }
+        return findSummaries("LOWER(v.NOM_VILLE) LIKE LOWER(?)", "%" + cityName + "%");
+    }
+
+    public List<RestaurantSummary> findSummariesByType(int typeId) {
+        return findSummaries("r.FK_TYPE = ?", typeId);
+    }
+
+    public Page<RestaurantSummary> findSummaryPage(PageRequest request) {
+        return findSummaryPage(null, request);
+    }
+
+    public Page<RestaurantSummary> findSummaryPageByName(String name, PageRequest request) {
+        RestaurantSearchIndex index = searchIndex();
+        if (index != null) {
+            List<Integer> ids = index.page(index.searchByName(name), request);
+            return ids.isEmpty() ? emptyPage() : findSummaryPage(idFilter(ids.size()), request, ids.toArray());
+        }
+        return findSummaryPage("LOWER(r.NOM) LIKE LOWER(?)", request, "%" + name + "%");
+    }
+
+    public Page<RestaurantSummary> findSummaryPageByCity(String cityName, PageRequest request) {
+        RestaurantSearchIndex index = searchIndex();
+        if (index != null) {
+            List<Integer> ids = index.page(index.searchByCity(cityName), request);
+            return ids.isEmpty() ? emptyPage() : findSummaryPage(idFilter(ids.size()), request, ids.toArray());
+        }
+        return findSummaryPage("LOWER(v.NOM_VILLE) LIKE LOWER(?)", request, "%" + cityName + "%");
+    }
+
+    /**
+     * Vues allégées de restaurants lus par clé primaire, triées par nom comme les autres listes.
+     */
+    private List<RestaurantSummary> findSummariesByIds(int[] ids) {
+        List<RestaurantSummary> summaries = new ArrayList<>();
+        try {
+            for (int from = 0; from < ids.length; from += IN_LIST_CHUNK_SIZE) {
+                Object[] chunk = chunk(ids, from);
+                summaries.addAll(querySummaries(SUMMARY_QUERY.formatted(idFilter(chunk.length)), chunk));
             }
         } catch (SQLException ex) {
-            throw new RuntimeException("Erreur lors de la recherche des restaurants pour le type ID " + ex.getMessage());
+            throw new RuntimeException("Erreur : " + ex.getMessage());
         }
+        summaries.sort(Comparator.comparing(RestaurantSummary::name).thenComparing(RestaurantSummary::id));
+        return summaries;
+    }
 
-        return restaurantSet;
+    private List<RestaurantSummary> findSummaries(String filter, Object... parameters) {
+        String sql = SUMMARY_QUERY.formatted(filter == null ? "1 = 1" : filter) + "ORDER BY r.NOM, r.NUMERO";
+        try {
+            return querySummaries(sql, parameters);
+        } catch (SQLException ex) {
+            throw new RuntimeException("Erreur : " + ex.getMessage());
+        }
     }
 
-    public Set<Restaurant> findByName(String name) {
-        Set<Restaurant> restaurantSet = new HashSet<>();
-        String sql = "SELECT * FROM RESTAURANTS WHERE LOWER(NOM) LIKE LOWER(?)";
+    private Page<RestaurantSummary> findSummaryPage(String filter, PageRequest request, Object... filterParameters) {
+        PageQuery query = pageQuery(filter, request, filterParameters);
+        String sql = SUMMARY_QUERY.formatted(query.where()) + "ORDER BY " + query.orderBy()
+                + " FETCH FIRST " + (request.size() + 1) + " ROWS ONLY";
+        try {
+            return toPage(querySummaries(sql, query.parameters()), request, RestaurantSummary::id, RestaurantSummary::name);
+        } catch (SQLException ex) {
+            throw new RuntimeException("Erreur lors du chargement d'une page de restaurants : " + ex.getMessage());
+        }
+    }
 
+    private List<RestaurantSummary> querySummaries(String sql, Object... parameters) throws SQLException {
+        List<RestaurantSummary> summaries = new ArrayList<>();
         try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, "%" + name + "%");
+            for (int i = 0; i < parameters.length; i++) {
+                ps.setObject(i + 1, parameters[i]);
+            }
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    Restaurant restaurant = addToCache(rs);
-
-                    if (restaurant.getEvaluations() == null) {
-                        Set<CompleteEvaluation> completeEvaluations = completeEvaluationMapper.findByRestaurant(restaurant);
-                        Set<Evaluation> evaluations = new HashSet<>(completeEvaluations);
-                        restaurant.setEvaluations(evaluations);
-                    }
-
-                    restaurantSet.add(restaurant);
+                    summaries.add(new RestaurantSummary(rs.getInt("NUMERO"), rs.getString("NOM"),
+                            rs.getString("ADRESSE"), rs.getString("CODE_POSTAL"), rs.getString("NOM_VILLE")));
                 }
             }
+        }
+        return summaries;
+    }
+
+    /**
+     * Parcourt tous les restaurants sans les charger tous en mémoire. Le stream doit être fermé après usage
+     * (try-with-resources) et consommé tant que le contexte de persistance est ouvert.
+     */
+    public Stream<Restaurant> streamAll() {
+        return streamGraph(null);
+    }
+
+    public Stream<Restaurant> streamByName(String name) {
+        return streamGraph("LOWER(r.NOM) LIKE LOWER(?)", "%" + name + "%");
+    }
+
+    public Stream<Restaurant> streamByCity(String cityName) {
+        return streamGraph("LOWER(v.NOM_VILLE) LIKE LOWER(?)", "%" + cityName + "%");
+    }
+
+    public Stream<Restaurant> streamByType(int typeId) {
+        return streamGraph("r.FK_TYPE = ?", typeId);
+    }
+
+    /**
+     * @param fetchSize le nombre de lignes lues à chaque aller-retour par les méthodes stream*
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    private Stream<Restaurant> streamGraph(String filter, Object... parameters) {
+        try {
+            return new RestaurantGraphLoader(connection, getIdentityMap(), this).stream(filter, fetchSize, parameters);
         } catch (SQLException ex) {
-            throw new RuntimeException("Erreur lors de la recherche de restaurants par nom : " + ex.getMessage());
+            throw new RuntimeException("Erreur : " + ex.getMessage());
         }
+    }
 
-        return restaurantSet;
+    private Set<Restaurant> loadGraph(String filter, boolean fetchEvaluations, Object... parameters) throws SQLException {
+        return new RestaurantGraphLoader(connection, getIdentityMap(), this).load(filter, fetchEvaluations, parameters);
     }
 
+    /**
+     * Ensemble des évaluations d'un restaurant, chargé au premier accès.
+     */
+    Set<Evaluation> lazyEvaluations(Restaurant restaurant) {
+        return lazySet(() -> new HashSet<Evaluation>(completeEvaluationMapper.findByRestaurant(restaurant)));
+    }
 
+    /**
+     * Ensemble des restaurants d'une ville, chargé au premier accès.
+     */
+    Set<Restaurant> lazyRestaurants(City city) {
+        return lazySet(() -> findByCityId(city.getId()));
+    }
 
+    /**
+     * Ensemble des restaurants d'un type, chargé au premier accès.
+     */
+    Set<Restaurant> lazyRestaurants(RestaurantType type) {
+        return lazySet(() -> findByType(type.getId()));
+    }
 
     @Override
     public Restaurant create(Restaurant restaurant) {
         String insertSql = "INSERT INTO restaurants (NUMERO, NOM, ADRESSE, DESCRIPTION, SITE_WEB, FK_TYPE, FK_VILL) " +
-                "VALUES (SEQ_RESTAURANTS.NEXTVAL, ?, ?, ?, ?, ?, ?)";
-        try (PreparedStatement ps = connection.prepareStatement(insertSql, new String[]{"NUMERO"})) {
-            ps.setString(1, restaurant.getName());
-            ps.setString(2, restaurant.getAddress().getStreet());
-            ps.setString(3, restaurant.getDescription());
-            ps.setString(4, restaurant.getWebsite());
-            ps.setInt(5, restaurant.getType().getId());
-            ps.setInt(6, restaurant.getAddress().getCity().getId());
+                "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement ps = connection.prepareStatement(insertSql)) {
+            int nextId = getSequenceValue();
+            ps.setInt(1, nextId);
+            ps.setString(2, restaurant.getName());
+            ps.setString(3, restaurant.getAddress().getStreet());
+            ps.setString(4, restaurant.getDescription());
+            ps.setString(5, restaurant.getWebsite());
+            ps.setInt(6, restaurant.getType().getId());
+            ps.setInt(7, restaurant.getAddress().getCity().getId());
 
             ps.executeUpdate();
 
-            try(ResultSet rs = ps.getGeneratedKeys()) {
-                if (rs.next()) {
-                    int generatedId = rs.getInt(1);
-                    restaurant.setId(generatedId);
-                }
-            }
+            restaurant.setId(nextId);
+            addToCache(restaurant);
+            written(restaurant);
 
             return restaurant;
 
@@ -236,6 +586,10 @@ public class RestaurantMapper extends AbstractMapper<Restaurant> {
             ps.setInt(7, restaurant.getId());
 
             int rows = ps.executeUpdate();
+            invalidateSecondLevelCache(restaurant.getId());
+            if (rows > 0) {
+                written(restaurant);
+            }
             return rows > 0; // true si au moins une ligne mise à jour
 
         } catch (SQLException e) {
@@ -253,6 +607,7 @@ public class RestaurantMapper extends AbstractMapper<Restaurant> {
             int rowsDeleted = ps.executeUpdate();
             if (rowsDeleted > 0) {
                 removeFromCache(restaurant.getId());
+                removed(restaurant.getId());
                 return true;
             }
 
@@ -273,6 +628,7 @@ public class RestaurantMapper extends AbstractMapper<Restaurant> {
 
             if (rowsDeleted > 0) {
                 removeFromCache(id);
+                removed(id);
                 return true;
             }
 
@@ -284,8 +640,31 @@ public class RestaurantMapper extends AbstractMapper<Restaurant> {
     }
 
     @Override
-    protected String getSequenceQuery() {
-        return "SELECT RESTAURANTS_SEQ.NEXTVAL FROM DUAL";
+    protected Class<Restaurant> getEntityClass() {
+        return Restaurant.class;
+    }
+
+    @Override
+    protected String getSequenceName() {
+        return "SEQ_RESTAURANTS";
+    }
+
+    @Override
+    protected String getTableName() {
+        return "RESTAURANTS";
+    }
+
+    @Override
+    protected Map<String, Object> getColumnValues(Restaurant restaurant) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("NOM", restaurant.getName());
+        values.put("ADRESSE", restaurant.getAddress() == null ? null : restaurant.getAddress().getStreet());
+        values.put("DESCRIPTION", restaurant.getDescription());
+        values.put("SITE_WEB", restaurant.getWebsite());
+        values.put("FK_TYPE", restaurant.getType() == null ? null : restaurant.getType().getId());
+        values.put("FK_VILL", restaurant.getAddress() == null || restaurant.getAddress().getCity() == null
+                ? null : restaurant.getAddress().getCity().getId());
+        return values;
     }
 
     @Override
@@ -298,6 +677,25 @@ public class RestaurantMapper extends AbstractMapper<Restaurant> {
         return "SELECT COUNT(*) FROM restaurants";
     }
 
+    /**
+     * Tient l'index de recherche et l'arbre d'autocomplétion à jour une fois une création ou une modification validée.
+     */
+    @Override
+    void afterWrite(Restaurant restaurant) {
+        RestaurantSearchIndex index = RestaurantSearchIndex.getInstance();
+        if (index.isEnabled()) {
+            index.put(searchEntry(restaurant));
+        }
+        RestaurantNameTrie.getInstance().put(restaurant.getId(), restaurant.getName());
+    }
+
+    @Override
+    void afterRemove(Integer id) {
+        RestaurantSearchIndex.getInstance().remove(id);
+        RestaurantNameTrie.getInstance().remove(id);
+        LikeCounterStore.getInstance().remove(id);
+    }
+
     public void setCompleteEvaluationMapper(CompleteEvaluationMapper completeEvaluationMapper) {
         this.completeEvaluationMapper = completeEvaluationMapper;
     }
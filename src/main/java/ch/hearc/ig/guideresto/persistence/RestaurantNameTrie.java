@@ -0,0 +1,368 @@
+package ch.hearc.ig.guideresto.persistence;
+
+import ch.hearc.ig.guideresto.business.RestaurantSuggestion;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Arbre de préfixes des noms de restaurants pour l'autocomplétion, partagé par toute l'application.
+ * <p>
+ * Les noms sont normalisés comme pour la recherche (minuscules, sans accents ni ponctuation). Chaque nœud
+ * garde ses enfants dans des tableaux triés et mémorise les {@code topK} meilleurs restaurants de son
+ * sous-arbre, classés par popularité : une complétion se résume à descendre le long du préfixe et à lire
+ * cette liste, sans parcourir le sous-arbre.
+ * <p>
+ * Après un ajout, une suppression ou un changement de popularité, seuls les nœuds du chemin du nom sont
+ * recalculés, à partir des listes de leurs enfants. {@link RestaurantMapper} et {@link BasicEvaluationMapper} le
+ * tiennent à jour une fois leurs écritures validées : un like supprimé ou changé en dislike fait baisser la popularité.
+ * L'arbre est construit au premier usage depuis la base ;
+ * il est activé par {@code autocomplete.enabled} dans {@code cache.properties}, et {@code autocomplete.topK}
+ * fixe le nombre maximal de propositions.
+ */
+public class RestaurantNameTrie {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    private static final int[] NONE = new int[0];
+
+    private static final RestaurantNameTrie instance = new RestaurantNameTrie();
+
+    private record Item(String name, String key, long popularity) {
+    }
+
+    private static final class Node {
+        private char[] labels = new char[0];
+        private Node[] children = new Node[0];
+        private int[] terminals = NONE;
+        private int[] top = NONE;
+
+        Node child(char label) {
+            int position = Arrays.binarySearch(labels, label);
+            return position >= 0 ? children[position] : null;
+        }
+
+        Node childOrCreate(char label) {
+            int position = Arrays.binarySearch(labels, label);
+            if (position >= 0) {
+                return children[position];
+            }
+            position = -position - 1;
+            Node child = new Node();
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, position);
+            System.arraycopy(children, 0, newChildren, 0, position);
+            newLabels[position] = label;
+            newChildren[position] = child;
+            System.arraycopy(labels, position, newLabels, position + 1, labels.length - position);
+            System.arraycopy(children, position, newChildren, position + 1, children.length - position);
+            labels = newLabels;
+            children = newChildren;
+            return child;
+        }
+
+        void removeChild(char label) {
+            int position = Arrays.binarySearch(labels, label);
+            if (position >= 0) {
+                char[] newLabels = new char[labels.length - 1];
+                Node[] newChildren = new Node[children.length - 1];
+                System.arraycopy(labels, 0, newLabels, 0, position);
+                System.arraycopy(children, 0, newChildren, 0, position);
+                System.arraycopy(labels, position + 1, newLabels, position, newLabels.length - position);
+                System.arraycopy(children, position + 1, newChildren, position, newChildren.length - position);
+                labels = newLabels;
+                children = newChildren;
+            }
+        }
+
+        boolean isEmpty() {
+            return terminals.length == 0 && children.length == 0;
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Item> items = new HashMap<>();
+    private final boolean enabled;
+    private final int topK;
+    private Node root = new Node();
+    private volatile boolean seeded;
+
+    private RestaurantNameTrie() {
+        boolean configured = false;
+        int configuredTopK = 10;
+        try {
+            ResourceBundle bundle = ResourceBundle.getBundle("cache");
+            configured = bundle.containsKey("autocomplete.enabled")
+                    && Boolean.parseBoolean(bundle.getString("autocomplete.enabled").trim());
+            configuredTopK = ConnectionUtils.getInt(bundle, "autocomplete.topK", configuredTopK);
+        } catch (MissingResourceException ex) {
+            logger.info("Aucun fichier cache.properties : autocomplétion désactivée");
+        }
+        this.enabled = configured;
+        this.topK = configuredTopK;
+    }
+
+    public static RestaurantNameTrie getInstance() {
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Propose les restaurants les plus populaires dont le nom commence par un préfixe.
+     * @param prefix le début du nom (casse, accents et ponctuation ignorés)
+     * @param limit le nombre maximal de propositions, borné par {@code autocomplete.topK}
+     * @param loader le parcours de tous les restaurants, appelé une seule fois pour construire l'arbre
+     */
+    public List<RestaurantSuggestion> complete(String prefix, int limit, Supplier<Stream<RestaurantSuggestion>> loader) {
+        seed(loader);
+        String key = RestaurantSearchIndex.normalize(prefix);
+        lock.readLock().lock();
+        try {
+            Node node = find(key);
+            if (node == null) {
+                return List.of();
+            }
+            List<RestaurantSuggestion> suggestions = new ArrayList<>();
+            for (int i = 0; i < node.top.length && i < limit; i++) {
+                suggestions.add(suggestion(node.top[i]));
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return les restaurants dont le nom normalisé est exactement celui donné
+     */
+    public List<RestaurantSuggestion> findExact(String name, Supplier<Stream<RestaurantSuggestion>> loader) {
+        seed(loader);
+        lock.readLock().lock();
+        try {
+            Node node = find(RestaurantSearchIndex.normalize(name));
+            if (node == null) {
+                return List.of();
+            }
+            List<RestaurantSuggestion> matches = new ArrayList<>();
+            for (int id : node.terminals) {
+                matches.add(suggestion(id));
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ajoute un restaurant, ou met à jour son nom. Sans effet tant que l'arbre n'est pas construit,
+     * la construction le lira.
+     */
+    public void put(int restaurantId, String name) {
+        lock.writeLock().lock();
+        try {
+            if (!seeded) {
+                return;
+            }
+            Item previous = items.get(restaurantId);
+            removeItem(restaurantId);
+            insert(restaurantId, new Item(name, RestaurantSearchIndex.normalize(name),
+                    previous == null ? 0 : previous.popularity()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int restaurantId) {
+        lock.writeLock().lock();
+        try {
+            removeItem(restaurantId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Modifie la popularité d'un restaurant, en plus ou en moins selon le signe, et reclasse son chemin.
+     */
+    public void addPopularity(int restaurantId, long delta) {
+        lock.writeLock().lock();
+        try {
+            Item item = items.get(restaurantId);
+            if (item != null) {
+                items.put(restaurantId, new Item(item.name(), item.key(), item.popularity() + delta));
+                recomputePath(item.key());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Vide l'arbre ; il sera reconstruit depuis la base au prochain usage.
+     */
+    public void reset() {
+        lock.writeLock().lock();
+        try {
+            seeded = false;
+            items.clear();
+            root = new Node();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void seed(Supplier<Stream<RestaurantSuggestion>> loader) {
+        if (seeded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (seeded) {
+                return;
+            }
+            long start = System.nanoTime();
+            try (Stream<RestaurantSuggestion> restaurants = loader.get()) {
+                restaurants.forEach(restaurant -> {
+                    String key = RestaurantSearchIndex.normalize(restaurant.name());
+                    items.put(restaurant.restaurantId(), new Item(restaurant.name(), key, restaurant.popularity()));
+                    Node node = root;
+                    for (int i = 0; i < key.length(); i++) {
+                        node = node.childOrCreate(key.charAt(i));
+                    }
+                    node.terminals = append(node.terminals, restaurant.restaurantId());
+                });
+            }
+            // Les meilleurs de chaque nœud sont calculés une seule fois, des feuilles vers la racine
+            computeTops(root);
+            seeded = true;
+            logger.info("Arbre d'autocomplétion construit : {} restaurants en {} ms",
+                    items.size(), (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void computeTops(Node node) {
+        for (Node child : node.children) {
+            computeTops(child);
+        }
+        recomputeTop(node);
+    }
+
+    private void insert(int restaurantId, Item item) {
+        items.put(restaurantId, item);
+        Node node = root;
+        for (int i = 0; i < item.key().length(); i++) {
+            node = node.childOrCreate(item.key().charAt(i));
+        }
+        node.terminals = append(node.terminals, restaurantId);
+        recomputePath(item.key());
+    }
+
+    private void removeItem(int restaurantId) {
+        Item item = items.remove(restaurantId);
+        if (item == null) {
+            return;
+        }
+        List<Node> path = path(item.key());
+        Node leaf = path.get(path.size() - 1);
+        leaf.terminals = Arrays.stream(leaf.terminals).filter(id -> id != restaurantId).toArray();
+
+        // Élague les nœuds devenus vides, puis reclasse le reste du chemin
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node node = path.get(i);
+            if (i > 0 && node.isEmpty()) {
+                path.get(i - 1).removeChild(item.key().charAt(i - 1));
+            } else {
+                recomputeTop(node);
+            }
+        }
+    }
+
+    /**
+     * Recalcule les meilleurs restaurants de chaque nœud du chemin d'une clé, de la feuille vers la racine.
+     */
+    private void recomputePath(String key) {
+        List<Node> path = path(key);
+        for (int i = path.size() - 1; i >= 0; i--) {
+            recomputeTop(path.get(i));
+        }
+    }
+
+    /**
+     * Les meilleurs d'un nœud sont les meilleurs parmi ses propres noms et les meilleurs de ses enfants.
+     */
+    private void recomputeTop(Node node) {
+        List<Integer> candidates = new ArrayList<>();
+        for (int id : node.terminals) {
+            candidates.add(id);
+        }
+        for (Node child : node.children) {
+            for (int id : child.top) {
+                candidates.add(id);
+            }
+        }
+        candidates.sort(this::compareRank);
+        node.top = candidates.stream().limit(topK).mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Classement : popularité décroissante, puis nom, puis identifiant.
+     */
+    private int compareRank(int first, int second) {
+        Item a = items.get(first);
+        Item b = items.get(second);
+        int comparison = Long.compare(b.popularity(), a.popularity());
+        if (comparison == 0) {
+            comparison = a.name().compareTo(b.name());
+        }
+        return comparison != 0 ? comparison : Integer.compare(first, second);
+    }
+
+    private List<Node> path(String key) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+            if (node != null) {
+                path.add(node);
+            }
+        }
+        return path;
+    }
+
+    private Node find(String key) {
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        return node;
+    }
+
+    private RestaurantSuggestion suggestion(int restaurantId) {
+        Item item = items.get(restaurantId);
+        return new RestaurantSuggestion(restaurantId, item.name(), item.popularity());
+    }
+
+    private static int[] append(int[] ids, int id) {
+        int[] result = Arrays.copyOf(ids, ids.length + 1);
+        result[ids.length] = id;
+        return result;
+    }
+}
@@ -0,0 +1,465 @@
+package ch.hearc.ig.guideresto.persistence;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.PriorityQueue;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Index inversé en mémoire pour la recherche de restaurants par nom et par ville, partagé par toute l'application.
+ * <p>
+ * Les noms de restaurants, ainsi que les noms de villes et codes postaux, sont normalisés (minuscules, sans accents
+ * ni ponctuation) puis découpés en trigrammes ; chaque trigramme pointe vers la liste triée des identifiants
+ * qui le contiennent. Une recherche intersecte les listes des trigrammes du texte cherché, vérifie que le texte
+ * est bien contenu dans les candidats, puis les restaurants trouvés sont lus par clé primaire : aucun
+ * {@code LIKE '%x%'} ni parcours complet de table.
+ * <p>
+ * Les villes sont indexées séparément (peu nombreuses) et reliées à leurs restaurants, si bien que renommer
+ * une ville ne touche qu'une entrée.
+ * <p>
+ * L'index est construit au premier usage par un parcours en streaming de la table, puis tenu à jour par
+ * les écritures des mappers, une fois celles-ci validées : une écriture annulée par un rollback n'y entre
+ * jamais. Les restaurants trouvés sont relus en base par identifiant, sans revérifier le texte cherché :
+ * l'index doit donc refléter exactement les noms validés. {@link #reset()} force une reconstruction.
+ * Il est activé par {@code searchIndex.enabled} dans {@code cache.properties}.
+ */
+public class RestaurantSearchIndex {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    private static final RestaurantSearchIndex instance = new RestaurantSearchIndex();
+
+    private static final int GRAM_LENGTH = 3;
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /**
+     * Restaurant à indexer, avec sa ville.
+     */
+    record Entry(int restaurantId, String name, int cityId, String cityName, String zipCode) {
+    }
+
+    private record IndexedRestaurant(String name, String normalizedName, int cityId) {
+    }
+
+    /**
+     * Liste triée et sans doublon d'identifiants.
+     */
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            int position;
+            if (size == 0 || ids[size - 1] < id) {
+                position = size;
+            } else {
+                position = Arrays.binarySearch(ids, 0, size, id);
+                if (position >= 0) {
+                    return;
+                }
+                position = -position - 1;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+
+        void remove(int id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+                size--;
+            }
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, IndexedRestaurant> restaurants = new HashMap<>();
+    private final Map<String, Postings> nameGrams = new HashMap<>();
+    private final Map<Integer, String> cities = new HashMap<>();
+    private final Map<String, Postings> cityGrams = new HashMap<>();
+    private final Map<Integer, Postings> restaurantsByCity = new HashMap<>();
+    private final boolean enabled;
+    private volatile boolean built;
+
+    private RestaurantSearchIndex() {
+        boolean configured = false;
+        try {
+            ResourceBundle bundle = ResourceBundle.getBundle("cache");
+            configured = bundle.containsKey("searchIndex.enabled")
+                    && Boolean.parseBoolean(bundle.getString("searchIndex.enabled").trim());
+        } catch (MissingResourceException ex) {
+            logger.info("Aucun fichier cache.properties : index de recherche désactivé");
+        }
+        this.enabled = configured;
+    }
+
+    public static RestaurantSearchIndex getInstance() {
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Construit l'index s'il ne l'est pas encore.
+     * @param scan le parcours de tous les restaurants, appelé une seule fois ; le stream est fermé après lecture
+     */
+    void ensureBuilt(Supplier<Stream<Entry>> scan) {
+        if (built) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (built) {
+                return;
+            }
+            long start = System.nanoTime();
+            try (Stream<Entry> entries = scan.get()) {
+                entries.forEach(this::add);
+            }
+            built = true;
+            logger.info("Index de recherche construit : {} restaurants, {} villes en {} ms",
+                    restaurants.size(), cities.size(), (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ajoute ou remplace un restaurant. Sans effet tant que l'index n'est pas construit, la construction le lira.
+     */
+    void put(Entry entry) {
+        lock.writeLock().lock();
+        try {
+            if (built) {
+                removeRestaurant(entry.restaurantId());
+                add(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(int restaurantId) {
+        lock.writeLock().lock();
+        try {
+            removeRestaurant(restaurantId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Met à jour le nom et le code postal d'une ville déjà indexée.
+     */
+    void updateCity(int cityId, String cityName, String zipCode) {
+        lock.writeLock().lock();
+        try {
+            if (cities.containsKey(cityId)) {
+                removeCityText(cityId);
+                addCityText(cityId, cityName, zipCode);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Retire une ville et ses restaurants (supprimés en cascade en base).
+     */
+    void removeCity(int cityId) {
+        lock.writeLock().lock();
+        try {
+            Postings cityRestaurants = restaurantsByCity.get(cityId);
+            if (cityRestaurants != null) {
+                for (int id : Arrays.copyOf(cityRestaurants.ids, cityRestaurants.size)) {
+                    removeRestaurant(id);
+                }
+            }
+            restaurantsByCity.remove(cityId);
+            if (cities.containsKey(cityId)) {
+                removeCityText(cityId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Vide l'index ; il sera reconstruit depuis la base au prochain usage.
+     */
+    public void reset() {
+        lock.writeLock().lock();
+        try {
+            built = false;
+            restaurants.clear();
+            nameGrams.clear();
+            cities.clear();
+            cityGrams.clear();
+            restaurantsByCity.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return les identifiants, triés, des restaurants dont le nom contient le texte (sans tenir compte
+     * de la casse ni des accents)
+     */
+    int[] searchByName(String query) {
+        String text = normalize(query);
+        lock.readLock().lock();
+        try {
+            if (text.length() < GRAM_LENGTH) {
+                return restaurants.entrySet().stream()
+                        .filter(entry -> entry.getValue().normalizedName().contains(text))
+                        .mapToInt(Map.Entry::getKey)
+                        .sorted()
+                        .toArray();
+            }
+            return intersect(nameGrams, text, id -> restaurants.get(id).normalizedName());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return les identifiants, triés, des restaurants dont le nom de ville ou le code postal contient le texte
+     */
+    int[] searchByCity(String query) {
+        String text = normalize(query);
+        lock.readLock().lock();
+        try {
+            int[] cityIds = text.length() < GRAM_LENGTH
+                    ? cities.entrySet().stream()
+                            .filter(entry -> entry.getValue().contains(text))
+                            .mapToInt(Map.Entry::getKey)
+                            .toArray()
+                    : intersect(cityGrams, text, cities::get);
+
+            List<Integer> ids = new ArrayList<>();
+            for (int cityId : cityIds) {
+                Postings cityRestaurants = restaurantsByCity.get(cityId);
+                if (cityRestaurants != null) {
+                    for (int i = 0; i < cityRestaurants.size; i++) {
+                        ids.add(cityRestaurants.ids[i]);
+                    }
+                }
+            }
+            return ids.stream().mapToInt(Integer::intValue).sorted().toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sélectionne parmi les résultats d'une recherche les identifiants de la page demandée, plus un
+     * qui indique s'il existe une page suivante, dans l'ordre de tri de la demande.
+     */
+    List<Integer> page(int[] matches, PageRequest request) {
+        PageRequest.Cursor cursor = request.decodeCursor();
+        int limit = request.size() + 1;
+
+        if (request.sort() == PageRequest.Sort.BY_ID) {
+            int start = 0;
+            if (cursor != null) {
+                int position = Arrays.binarySearch(matches, cursor.id());
+                start = position >= 0 ? position + 1 : -position - 1;
+            }
+            List<Integer> ids = new ArrayList<>();
+            for (int i = start; i < matches.length && ids.size() < limit; i++) {
+                ids.add(matches[i]);
+            }
+            return ids;
+        }
+
+        lock.readLock().lock();
+        try {
+            Comparator<Integer> byName = Comparator.comparing((Integer id) -> restaurants.get(id).name(),
+                    RestaurantSearchIndex::compareNames).thenComparing(Comparator.naturalOrder());
+            // Tas borné aux « limit » plus petits éléments après le curseur
+            PriorityQueue<Integer> smallest = new PriorityQueue<>(limit + 1, byName.reversed());
+            for (int id : matches) {
+                IndexedRestaurant restaurant = restaurants.get(id);
+                if (restaurant == null) {
+                    continue;
+                }
+                if (cursor != null) {
+                    int comparison = compareNames(restaurant.name(), cursor.name());
+                    if (comparison < 0 || (comparison == 0 && id <= cursor.id())) {
+                        continue;
+                    }
+                }
+                smallest.offer(id);
+                if (smallest.size() > limit) {
+                    smallest.poll();
+                }
+            }
+            List<Integer> ids = new ArrayList<>(smallest);
+            ids.sort(byName);
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ordre des noms de la pagination : point de code par point de code, comme Oracle compare des chaînes
+     * AL32UTF8 en NLS_SORT et NLS_COMP BINARY, paramètres fixés sur chaque connexion par {@link ConnectionPool}.
+     * Les pages lues ici et celles lues en SQL (« ORDER BY r.NOM » et « r.NOM &gt; ? ») se suivent donc sans
+     * trou ni doublon. {@link String#compareTo} compare des unités UTF-16 et s'écarte de cet ordre au-delà du BMP.
+     */
+    static int compareNames(String first, String second) {
+        int i = 0;
+        int j = 0;
+        while (i < first.length() && j < second.length()) {
+            int a = first.codePointAt(i);
+            int b = second.codePointAt(j);
+            if (a != b) {
+                return Integer.compare(a, b);
+            }
+            i += Character.charCount(a);
+            j += Character.charCount(b);
+        }
+        return Integer.compare(first.length() - i, second.length() - j);
+    }
+
+    /**
+     * Normalise un texte pour l'indexation et la recherche : décomposition et suppression des accents,
+     * minuscules, ponctuation et espaces réduits à un seul espace.
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARATORS.matcher(folded.toLowerCase(Locale.ROOT)).replaceAll(" ").strip();
+    }
+
+    private static Set<String> grams(String normalized) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= normalized.length(); i++) {
+            grams.add(normalized.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    /**
+     * Intersecte les listes des trigrammes du texte, en partant de la plus courte, puis élimine les candidats
+     * qui contiennent tous les trigrammes sans contenir le texte lui-même.
+     */
+    private static int[] intersect(Map<String, Postings> index, String text, IntFunction<String> indexedText) {
+        List<Postings> lists = new ArrayList<>();
+        for (String gram : grams(text)) {
+            Postings postings = index.get(gram);
+            if (postings == null || postings.isEmpty()) {
+                return new int[0];
+            }
+            lists.add(postings);
+        }
+        lists.sort(Comparator.comparingInt(postings -> postings.size));
+
+        Postings shortest = lists.get(0);
+        int[] result = new int[shortest.size];
+        int count = 0;
+        candidates:
+        for (int i = 0; i < shortest.size; i++) {
+            int id = shortest.ids[i];
+            for (int j = 1; j < lists.size(); j++) {
+                if (!lists.get(j).contains(id)) {
+                    continue candidates;
+                }
+            }
+            if (indexedText.apply(id).contains(text)) {
+                result[count++] = id;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private void add(Entry entry) {
+        String normalizedName = normalize(entry.name());
+        restaurants.put(entry.restaurantId(), new IndexedRestaurant(entry.name(), normalizedName, entry.cityId()));
+        for (String gram : grams(normalizedName)) {
+            nameGrams.computeIfAbsent(gram, key -> new Postings()).add(entry.restaurantId());
+        }
+        if (!cities.containsKey(entry.cityId())) {
+            addCityText(entry.cityId(), entry.cityName(), entry.zipCode());
+        }
+        restaurantsByCity.computeIfAbsent(entry.cityId(), key -> new Postings()).add(entry.restaurantId());
+    }
+
+    private void removeRestaurant(int restaurantId) {
+        IndexedRestaurant restaurant = restaurants.remove(restaurantId);
+        if (restaurant == null) {
+            return;
+        }
+        for (String gram : grams(restaurant.normalizedName())) {
+            Postings postings = nameGrams.get(gram);
+            if (postings != null) {
+                postings.remove(restaurantId);
+                if (postings.isEmpty()) {
+                    nameGrams.remove(gram);
+                }
+            }
+        }
+        Postings cityRestaurants = restaurantsByCity.get(restaurant.cityId());
+        if (cityRestaurants != null) {
+            cityRestaurants.remove(restaurantId);
+        }
+    }
+
+    private void addCityText(int cityId, String cityName, String zipCode) {
+        // Le séparateur ne peut pas apparaître dans un texte normalisé : aucune correspondance à cheval
+        String text = normalize(cityName) + "|" + normalize(zipCode);
+        cities.put(cityId, text);
+        for (String gram : grams(text)) {
+            cityGrams.computeIfAbsent(gram, key -> new Postings()).add(cityId);
+        }
+    }
+
+    private void removeCityText(int cityId) {
+        String text = cities.remove(cityId);
+        for (String gram : grams(text)) {
+            Postings postings = cityGrams.get(gram);
+            if (postings != null) {
+                postings.remove(cityId);
+                if (postings.isEmpty()) {
+                    cityGrams.remove(gram);
+                }
+            }
+        }
+    }
+}
@@ -6,56 +6,132 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class RestaurantTypeMapper extends AbstractMapper<RestaurantType> {
 
-    private final Connection connection;
+    /**
+     * Identifiant de chaque type par libellé normalisé (majuscules), partagé par tous les contextes :
+     * la table de référence est petite et rarement modifiée.
+     */
+    private static final Map<String, Integer> typeIdsByLabel = new ConcurrentHashMap<>();
+    private static volatile boolean labelsLoaded;
+
+    private RestaurantMapper restaurantMapper;
 
     public RestaurantTypeMapper(Connection connection) {
-        this.connection = connection;
+        super(connection);
     }
 
-    private Map<Integer, RestaurantType> typeCache = new HashMap<>();
+    public void setRestaurantMapper(RestaurantMapper restaurantMapper) {
+        this.restaurantMapper = restaurantMapper;
+    }
 
-    private RestaurantType addToCache(ResultSet rs) throws SQLException {
-        int id = rs.getInt("NUMERO");
+    private RestaurantType addToCache(CachedRow row) {
+        int id = row.getInt("NUMERO");
+        RestaurantType cached = peekCache(id);
+        if (cached != null) {
+            return cached;
+        }
 
-            RestaurantType type = new RestaurantType();
-            type.setId(id);
-            type.setLabel(rs.getString("LIBELLE"));
-            type.setDescription(rs.getString("DESCRIPTION"));
+        RestaurantType type = new RestaurantType();
+        type.setId(id);
+        type.setLabel(row.getString("LIBELLE"));
+        type.setDescription(row.getString("DESCRIPTION"));
 
-            addToCache(type);
+        if (restaurantMapper != null) {
+            type.setRestaurants(restaurantMapper.lazyRestaurants(type));
+        }
+
+        addToCache(type);
         return type;
     }
 
     @Override
     public RestaurantType findById(int id) {
-        if (typeCache.containsKey(id)) {
-            return typeCache.get(id);
+        RestaurantType cached = findInCache(id);
+        if (cached != null) {
+            return cached;
         }
         String sql = "SELECT * FROM TYPES_GASTRONOMIQUES WHERE NUMERO = ?";
+        try {
+            CachedRow row = findRowById(sql, id);
+            if (row != null) {
+                RestaurantType type = addToCache(row);
+                return type;
+            }
+        } catch (SQLException e) {
+            System.out.println("Erreur : "+ e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Recherche un type par son libellé, sans tenir compte de la casse : l'identifiant est trouvé dans la table
+     * des libellés en mémoire, puis le type est lu par clé primaire (identity map ou cache de second niveau).
+     * Un libellé inconnu est cherché en base par l'index sur UPPER(LIBELLE).
+     * @return le type, ou null s'il n'existe pas
+     */
+    public RestaurantType findByLabel(String label) {
+        if (label == null) {
+            return null;
+        }
+        loadLabels();
+        Integer id = typeIdsByLabel.get(labelKey(label));
+        if (id != null) {
+            return findById(id);
+        }
+
+        String sql = "SELECT * FROM TYPES_GASTRONOMIQUES WHERE UPPER(LIBELLE) = UPPER(?)";
         try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setInt(1, id);
+            ps.setString(1, label);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
-                    RestaurantType type = addToCache(rs);
+                    RestaurantType type = addToCache(CachedRow.of(rs));
+                    typeIdsByLabel.put(labelKey(type.getLabel()), type.getId());
                     return type;
                 }
             }
         } catch (SQLException e) {
-            System.out.println("Erreur : "+ e.getMessage());
+            System.err.println("Erreur : " + e.getMessage());
         }
         return null;
     }
 
+    /**
+     * Charge une seule fois les libellés de tous les types.
+     */
+    private void loadLabels() {
+        if (labelsLoaded) {
+            return;
+        }
+        synchronized (typeIdsByLabel) {
+            if (labelsLoaded) {
+                return;
+            }
+            try (PreparedStatement ps = connection.prepareStatement("SELECT NUMERO, LIBELLE FROM TYPES_GASTRONOMIQUES");
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    typeIdsByLabel.put(labelKey(rs.getString("LIBELLE")), rs.getInt("NUMERO"));
+                }
+                labelsLoaded = true;
+            } catch (SQLException e) {
+                System.err.println("Erreur : " + e.getMessage());
+            }
+        }
+    }
+
+    private static String labelKey(String label) {
+        return label.trim().toUpperCase(Locale.ROOT);
+    }
+
     @Override
     public Set<RestaurantType> findAll() {
-        resetCache();
         Set<RestaurantType> types = new HashSet<>();
         String sql = "SELECT * FROM TYPES_GASTRONOMIQUES";
 
@@ -63,7 +139,7 @@ public class RestaurantTypeMapper extends AbstractMapper<RestaurantType> {
              ResultSet rs = ps.executeQuery()) {
 
             while (rs.next()) {
-                RestaurantType type = addToCache(rs);
+                RestaurantType type = addToCache(CachedRow.of(rs));
 
                 types.add(type);
             }
@@ -77,17 +153,17 @@ public class RestaurantTypeMapper extends AbstractMapper<RestaurantType> {
 
     @Override
     public RestaurantType create(RestaurantType type) {
-        String sql = "INSERT INTO TYPES_GASTRONOMIQUES (LIBELLE, DESCRIPTION) VALUES (?, ?)";
-        try (PreparedStatement ps = connection.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS)) {
-            ps.setString(1, type.getLabel());
-            ps.setString(2, type.getDescription());
+        String sql = "INSERT INTO TYPES_GASTRONOMIQUES (NUMERO, LIBELLE, DESCRIPTION) VALUES (?, ?, ?)";
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            int nextId = getSequenceValue();
+            ps.setInt(1, nextId);
+            ps.setString(2, type.getLabel());
+            ps.setString(3, type.getDescription());
             ps.executeUpdate();
 
-            try (ResultSet rs = ps.getGeneratedKeys()) {
-                if (rs.next()) {
-                    type.setId(rs.getInt(1));
-                }
-            }
+            type.setId(nextId);
+            addToCache(type);
+            written(type);
 
             return type;
 
@@ -105,6 +181,10 @@ public class RestaurantTypeMapper extends AbstractMapper<RestaurantType> {
             ps.setString(2, type.getDescription());
             ps.setInt(3, type.getId());
             int rows = ps.executeUpdate();
+            invalidateSecondLevelCache(type.getId());
+            if (rows > 0) {
+                written(type);
+            }
             return rows > 0;
 
         } catch (SQLException e) {
@@ -121,6 +201,7 @@ public class RestaurantTypeMapper extends AbstractMapper<RestaurantType> {
             int rowsDeleted = ps.executeUpdate();
             if (rowsDeleted > 0) {
                 removeFromCache(type.getId());
+                removed(type.getId());
                 return true;
             }
 
@@ -140,6 +221,7 @@ public class RestaurantTypeMapper extends AbstractMapper<RestaurantType> {
 
             if (rowsDeleted > 0) {
                 removeFromCache(id);
+                removed(id);
                 return true;
             }
 
@@ -151,8 +233,26 @@ public class RestaurantTypeMapper extends AbstractMapper<RestaurantType> {
     }
 
     @Override
-    protected String getSequenceQuery() {
-        return "SELECT TYPES_GASTRONOMIQUES_SEQ.NEXTVAL FROM DUAL";
+    protected Class<RestaurantType> getEntityClass() {
+        return RestaurantType.class;
+    }
+
+    @Override
+    protected String getSequenceName() {
+        return "SEQ_TYPES_GASTRONOMIQUES";
+    }
+
+    @Override
+    protected String getTableName() {
+        return "TYPES_GASTRONOMIQUES";
+    }
+
+    @Override
+    protected Map<String, Object> getColumnValues(RestaurantType type) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("LIBELLE", type.getLabel());
+        values.put("DESCRIPTION", type.getDescription());
+        return values;
     }
 
     @Override
@@ -164,4 +264,25 @@ public class RestaurantTypeMapper extends AbstractMapper<RestaurantType> {
     protected String getCountQuery() {
         return "SELECT COUNT(*) FROM TYPES_GASTRONOMIQUES";
     }
+
+    /**
+     * Tient à jour la table des libellés après une création ou un renommage.
+     */
+    @Override
+    void afterWrite(RestaurantType type) {
+        typeIdsByLabel.values().remove(type.getId());
+        if (type.getLabel() != null) {
+            typeIdsByLabel.put(labelKey(type.getLabel()), type.getId());
+        }
+    }
+
+    /**
+     * Les restaurants du type ont été supprimés en cascade ; l'index de recherche, qui ne connaît pas
+     * les types, sera reconstruit.
+     */
+    @Override
+    void afterRemove(Integer id) {
+        typeIdsByLabel.values().remove(id);
+        RestaurantSearchIndex.getInstance().reset();
+    }
 }
@@ -0,0 +1,74 @@
+package ch.hearc.ig.guideresto.persistence;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Expose un ResultSet sous forme de {@link Stream} : les lignes sont lues au fur et à mesure de la consommation,
+ * par paquets de la taille de fetch du statement, sans jamais matérialiser tout le résultat.
+ * Le stream doit être fermé (try-with-resources) pour libérer le curseur côté serveur.
+ */
+final class ResultSetStream {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    /**
+     * Transforme la ligne courante d'un ResultSet en objet.
+     */
+    @FunctionalInterface
+    interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    private ResultSetStream() {
+    }
+
+    /**
+     * Exécute la requête et retourne un stream paresseux sur son résultat.
+     * Le statement est fermé avec le stream, ou immédiatement si l'exécution échoue.
+     * @param statement la requête préparée, dont la taille de fetch est déjà fixée
+     * @param rowMapper l'hydratation d'une ligne
+     */
+    static <T> Stream<T> of(PreparedStatement statement, RowMapper<T> rowMapper) throws SQLException {
+        ResultSet rs;
+        try {
+            rs = statement.executeQuery();
+        } catch (SQLException ex) {
+            statement.close();
+            throw ex;
+        }
+
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!rs.next()) {
+                        return false;
+                    }
+                    action.accept(rowMapper.map(rs));
+                    return true;
+                } catch (SQLException ex) {
+                    throw new RuntimeException("Erreur : " + ex.getMessage(), ex);
+                }
+            }
+        };
+
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try (statement; rs) {
+                // fermeture du curseur et du statement
+            } catch (SQLException ex) {
+                logger.error("Erreur lors de la fermeture du curseur : {}", ex.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,224 @@
+package ch.hearc.ig.guideresto.persistence;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Applique au schéma les migrations versionnées de {@code db/migration}, dans l'ordre de leur numéro de version,
+ * et enregistre chaque version appliquée dans la table SCHEMA_VERSION.
+ * <p>
+ * Les scripts, nommés {@code V<version>__<description>.sql}, sont listés dans {@code db/migration/migrations.list}.
+ * Une migration déjà enregistrée n'est jamais rejouée. Les instructions sont de plus idempotentes : un objet
+ * qui existe déjà (ou un index à supprimer qui n'existe plus) est ignoré, si bien qu'une migration interrompue
+ * peut être relancée. Les codes d'erreur reconnus sont ceux d'Oracle et de H2 en mode Oracle.
+ * <p>
+ * Une ligne {@value #ORACLE_ONLY} avant une instruction la réserve à Oracle (index fonctionnels, par exemple,
+ * que H2 ne connaît pas) : elle est ignorée sur une autre base.
+ */
+public class SchemaMigrator {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    private static final String MIGRATION_PATH = "db/migration/";
+    private static final String MIGRATION_LIST = MIGRATION_PATH + "migrations.list";
+    private static final String ORACLE_ONLY = "--#oracle";
+    private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+    /**
+     * ORA-00955 (nom déjà utilisé), ORA-01408 (colonnes déjà indexées), ORA-01418 (index inexistant),
+     * et leurs équivalents H2 : 42101 (table existante), 42111 (index existant), 42112 (index inexistant).
+     */
+    private static final Set<Integer> ALREADY_APPLIED_ERRORS = Set.of(955, 1408, 1418, 42101, 42111, 42112);
+
+    private static final String CREATE_HISTORY_TABLE = """
+            CREATE TABLE SCHEMA_VERSION (version number(10) NOT NULL, description varchar2(200) NOT NULL,
+                script varchar2(200) NOT NULL, installed_on timestamp NOT NULL, PRIMARY KEY (version))
+            """;
+
+    private record Migration(int version, String description, String script) {
+    }
+
+    private record SqlStatement(String sql, boolean oracleOnly) {
+    }
+
+    private final Connection connection;
+
+    public SchemaMigrator(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Applique toutes les migrations qui ne l'ont pas encore été.
+     * @return le nombre de migrations appliquées
+     */
+    public int migrate() throws SQLException {
+        return migrateTo(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Applique les migrations manquantes jusqu'à une version, incluse.
+     * @return le nombre de migrations appliquées
+     */
+    public int migrateTo(int targetVersion) throws SQLException {
+        createHistoryTable();
+        Set<Integer> applied = appliedVersions();
+
+        int count = 0;
+        for (Migration migration : availableMigrations()) {
+            if (migration.version() <= targetVersion && !applied.contains(migration.version())) {
+                apply(migration);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return la plus haute version appliquée, 0 si aucune
+     */
+    public int currentVersion() throws SQLException {
+        createHistoryTable();
+        try (PreparedStatement ps = connection.prepareStatement("SELECT NVL(MAX(version), 0) FROM SCHEMA_VERSION");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private void apply(Migration migration) throws SQLException {
+        logger.info("Migration du schéma vers la version {} : {}", migration.version(), migration.description());
+        boolean oracle = connection.getMetaData().getDatabaseProductName().toLowerCase().contains("oracle");
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            for (SqlStatement statement : statements(migration.script())) {
+                if (oracle || !statement.oracleOnly()) {
+                    execute(statement.sql());
+                }
+            }
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO SCHEMA_VERSION (version, description, script, installed_on) VALUES (?, ?, ?, ?)")) {
+                ps.setInt(1, migration.version());
+                ps.setString(2, migration.description());
+                ps.setString(3, migration.script());
+                ps.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+                ps.executeUpdate();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Exécute une instruction, en ignorant les erreurs qui indiquent qu'elle a déjà produit son effet.
+     */
+    private void execute(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        } catch (SQLException e) {
+            if (!ALREADY_APPLIED_ERRORS.contains(e.getErrorCode())) {
+                throw e;
+            }
+            logger.debug("Instruction déjà appliquée, ignorée : {} ({})", sql, e.getMessage());
+        }
+    }
+
+    private void createHistoryTable() throws SQLException {
+        execute(CREATE_HISTORY_TABLE);
+    }
+
+    private Set<Integer> appliedVersions() throws SQLException {
+        Set<Integer> versions = new HashSet<>();
+        try (PreparedStatement ps = connection.prepareStatement("SELECT version FROM SCHEMA_VERSION");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                versions.add(rs.getInt(1));
+            }
+        }
+        return versions;
+    }
+
+    private static List<Migration> availableMigrations() {
+        List<Migration> migrations = new ArrayList<>();
+        for (String line : readResource(MIGRATION_LIST).split("\\R")) {
+            String script = line.strip();
+            if (script.isEmpty() || script.startsWith("#")) {
+                continue;
+            }
+            Matcher matcher = SCRIPT_NAME.matcher(script);
+            if (!matcher.matches()) {
+                throw new IllegalStateException("Nom de migration invalide : " + script);
+            }
+            migrations.add(new Migration(Integer.parseInt(matcher.group(1)), matcher.group(2).replace('_', ' '), script));
+        }
+        migrations.sort(Comparator.comparingInt(Migration::version));
+        return migrations;
+    }
+
+    /**
+     * Découpe un script en instructions terminées par un point-virgule en fin de ligne, sans les lignes de commentaire.
+     */
+    private static List<SqlStatement> statements(String script) {
+        List<SqlStatement> statements = new ArrayList<>();
+        StringBuilder sql = new StringBuilder();
+        boolean oracleOnly = false;
+        for (String line : readResource(MIGRATION_PATH + script).split("\\R")) {
+            String trimmed = line.strip();
+            if (trimmed.equals(ORACLE_ONLY)) {
+                oracleOnly = true;
+            } else if (!trimmed.isEmpty() && !trimmed.startsWith("--")) {
+                sql.append(line).append('\n');
+                if (trimmed.endsWith(";")) {
+                    String statement = sql.toString().strip();
+                    statements.add(new SqlStatement(statement.substring(0, statement.length() - 1), oracleOnly));
+                    sql.setLength(0);
+                    oracleOnly = false;
+                }
+            }
+        }
+        if (!sql.isEmpty()) {
+            statements.add(new SqlStatement(sql.toString().strip(), oracleOnly));
+        }
+        return statements;
+    }
+
+    private static String readResource(String name) {
+        InputStream input = SchemaMigrator.class.getClassLoader().getResourceAsStream(name);
+        if (input == null) {
+            throw new IllegalStateException("Ressource introuvable : " + name);
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            StringBuilder content = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                content.append(line).append('\n');
+            }
+            return content.toString();
+        } catch (IOException e) {
+            throw new IllegalStateException("Impossible de lire " + name + " : " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package ch.hearc.ig.guideresto.persistence;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache de second niveau, partagé par tous les {@link PersistanceContext} de l'application.
+ * Il se place sous les mappers : lorsqu'une entité n'est pas dans l'identity map du contexte,
+ * sa ligne est recherchée ici avant d'interroger la base. Seules des copies immuables des lignes
+ * ({@link CachedRow}) sont partagées, chaque contexte hydratant ses propres instances.
+ * <p>
+ * Chaque type d'entité dispose de sa propre région, avec un nombre maximal d'entrées (éviction LRU)
+ * et une durée de vie. La configuration est lue dans {@code cache.properties} :
+ * {@code cache.enabled}, {@code cache.default.maxEntries}, {@code cache.default.ttlSeconds},
+ * puis {@code cache.<Entité>.maxEntries} / {@code cache.<Entité>.ttlSeconds} pour surcharger une région
+ * ({@code cache.<Entité>.enabled=false} pour la désactiver).
+ */
+public class SecondLevelCache {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    private static final SecondLevelCache instance = new SecondLevelCache();
+
+    private final Map<Class<?>, Region> regions = new ConcurrentHashMap<>();
+    private final ResourceBundle config;
+    private final boolean enabled;
+
+    private SecondLevelCache() {
+        ResourceBundle bundle = null;
+        try {
+            bundle = ResourceBundle.getBundle("cache");
+        } catch (MissingResourceException ex) {
+            logger.info("Aucun fichier cache.properties : cache de second niveau désactivé");
+        }
+        this.config = bundle;
+        this.enabled = bundle != null && Boolean.parseBoolean(getString("cache.enabled", "false"));
+    }
+
+    public static SecondLevelCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Retourne la région associée à un type d'entité.
+     * @return la région, ou null si le cache est désactivé pour ce type
+     */
+    public Region region(Class<?> entityClass) {
+        if (!enabled) {
+            return null;
+        }
+        Region region = regions.computeIfAbsent(entityClass, this::createRegion);
+        return region.maxEntries > 0 ? region : null;
+    }
+
+    /**
+     * Vide toutes les régions.
+     */
+    public void clear() {
+        for (Region region : regions.values()) {
+            region.clear();
+        }
+    }
+
+    /**
+     * @return les statistiques de chaque région, par nom d'entité
+     */
+    public Map<String, CacheStatistics> getStatistics() {
+        Map<String, CacheStatistics> statistics = new TreeMap<>();
+        for (Map.Entry<Class<?>, Region> entry : regions.entrySet()) {
+            statistics.put(entry.getKey().getSimpleName(), entry.getValue().getStatistics());
+        }
+        return statistics;
+    }
+
+    private Region createRegion(Class<?> entityClass) {
+        String name = entityClass.getSimpleName();
+        boolean regionEnabled = Boolean.parseBoolean(getString("cache." + name + ".enabled", "true"));
+        int maxEntries = regionEnabled ? Integer.parseInt(getString("cache." + name + ".maxEntries",
+                getString("cache.default.maxEntries", "10000"))) : 0;
+        long ttlSeconds = Long.parseLong(getString("cache." + name + ".ttlSeconds",
+                getString("cache.default.ttlSeconds", "300")));
+        return new Region(maxEntries, TimeUnit.SECONDS.toMillis(ttlSeconds));
+    }
+
+    private String getString(String key, String defaultValue) {
+        return config != null && config.containsKey(key) ? config.getString(key).trim() : defaultValue;
+    }
+
+    /**
+     * Région du cache dédiée à un type d'entité : table LRU bornée dont les entrées expirent après leur TTL.
+     */
+    public static class Region {
+
+        private final int maxEntries;
+        private final long ttlMillis;
+        private final LinkedHashMap<Integer, Entry> entries;
+
+        private long hits;
+        private long misses;
+        private long evictions;
+        private long loads;
+        private long totalLoadNanos;
+        private long invalidations;
+
+        private record Entry(CachedRow row, long expiresAt) {
+        }
+
+        private Region(int maxEntries, long ttlMillis) {
+            this.maxEntries = maxEntries;
+            this.ttlMillis = ttlMillis;
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                    if (size() > Region.this.maxEntries) {
+                        evictions++;
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        /**
+         * @return la ligne en cache, ou null si elle est absente ou expirée
+         */
+        public synchronized CachedRow get(Integer id) {
+            Entry entry = entries.get(id);
+            if (entry != null && entry.expiresAt() < System.currentTimeMillis()) {
+                entries.remove(id);
+                evictions++;
+                entry = null;
+            }
+            if (entry == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+            return entry.row();
+        }
+
+        /**
+         * @return un jeton à relever avant de lire une ligne en base, puis à passer à {@link #put}
+         */
+        public synchronized long stamp() {
+            return invalidations;
+        }
+
+        /**
+         * Ajoute une ligne qui vient d'être lue en base. Elle est ignorée si une invalidation a eu lieu depuis
+         * le relevé du jeton : la lecture a pu précéder un commit, et la ligne être déjà périmée.
+         * @param stamp le jeton relevé avant la lecture
+         * @param loadNanos le temps passé à la lire, pour les statistiques
+         */
+        public synchronized void put(Integer id, CachedRow row, long stamp, long loadNanos) {
+            loads++;
+            totalLoadNanos += loadNanos;
+            if (stamp == invalidations) {
+                entries.put(id, new Entry(row, System.currentTimeMillis() + ttlMillis));
+            }
+        }
+
+        public synchronized void invalidate(Integer id) {
+            entries.remove(id);
+            invalidations++;
+        }
+
+        public synchronized void clear() {
+            entries.clear();
+            invalidations++;
+        }
+
+        public synchronized CacheStatistics getStatistics() {
+            return new CacheStatistics(entries.size(), hits, misses, evictions, loads,
+                    TimeUnit.NANOSECONDS.toMillis(totalLoadNanos));
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package ch.hearc.ig.guideresto.persistence;
+
+import ch.hearc.ig.guideresto.business.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Unité de travail d'un {@link PersistanceContext} : enregistre les objets créés, modifiés et supprimés,
+ * puis les écrit tous lors de {@link #commit()}, dans une seule transaction et par lots JDBC.
+ * <p>
+ * Chaque objet chargé dans le contexte est photographié (valeurs de ses colonnes) ; lors du commit,
+ * seules les colonnes dont la valeur a réellement changé depuis cette photographie sont mises à jour.
+ * Les écritures suivent l'ordre des dépendances entre tables (un objet est inséré après ceux qu'il référence,
+ * les suppressions se font dans l'ordre inverse).
+ */
+public class UnitOfWork {
+
+    private static final List<Class<? extends IBusinessObject>> WRITE_ORDER = List.of(
+            City.class,
+            RestaurantType.class,
+            EvaluationCriteria.class,
+            Restaurant.class,
+            CompleteEvaluation.class,
+            Grade.class,
+            BasicEvaluation.class);
+
+    private final PersistanceContext persistanceContext;
+
+    private final Map<IBusinessObject, Map<String, Object>> snapshots = new IdentityHashMap<>();
+    private final Set<IBusinessObject> newObjects = new LinkedHashSet<>();
+    private final Set<IBusinessObject> dirtyObjects = new LinkedHashSet<>();
+    private final Set<IBusinessObject> removedObjects = new LinkedHashSet<>();
+
+    UnitOfWork(PersistanceContext persistanceContext) {
+        this.persistanceContext = persistanceContext;
+    }
+
+    /**
+     * Enregistre un objet à insérer ; son identifiant sera attribué lors du commit.
+     */
+    public void registerNew(IBusinessObject object) {
+        if (object.getId() != null) {
+            throw new IllegalArgumentException("Un nouvel objet ne doit pas encore avoir d'identifiant");
+        }
+        newObjects.add(object);
+    }
+
+    /**
+     * Enregistre un objet modifié. Sans effet s'il est déjà à insérer ou à supprimer.
+     */
+    public void registerDirty(IBusinessObject object) {
+        if (object.getId() == null) {
+            throw new IllegalArgumentException("Un objet modifié doit déjà avoir un identifiant");
+        }
+        if (!newObjects.contains(object) && !removedObjects.contains(object)) {
+            dirtyObjects.add(object);
+        }
+    }
+
+    /**
+     * Enregistre un objet à supprimer. Un objet qui n'avait pas encore été inséré est simplement oublié.
+     */
+    public void registerRemoved(IBusinessObject object) {
+        if (newObjects.remove(object)) {
+            return;
+        }
+        dirtyObjects.remove(object);
+        removedObjects.add(object);
+    }
+
+    /**
+     * Photographie l'état d'un objet tel qu'il est en base, référence pour la détection des modifications.
+     * Appelé par les mappers lorsqu'un objet est chargé ou écrit.
+     */
+    void registerClean(IBusinessObject object) {
+        snapshots.put(object, mapperFor(object).getColumnValues(object));
+    }
+
+    public boolean hasChanges() {
+        return !newObjects.isEmpty() || !dirtyObjects.isEmpty() || !removedObjects.isEmpty();
+    }
+
+    /**
+     * Oublie toutes les modifications enregistrées et non encore écrites.
+     */
+    public void clear() {
+        newObjects.clear();
+        dirtyObjects.clear();
+        removedObjects.clear();
+    }
+
+    /**
+     * Écrit toutes les modifications enregistrées. Si la connexion est déjà dans une transaction
+     * (auto-commit désactivé), les écritures y sont ajoutées sans la valider ; sinon une transaction
+     * est ouverte puis validée, ou annulée en cas d'erreur.
+     */
+    public void commit() {
+        if (!hasChanges()) {
+            return;
+        }
+
+        Connection connection = persistanceContext.getConnection();
+        try {
+            boolean ownTransaction = connection.getAutoCommit();
+            if (ownTransaction) {
+                connection.setAutoCommit(false);
+            }
+            try {
+                for (Class<? extends IBusinessObject> type : WRITE_ORDER) {
+                    insertAll(connection, type);
+                }
+                for (Class<? extends IBusinessObject> type : WRITE_ORDER) {
+                    updateAll(connection, type);
+                }
+                for (Class<? extends IBusinessObject> type : WRITE_ORDER.reversed()) {
+                    deleteAll(connection, type);
+                }
+                refreshRatingSummaries();
+                countLikes();
+                if (ownTransaction) {
+                    connection.commit();
+                    persistanceContext.runAfterCommitActions();
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (ownTransaction) {
+                    connection.rollback();
+                    persistanceContext.discardAfterCommitActions();
+                }
+                for (IBusinessObject object : newObjects) {
+                    object.setId(null);
+                }
+                throw e;
+            } finally {
+                if (ownTransaction) {
+                    connection.setAutoCommit(true);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur : " + e.getMessage(), e);
+        }
+
+        afterWrites();
+    }
+
+    /**
+     * Met à jour l'identity map et les photographies une fois les écritures effectuées. Le cache de second
+     * niveau et les index en mémoire, partagés entre les contextes, ne sont mis à jour qu'après le commit
+     * de la transaction qui englobe ces écritures.
+     */
+    private void afterWrites() {
+        for (IBusinessObject object : newObjects) {
+            mapperFor(object).addToCache(object);
+            mapperFor(object).written(object);
+            registerClean(object);
+        }
+        for (IBusinessObject object : dirtyObjects) {
+            mapperFor(object).invalidateSecondLevelCache(object.getId());
+            mapperFor(object).written(object);
+            registerClean(object);
+        }
+        for (IBusinessObject object : removedObjects) {
+            mapperFor(object).removeFromCache(object.getId());
+            mapperFor(object).removed(object.getId());
+            snapshots.remove(object);
+        }
+        clear();
+    }
+
+    /**
+     * Recalcule, dans la même transaction, la synthèse des notes des restaurants touchés par les évaluations
+     * et notes écrites, y compris le restaurant d'origine d'une évaluation déplacée.
+     */
+    private void refreshRatingSummaries() {
+        Set<Integer> restaurantIds = new LinkedHashSet<>();
+        for (Set<IBusinessObject> objects : List.of(newObjects, dirtyObjects, removedObjects)) {
+            for (IBusinessObject object : objects) {
+                Restaurant restaurant = switch (object) {
+                    case CompleteEvaluation evaluation -> evaluation.getRestaurant();
+                    case BasicEvaluation evaluation -> evaluation.getRestaurant();
+                    case Grade grade -> grade.getEvaluation() == null ? null : grade.getEvaluation().getRestaurant();
+                    default -> null;
+                };
+                if (restaurant != null && restaurant.getId() != null) {
+                    restaurantIds.add(restaurant.getId());
+                }
+                Map<String, Object> snapshot = snapshots.get(object);
+                if (snapshot != null && snapshot.get("FK_REST") instanceof Integer previousRestaurantId) {
+                    restaurantIds.add(previousRestaurantId);
+                }
+            }
+        }
+
+        RatingSummaryMapper ratingSummaryMapper = persistanceContext.getRatingSummaryMapper();
+        for (Integer restaurantId : restaurantIds) {
+            ratingSummaryMapper.refresh(restaurantId);
+        }
+    }
+
+    /**
+     * Reporte les appréciations insérées, modifiées et supprimées sur les compteurs de likes en mémoire,
+     * une fois la transaction validée. Une appréciation modifiée est retirée selon sa photographie.
+     */
+    private void countLikes() {
+        BasicEvaluationMapper mapper = persistanceContext.getBasicEvaluationMapper();
+        for (IBusinessObject object : newObjects) {
+            if (object instanceof BasicEvaluation evaluation) {
+                countLike(mapper, mapper.getColumnValues(evaluation), 1);
+            }
+        }
+        for (IBusinessObject object : dirtyObjects) {
+            if (object instanceof BasicEvaluation evaluation) {
+                countLike(mapper, snapshots.get(object), -1);
+                countLike(mapper, mapper.getColumnValues(evaluation), 1);
+            }
+        }
+        for (IBusinessObject object : removedObjects) {
+            if (object instanceof BasicEvaluation evaluation) {
+                Map<String, Object> snapshot = snapshots.get(object);
+                countLike(mapper, snapshot != null ? snapshot : mapper.getColumnValues(evaluation), -1);
+            }
+        }
+    }
+
+    private static void countLike(BasicEvaluationMapper mapper, Map<String, Object> values, int delta) {
+        if (values != null && values.get("FK_REST") instanceof Integer restaurantId) {
+            mapper.countLike(restaurantId, "Y".equals(values.get("APPRECIATION")), delta);
+        }
+    }
+
+    private void insertAll(Connection connection, Class<? extends IBusinessObject> type) throws SQLException {
+        List<IBusinessObject> objects = select(newObjects, type);
+        if (objects.isEmpty()) {
+            return;
+        }
+
+        AbstractMapper<IBusinessObject> mapper = mapperFor(objects.get(0));
+        List<Integer> ids = mapper.getSequenceValues(objects.size());
+        for (int i = 0; i < objects.size(); i++) {
+            objects.get(i).setId(ids.get(i));
+        }
+
+        List<String> columns = new ArrayList<>(mapper.getColumnValues(objects.get(0)).keySet());
+        String sql = "INSERT INTO " + mapper.getTableName() + " (NUMERO, " + String.join(", ", columns)
+                + ") VALUES (?" + ", ?".repeat(columns.size()) + ")";
+
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            for (IBusinessObject object : objects) {
+                Map<String, Object> values = mapper.getColumnValues(object);
+                stmt.setInt(1, object.getId());
+                for (int i = 0; i < columns.size(); i++) {
+                    bind(stmt, i + 2, values.get(columns.get(i)));
+                }
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private void updateAll(Connection connection, Class<? extends IBusinessObject> type) throws SQLException {
+        List<IBusinessObject> objects = select(dirtyObjects, type);
+        if (objects.isEmpty()) {
+            return;
+        }
+
+        AbstractMapper<IBusinessObject> mapper = mapperFor(objects.get(0));
+
+        // Un lot par combinaison de colonnes modifiées
+        Map<List<String>, List<IBusinessObject>> batches = new LinkedHashMap<>();
+        for (IBusinessObject object : objects) {
+            Map<String, Object> values = mapper.getColumnValues(object);
+            Map<String, Object> snapshot = snapshots.get(object);
+            List<String> changed = new ArrayList<>();
+            for (Map.Entry<String, Object> entry : values.entrySet()) {
+                if (snapshot == null || !Objects.equals(snapshot.get(entry.getKey()), entry.getValue())) {
+                    changed.add(entry.getKey());
+                }
+            }
+            if (!changed.isEmpty()) {
+                batches.computeIfAbsent(changed, key -> new ArrayList<>()).add(object);
+            }
+        }
+
+        for (Map.Entry<List<String>, List<IBusinessObject>> batch : batches.entrySet()) {
+            List<String> columns = batch.getKey();
+            String sql = "UPDATE " + mapper.getTableName() + " SET " + String.join(" = ?, ", columns) + " = ? WHERE NUMERO = ?";
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                for (IBusinessObject object : batch.getValue()) {
+                    Map<String, Object> values = mapper.getColumnValues(object);
+                    for (int i = 0; i < columns.size(); i++) {
+                        bind(stmt, i + 1, values.get(columns.get(i)));
+                    }
+                    stmt.setInt(columns.size() + 1, object.getId());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+        }
+    }
+
+    private void deleteAll(Connection connection, Class<? extends IBusinessObject> type) throws SQLException {
+        List<IBusinessObject> objects = select(removedObjects, type);
+        if (objects.isEmpty()) {
+            return;
+        }
+
+        AbstractMapper<IBusinessObject> mapper = mapperFor(objects.get(0));
+        try (PreparedStatement stmt = connection.prepareStatement("DELETE FROM " + mapper.getTableName() + " WHERE NUMERO = ?")) {
+            for (IBusinessObject object : objects) {
+                stmt.setInt(1, object.getId());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private static List<IBusinessObject> select(Set<IBusinessObject> objects, Class<? extends IBusinessObject> type) {
+        List<IBusinessObject> selected = new ArrayList<>();
+        for (IBusinessObject object : objects) {
+            if (type.isInstance(object)) {
+                selected.add(object);
+            }
+        }
+        return selected;
+    }
+
+    private static void bind(PreparedStatement stmt, int index, Object value) throws SQLException {
+        if (value == null) {
+            stmt.setNull(index, Types.VARCHAR);
+        } else {
+            stmt.setObject(index, value);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private AbstractMapper<IBusinessObject> mapperFor(IBusinessObject object) {
+        return (AbstractMapper<IBusinessObject>) persistanceContext.mapperFor(object);
+    }
+}
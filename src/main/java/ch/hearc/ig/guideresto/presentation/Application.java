@@ -1,15 +1,20 @@
 package ch.hearc.ig.guideresto.presentation;
 
 import ch.hearc.ig.guideresto.business.*;
+import ch.hearc.ig.guideresto.persistence.ConnectionUtils;
+import ch.hearc.ig.guideresto.persistence.Page;
+import ch.hearc.ig.guideresto.persistence.PageRequest;
 import ch.hearc.ig.guideresto.service.EvaluationService;
 import ch.hearc.ig.guideresto.persistence.PersistanceContext;
 import ch.hearc.ig.guideresto.service.RestaurantService;
+import ch.hearc.ig.guideresto.service.ServiceExecutor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.net.Inet4Address;
 import java.net.UnknownHostException;
 import java.util.*;
+import java.util.function.Function;
 
 /**
  * @author cedric.baudet
@@ -19,6 +24,8 @@ public class Application {
 
     private static Scanner scanner;
     private static final Logger logger = LogManager.getLogger(Application.class);
+    private static final int PAGE_SIZE = 20;
+    private static final int SUGGESTION_COUNT = 10;
 
     private static RestaurantService restaurantService;
     private static EvaluationService evaluationService;
@@ -31,10 +38,11 @@ public class Application {
     }
 
     public static void main(String[] args) {
-        try (PersistanceContext persistanceContext = new PersistanceContext()) {
+        try (PersistanceContext persistanceContext = PersistanceContext.open()) {
 
             restaurantService = new RestaurantService(persistanceContext);
             evaluationService = new EvaluationService(persistanceContext);
+            restaurantService.buildSearchIndex();
 
             scanner = new Scanner(System.in);
 
@@ -47,6 +55,9 @@ public class Application {
             } while (choice != 0);
         } catch (Exception e) {
             System.err.println("Erreur au démarrage de l'application : " + e.getMessage());
+        } finally {
+            ServiceExecutor.shutdown();
+            ConnectionUtils.closeConnection();
         }
     }
 
@@ -101,33 +112,100 @@ public class Application {
      * @param restaurants Liste à afficher
      * @return L'instance du restaurant choisi par l'utilisateur
      */
-    private static Restaurant pickRestaurant(Set<Restaurant> restaurants) {
+    private static Restaurant pickRestaurant(List<RestaurantSummary> restaurants) {
         if (restaurants.isEmpty()) {
             System.out.println("Aucun restaurant n'a été trouvé !");
             return null;
         }
 
-        String result;
-        for (Restaurant currentRest : restaurants) {
-            result = "";
-            result = "\"" + result + currentRest.getName() + "\" - " + currentRest.getAddress().getStreet() + " - ";
-            result = result + currentRest.getAddress().getCity().getZipCode() + " " + currentRest.getAddress().getCity().getCityName();
-            System.out.println(result);
+        for (RestaurantSummary currentRest : restaurants) {
+            printRestaurantLine(currentRest);
         }
 
-        System.out.println("Veuillez saisir le nom exact du restaurant dont vous voulez voir le détail, ou appuyez sur Enter pour revenir en arrière");
+        System.out.println("Veuillez saisir le nom exact du restaurant dont vous voulez voir le détail, le début d'un nom suivi de \"?\" pour des suggestions, ou appuyez sur Enter pour revenir en arrière");
         String choice = readString();
 
+        if (choice.endsWith("?")) {
+            return pickSuggestion(choice.substring(0, choice.length() - 1));
+        }
         return restaurantService.getRestaurantByExactName(choice);
     }
 
+    /**
+     * On affiche à l'utilisateur les restaurants page par page, triés par nom, et il doit en sélectionner un !
+     *
+     * @param pages Fonction qui charge une page de restaurants
+     * @return L'instance du restaurant choisi par l'utilisateur
+     */
+    private static Restaurant pickRestaurant(Function<PageRequest, Page<RestaurantSummary>> pages) {
+        PageRequest request = PageRequest.first(PageRequest.Sort.BY_NAME, PAGE_SIZE);
+        while (true) {
+            Page<RestaurantSummary> page = pages.apply(request);
+            if (page.content().isEmpty() && request.cursor() == null) {
+                System.out.println("Aucun restaurant n'a été trouvé !");
+                return null;
+            }
+
+            for (RestaurantSummary currentRest : page.content()) {
+                printRestaurantLine(currentRest);
+            }
+
+            if (page.hasNext()) {
+                System.out.println("Veuillez saisir le nom exact du restaurant dont vous voulez voir le détail, le début d'un nom suivi de \"?\" pour des suggestions, \"+\" pour la page suivante, ou appuyez sur Enter pour revenir en arrière");
+            } else {
+                System.out.println("Veuillez saisir le nom exact du restaurant dont vous voulez voir le détail, le début d'un nom suivi de \"?\" pour des suggestions, ou appuyez sur Enter pour revenir en arrière");
+            }
+            String choice = readString();
+
+            if (page.hasNext() && choice.equals("+")) {
+                request = request.next(page);
+            } else if (choice.endsWith("?")) {
+                return pickSuggestion(choice.substring(0, choice.length() - 1));
+            } else {
+                return restaurantService.getRestaurantByExactName(choice);
+            }
+        }
+    }
+
+    /**
+     * On propose à l'utilisateur les restaurants les plus aimés dont le nom commence par le préfixe saisi,
+     * et il en choisit un par son numéro.
+     *
+     * @param prefix Le début du nom saisi par l'utilisateur
+     * @return L'instance du restaurant choisi, ou null si aucun restaurant n'a été choisi
+     */
+    private static Restaurant pickSuggestion(String prefix) {
+        List<RestaurantSuggestion> suggestions = restaurantService.suggestRestaurants(prefix.trim(), SUGGESTION_COUNT);
+        if (suggestions.isEmpty()) {
+            System.out.println("Aucun restaurant ne commence par \"" + prefix.trim() + "\" !");
+            return null;
+        }
+
+        for (int i = 0; i < suggestions.size(); i++) {
+            RestaurantSuggestion suggestion = suggestions.get(i);
+            System.out.println((i + 1) + ". " + suggestion.name() + " (" + suggestion.popularity() + " like(s))");
+        }
+        System.out.println("Veuillez saisir le numéro du restaurant dont vous voulez voir le détail, ou 0 pour revenir en arrière");
+        int choice = readInt();
+
+        if (choice < 1 || choice > suggestions.size()) {
+            return null;
+        }
+        return restaurantService.getRestaurantById(suggestions.get(choice - 1).restaurantId());
+    }
+
+    private static void printRestaurantLine(RestaurantSummary restaurant) {
+        String result = "\"" + restaurant.name() + "\" - " + restaurant.street() + " - ";
+        result = result + restaurant.zipCode() + " " + restaurant.cityName();
+        System.out.println(result);
+    }
+
     /**
      * Affiche la liste de tous les restaurants, sans filtre
      */
     private static void showRestaurantsList() {
         System.out.println("Liste des restaurants : ");
-        Set<Restaurant> restaurants = restaurantService.getAllRestaurants();
-        Restaurant restaurant = pickRestaurant(restaurants);
+        Restaurant restaurant = pickRestaurant(restaurantService::getRestaurantSummaries);
 
         if (restaurant != null) {
             showRestaurant(restaurant);
@@ -142,9 +220,7 @@ public class Application {
         System.out.println("Veuillez entrer une partie du nom recherché : ");
         String research = readString();
 
-        Set<Restaurant> filteredList = restaurantService.getRestaurantsByName(research);
-
-        Restaurant restaurant = pickRestaurant(filteredList);
+        Restaurant restaurant = pickRestaurant(request -> restaurantService.getRestaurantSummariesByName(research, request));
 
         if (restaurant != null) {
             showRestaurant(restaurant);
@@ -157,8 +233,7 @@ public class Application {
     private static void searchRestaurantsByCity() {
         System.out.println("Veuillez entrer une partie du nom de la ville désirée : ");
         String research = readString();
-        Set<Restaurant> filteredList = restaurantService.getRestaurantsByCity(research);
-        Restaurant restaurant = pickRestaurant(filteredList);
+        Restaurant restaurant = pickRestaurant(request -> restaurantService.getRestaurantSummariesByCity(research, request));
 
         if (restaurant != null) {
             showRestaurant(restaurant);
@@ -215,13 +290,13 @@ public class Application {
      */
     private static void searchRestaurantsByType() {
         RestaurantType chosenType = pickRestaurantType(restaurantService.getAllRestaurantsTypes());
-        Set<Restaurant> filteredList = restaurantService.getRestaurantsByType(chosenType);
         if (chosenType == null) {
             System.out.println("Aucun type sélectionné. Retour au menu principal.");
             return;
         }
 
-        if (filteredList.isEmpty() || filteredList == null) {
+        List<RestaurantSummary> filteredList = restaurantService.getRestaurantSummariesByType(chosenType);
+        if (filteredList.isEmpty()) {
             System.out.println("Aucun restaurant trouvé pour le type choisi.");
             return;
         }
@@ -280,23 +355,33 @@ public class Application {
         sb.append(restaurant.getAddress().getCity().getZipCode()).append(" ").append(restaurant.getAddress().getCity().getCityName()).append("\n");
 
         Integer id = restaurant.getId();
-        if (id != null) {
+        RestaurantDetails details = id != null ? restaurantService.loadDetails(id) : null;
+        if (details != null) {
+            LikeStats likeStats = details.likeStats();
             sb.append("Nombre de likes : ")
-                    .append(evaluationService.countLikesForRestaurant(id, true))
+                    .append(likeStats.likes())
                     .append("\n");
             sb.append("Nombre de dislikes : ")
-                    .append(evaluationService.countLikesForRestaurant(id, false))
+                    .append(likeStats.dislikes())
                     .append("\n");
+
+            RestaurantRatings ratings = details.ratings();
+            if (ratings.overall().count() > 0) {
+                sb.append(String.format("Note moyenne : %.1f/5 (%d notes)", ratings.overall().average(), ratings.overall().count()))
+                        .append("\n");
+                for (Map.Entry<EvaluationCriteria, RatingStats> entry : ratings.byCriteria().entrySet()) {
+                    sb.append(String.format("  %s : %.1f/5", entry.getKey().getName(), entry.getValue().average()))
+                            .append("\n");
+                }
+            }
         } else {
             sb.append("Nombre de likes : N/A (non encore enregistré)").append("\n");
             sb.append("Nombre de dislikes : N/A").append("\n");
         }
         sb.append("\nEvaluations reçues : ").append("\n");
-        String text;
-        for (Evaluation currentEval : restaurant.getEvaluations()) {
-            text = getCompleteEvaluationDescription(currentEval);
-            if (text != null) {
-                sb.append(text).append("\n");
+        if (details != null) {
+            for (CompleteEvaluation currentEval : details.evaluations()) {
+                sb.append(getCompleteEvaluationDescription(currentEval)).append("\n");
             }
         }
 
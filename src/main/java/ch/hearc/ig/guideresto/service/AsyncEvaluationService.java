@@ -0,0 +1,62 @@
+package ch.hearc.ig.guideresto.service;
+
+import ch.hearc.ig.guideresto.business.EvaluationCriteria;
+import ch.hearc.ig.guideresto.business.LikeStats;
+import ch.hearc.ig.guideresto.business.Restaurant;
+import ch.hearc.ig.guideresto.business.RestaurantRatings;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Variante asynchrone des lectures de {@link EvaluationService}, exécutées comme celles
+ * d'{@link AsyncRestaurantService} sur un thread virtuel et une connexion propres à chaque appel.
+ */
+public class AsyncEvaluationService implements IAsyncEvaluationService {
+
+    private final ServiceExecutor executor;
+
+    public AsyncEvaluationService() {
+        this(ServiceExecutor.getInstance());
+    }
+
+    public AsyncEvaluationService(ServiceExecutor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<Set<EvaluationCriteria>> getAllCriteria() {
+        return submit(EvaluationService::getAllCriteria);
+    }
+
+    @Override
+    public CompletableFuture<LikeStats> getLikeStats(int restaurantId) {
+        return submit(service -> service.getLikeStats(restaurantId));
+    }
+
+    @Override
+    public CompletableFuture<Map<Integer, LikeStats>> getLikeStats(Collection<Restaurant> restaurants) {
+        // Copie faite par l'appelant : la collection peut changer pendant que la tâche attend son tour
+        List<Restaurant> copy = List.copyOf(restaurants);
+        return submit(service -> service.getLikeStats(copy));
+    }
+
+    @Override
+    public CompletableFuture<RestaurantRatings> getRatings(Restaurant restaurant) {
+        return submit(service -> service.getRatings(restaurant));
+    }
+
+    @Override
+    public CompletableFuture<Map<Integer, RestaurantRatings>> getRatings(Collection<Restaurant> restaurants) {
+        List<Restaurant> copy = List.copyOf(restaurants);
+        return submit(service -> service.getRatings(copy));
+    }
+
+    private <R> CompletableFuture<R> submit(Function<EvaluationService, R> call) {
+        return executor.submit(context -> call.apply(new EvaluationService(context)));
+    }
+}
@@ -0,0 +1,106 @@
+package ch.hearc.ig.guideresto.service;
+
+import ch.hearc.ig.guideresto.business.City;
+import ch.hearc.ig.guideresto.business.Restaurant;
+import ch.hearc.ig.guideresto.business.RestaurantSuggestion;
+import ch.hearc.ig.guideresto.business.RestaurantSummary;
+import ch.hearc.ig.guideresto.business.RestaurantType;
+import ch.hearc.ig.guideresto.persistence.Page;
+import ch.hearc.ig.guideresto.persistence.PageRequest;
+import ch.hearc.ig.guideresto.persistence.PersistanceContext;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Variante asynchrone de {@link RestaurantService} : chaque appel s'exécute sur un thread virtuel du
+ * {@link ServiceExecutor}, avec son propre contexte de persistance et sa propre connexion, si bien que
+ * plusieurs appels peuvent être lancés en même temps puis combinés.
+ * <p>
+ * Le contexte d'un appel est fermé à la fin de celui-ci : les évaluations d'un restaurant retourné sont
+ * chargées avant, mais les restaurants des villes et des types ne le sont pas et ne peuvent plus l'être.
+ * Les modifications d'objets existants restent du ressort du service synchrone et de son unité de travail.
+ */
+public class AsyncRestaurantService implements IAsyncRestaurantService {
+
+    private final ServiceExecutor executor;
+
+    public AsyncRestaurantService() {
+        this(ServiceExecutor.getInstance());
+    }
+
+    public AsyncRestaurantService(ServiceExecutor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<Page<RestaurantSummary>> getRestaurantSummaries(PageRequest request) {
+        return submit(service -> service.getRestaurantSummaries(request));
+    }
+
+    @Override
+    public CompletableFuture<Page<RestaurantSummary>> getRestaurantSummariesByName(String research, PageRequest request) {
+        return submit(service -> service.getRestaurantSummariesByName(research, request));
+    }
+
+    @Override
+    public CompletableFuture<Page<RestaurantSummary>> getRestaurantSummariesByCity(String research, PageRequest request) {
+        return submit(service -> service.getRestaurantSummariesByCity(research, request));
+    }
+
+    @Override
+    public CompletableFuture<List<RestaurantSummary>> getRestaurantSummariesByType(RestaurantType restaurantType) {
+        return submit(service -> service.getRestaurantSummariesByType(restaurantType));
+    }
+
+    @Override
+    public CompletableFuture<List<RestaurantSuggestion>> suggestRestaurants(String prefix, int limit) {
+        return submit(service -> service.suggestRestaurants(prefix, limit));
+    }
+
+    @Override
+    public CompletableFuture<Restaurant> getRestaurantById(int id) {
+        return executor.submit(context -> initialized(context, new RestaurantService(context).getRestaurantById(id)));
+    }
+
+    @Override
+    public CompletableFuture<Restaurant> getRestaurantByExactName(String name) {
+        return executor.submit(context -> initialized(context, new RestaurantService(context).getRestaurantByExactName(name)));
+    }
+
+    @Override
+    public CompletableFuture<Set<RestaurantType>> getAllRestaurantsTypes() {
+        return submit(RestaurantService::getAllRestaurantsTypes);
+    }
+
+    @Override
+    public CompletableFuture<RestaurantType> getRestaurantTypeByLabel(String label) {
+        return submit(service -> service.getRestaurantTypeByLabel(label));
+    }
+
+    @Override
+    public CompletableFuture<Set<City>> getAllCities() {
+        return submit(RestaurantService::getAllCities);
+    }
+
+    @Override
+    public CompletableFuture<City> createCity(String zipCode, String cityName) {
+        return submit(service -> service.createCity(zipCode, cityName));
+    }
+
+    private <R> CompletableFuture<R> submit(Function<RestaurantService, R> call) {
+        return executor.submit(context -> call.apply(new RestaurantService(context)));
+    }
+
+    /**
+     * Charge les évaluations du restaurant tant que son contexte est encore ouvert.
+     */
+    private static Restaurant initialized(PersistanceContext context, Restaurant restaurant) {
+        if (restaurant != null) {
+            context.initialize(restaurant.getEvaluations());
+        }
+        return restaurant;
+    }
+}
@@ -4,7 +4,11 @@ import ch.hearc.ig.guideresto.persistence.*;
 import ch.hearc.ig.guideresto.business.*;
 
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -13,20 +17,24 @@ public class EvaluationService implements IEvaluationService{
     private final BasicEvaluationMapper basicEvaluationMapper;
     private final EvaluationCriteriaMapper evaluationCriteriaMapper;
     private final CompleteEvaluationMapper completeEvaluationMapper;
-    private final GradeMapper gradeMapper;
+    private final RatingSummaryMapper ratingSummaryMapper;
+    private final PersistanceContext persistanceContext;
+    private final LikeCounterStore likeCounters = LikeCounterStore.getInstance();
 
 
     public EvaluationService(PersistanceContext persistanceContext) {
+        this.persistanceContext = persistanceContext;
         this.basicEvaluationMapper = persistanceContext.getBasicEvaluationMapper();
         this.evaluationCriteriaMapper = persistanceContext.getEvaluationCriteriaMapper();
         this.completeEvaluationMapper = persistanceContext.getCompleteEvaluationMapper();
-        this.gradeMapper = persistanceContext.getGradeMapper();
+        this.ratingSummaryMapper = persistanceContext.getRatingSummaryMapper();
     }
 
     @Override
     public void addBasicEvaluation(Restaurant restaurant, Boolean like, String ipAddress) {
-        BasicEvaluation eval = new BasicEvaluation(null, new Date(), restaurant, like, ipAddress);
-        eval = basicEvaluationMapper.create(eval);
+        BasicEvaluation newEval = new BasicEvaluation(null, new Date(), restaurant, like, ipAddress);
+        // Le like et la mise à jour de la synthèse des notes sont validés ensemble
+        BasicEvaluation eval = persistanceContext.inTransaction(context -> basicEvaluationMapper.create(newEval));
         restaurant.getEvaluations().add(eval);
     }
 
@@ -40,7 +48,8 @@ public class EvaluationService implements IEvaluationService{
             evaluation.getGrades().add(grade);
         }
 
-        completeEvaluationMapper.create(evaluation);
+        // Le commentaire et toutes ses notes sont validés ensemble, en un seul commit
+        persistanceContext.runInTransaction(context -> completeEvaluationMapper.create(evaluation));
         restaurant.getEvaluations().add(evaluation);
 
     }
@@ -51,7 +60,62 @@ public class EvaluationService implements IEvaluationService{
 
     @Override
     public int countLikesForRestaurant(int id, boolean like) {
-        return basicEvaluationMapper.countLikesForRestaurant(id, like);
+        LikeStats stats = getLikeStats(id);
+        return (int) (like ? stats.likes() : stats.dislikes());
+    }
+
+    /**
+     * Likes et dislikes d'un restaurant : depuis les compteurs en mémoire s'ils sont activés,
+     * sinon depuis la ligne de totaux de la synthèse des notes.
+     */
+    @Override
+    public LikeStats getLikeStats(int restaurantId) {
+        if (likeCounters.isEnabled()) {
+            return likeCounters.get(restaurantId, basicEvaluationMapper::findAllLikeStats);
+        }
+        return ratingSummaryMapper.findLikeStats(restaurantId);
+    }
+
+    /**
+     * Likes et dislikes de plusieurs restaurants, depuis la même source que {@link #getLikeStats(int)}.
+     * @return les compteurs par identifiant de restaurant
+     */
+    @Override
+    public Map<Integer, LikeStats> getLikeStats(Collection<Restaurant> restaurants) {
+        List<Integer> ids = new ArrayList<>();
+        for (Restaurant restaurant : restaurants) {
+            ids.add(restaurant.getId());
+        }
+        if (likeCounters.isEnabled()) {
+            Map<Integer, LikeStats> stats = new HashMap<>();
+            for (Integer id : ids) {
+                stats.put(id, likeCounters.get(id, basicEvaluationMapper::findAllLikeStats));
+            }
+            return stats;
+        }
+        return ratingSummaryMapper.findLikeStatsByRestaurantIds(ids);
+    }
+
+    /**
+     * Statistiques des notes d'un restaurant (moyenne, nombre, min/max, écart-type), globales et par critère,
+     * lues dans la synthèse des notes par clé primaire, sans agréger les notes.
+     */
+    @Override
+    public RestaurantRatings getRatings(Restaurant restaurant) {
+        return ratingSummaryMapper.findRatings(restaurant.getId());
+    }
+
+    /**
+     * Statistiques des notes de plusieurs restaurants, lues dans la synthèse en une requête par tranche de 1000 restaurants.
+     * @return les statistiques par identifiant de restaurant
+     */
+    @Override
+    public Map<Integer, RestaurantRatings> getRatings(Collection<Restaurant> restaurants) {
+        List<Integer> ids = new ArrayList<>();
+        for (Restaurant restaurant : restaurants) {
+            ids.add(restaurant.getId());
+        }
+        return ratingSummaryMapper.findRatingsByRestaurantIds(ids);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,98 @@
+package ch.hearc.ig.guideresto.service;
+
+import ch.hearc.ig.guideresto.persistence.PersistanceContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Portée d'un ensemble de sous-tâches lancées en parallèle, sur le modèle de
+ * {@code StructuredTaskScope.ShutdownOnFailure} (encore en préversion en Java 21).
+ * <p>
+ * Chaque sous-tâche s'exécute sur un thread virtuel du {@link ServiceExecutor}, avec sa propre connexion.
+ * {@link #join()} attend toutes les sous-tâches jusqu'à l'échéance de la portée : au premier échec, ou si
+ * l'échéance est dépassée, les sous-tâches encore en cours sont interrompues et l'erreur est levée.
+ * La fermeture de la portée interrompt de même tout ce qui n'est pas terminé, si bien qu'aucune sous-tâche
+ * ne survit au bloc qui l'a lancée.
+ */
+final class FanOutScope implements AutoCloseable {
+
+    private final ServiceExecutor executor;
+    private final long deadlineNanos;
+    private final List<Future<?>> subtasks = new ArrayList<>();
+    private final BlockingQueue<Future<?>> completed = new LinkedBlockingQueue<>();
+
+    /**
+     * @param executor l'exécuteur qui borne le nombre de connexions utilisées
+     * @param timeoutMillis le délai accordé à l'ensemble des sous-tâches, à partir de maintenant
+     */
+    FanOutScope(ServiceExecutor executor, long timeoutMillis) {
+        this.executor = executor;
+        this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    /**
+     * Lance une sous-tâche dans son propre contexte de persistance.
+     * @return la sous-tâche, dont le résultat peut être lu avec {@link Future#resultNow()} après {@link #join()}
+     */
+    <R> Future<R> fork(Function<PersistanceContext, R> work) {
+        FutureTask<R> subtask = new FutureTask<>(() -> executor.call(work)) {
+            @Override
+            protected void done() {
+                completed.add(this);
+            }
+        };
+        subtasks.add(subtask);
+        executor.execute(subtask);
+        return subtask;
+    }
+
+    /**
+     * Attend la fin de toutes les sous-tâches.
+     * @throws RuntimeException à la première sous-tâche en échec, ou si l'échéance est dépassée ;
+     * les autres sous-tâches sont alors annulées
+     */
+    void join() {
+        try {
+            for (int i = 0; i < subtasks.size(); i++) {
+                Future<?> subtask = completed.poll(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (subtask == null) {
+                    throw new RuntimeException("Erreur : délai dépassé", new TimeoutException());
+                }
+                subtask.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelAll();
+            throw new RuntimeException("Erreur : chargement interrompu", e);
+        } catch (ExecutionException e) {
+            cancelAll();
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException runtimeException
+                    ? runtimeException
+                    : new RuntimeException("Erreur : " + cause.getMessage(), cause);
+        } catch (RuntimeException e) {
+            cancelAll();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        cancelAll();
+    }
+
+    private void cancelAll() {
+        for (Future<?> subtask : subtasks) {
+            subtask.cancel(true);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package ch.hearc.ig.guideresto.service;
+
+import ch.hearc.ig.guideresto.business.EvaluationCriteria;
+import ch.hearc.ig.guideresto.business.LikeStats;
+import ch.hearc.ig.guideresto.business.Restaurant;
+import ch.hearc.ig.guideresto.business.RestaurantRatings;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+public interface IAsyncEvaluationService {
+    CompletableFuture<Set<EvaluationCriteria>> getAllCriteria();
+    CompletableFuture<LikeStats> getLikeStats(int restaurantId);
+    CompletableFuture<Map<Integer, LikeStats>> getLikeStats(Collection<Restaurant> restaurants);
+    CompletableFuture<RestaurantRatings> getRatings(Restaurant restaurant);
+    CompletableFuture<Map<Integer, RestaurantRatings>> getRatings(Collection<Restaurant> restaurants);
+}
@@ -0,0 +1,27 @@
+package ch.hearc.ig.guideresto.service;
+
+import ch.hearc.ig.guideresto.business.City;
+import ch.hearc.ig.guideresto.business.Restaurant;
+import ch.hearc.ig.guideresto.business.RestaurantSuggestion;
+import ch.hearc.ig.guideresto.business.RestaurantSummary;
+import ch.hearc.ig.guideresto.business.RestaurantType;
+import ch.hearc.ig.guideresto.persistence.Page;
+import ch.hearc.ig.guideresto.persistence.PageRequest;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+public interface IAsyncRestaurantService {
+    CompletableFuture<Page<RestaurantSummary>> getRestaurantSummaries(PageRequest request);
+    CompletableFuture<Page<RestaurantSummary>> getRestaurantSummariesByName(String research, PageRequest request);
+    CompletableFuture<Page<RestaurantSummary>> getRestaurantSummariesByCity(String research, PageRequest request);
+    CompletableFuture<List<RestaurantSummary>> getRestaurantSummariesByType(RestaurantType restaurantType);
+    CompletableFuture<List<RestaurantSuggestion>> suggestRestaurants(String prefix, int limit);
+    CompletableFuture<Restaurant> getRestaurantById(int id);
+    CompletableFuture<Restaurant> getRestaurantByExactName(String name);
+    CompletableFuture<Set<RestaurantType>> getAllRestaurantsTypes();
+    CompletableFuture<RestaurantType> getRestaurantTypeByLabel(String label);
+    CompletableFuture<Set<City>> getAllCities();
+    CompletableFuture<City> createCity(String zipCode, String cityName);
+}
@@ -1,8 +1,11 @@
 package ch.hearc.ig.guideresto.service;
 
 import ch.hearc.ig.guideresto.business.EvaluationCriteria;
+import ch.hearc.ig.guideresto.business.LikeStats;
 import ch.hearc.ig.guideresto.business.Restaurant;
+import ch.hearc.ig.guideresto.business.RestaurantRatings;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 
@@ -11,4 +14,8 @@ public interface IEvaluationService {
     void evaluateRestaurant(Restaurant restaurant, String username, String comment, Map<EvaluationCriteria, Integer> gradesMap);
     Set<EvaluationCriteria> getAllCriteria();
     int countLikesForRestaurant(int id, boolean like);
+    LikeStats getLikeStats(int restaurantId);
+    Map<Integer, LikeStats> getLikeStats(Collection<Restaurant> restaurants);
+    RestaurantRatings getRatings(Restaurant restaurant);
+    Map<Integer, RestaurantRatings> getRatings(Collection<Restaurant> restaurants);
 }
\ No newline at end of file
@@ -2,13 +2,32 @@ package ch.hearc.ig.guideresto.service;
 
 import ch.hearc.ig.guideresto.business.City;
 import ch.hearc.ig.guideresto.business.Restaurant;
+import ch.hearc.ig.guideresto.business.RestaurantDetails;
+import ch.hearc.ig.guideresto.business.RestaurantSuggestion;
+import ch.hearc.ig.guideresto.business.RestaurantSummary;
 import ch.hearc.ig.guideresto.business.RestaurantType;
+import ch.hearc.ig.guideresto.persistence.Page;
+import ch.hearc.ig.guideresto.persistence.PageRequest;
 
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 public interface IRestaurantService {
     Set<Restaurant> getAllRestaurants();
+    Stream<Restaurant> streamAllRestaurants();
+    void buildSearchIndex();
+    Page<Restaurant> getRestaurants(PageRequest request);
+    Page<Restaurant> getRestaurantsByName(String research, PageRequest request);
+    Page<Restaurant> getRestaurantsByCity(String research, PageRequest request);
+    Page<RestaurantSummary> getRestaurantSummaries(PageRequest request);
+    Page<RestaurantSummary> getRestaurantSummariesByName(String research, PageRequest request);
+    Page<RestaurantSummary> getRestaurantSummariesByCity(String research, PageRequest request);
+    List<RestaurantSummary> getRestaurantSummariesByType(RestaurantType restaurantType);
     Set<Restaurant> getRestaurantsByName(String research);
+    List<RestaurantSuggestion> suggestRestaurants(String prefix, int limit);
+    Restaurant getRestaurantById(int id);
+    RestaurantDetails loadDetails(int id);
     Set<Restaurant> getRestaurantsByCity(String research);
     Set<RestaurantType> getAllRestaurantsTypes();
     Set<Restaurant> getRestaurantsByType(RestaurantType restaurantType);
@@ -1,25 +1,42 @@
 package ch.hearc.ig.guideresto.service;
 
 import ch.hearc.ig.guideresto.business.City;
+import ch.hearc.ig.guideresto.business.CompleteEvaluation;
+import ch.hearc.ig.guideresto.business.LikeStats;
+import ch.hearc.ig.guideresto.business.RestaurantDetails;
+import ch.hearc.ig.guideresto.business.RestaurantRatings;
 import ch.hearc.ig.guideresto.business.Restaurant;
+import ch.hearc.ig.guideresto.business.RestaurantSuggestion;
+import ch.hearc.ig.guideresto.business.RestaurantSummary;
 import ch.hearc.ig.guideresto.business.RestaurantType;
 import ch.hearc.ig.guideresto.persistence.CityMapper;
+import ch.hearc.ig.guideresto.persistence.ConnectionUtils;
+import ch.hearc.ig.guideresto.persistence.Page;
+import ch.hearc.ig.guideresto.persistence.PageRequest;
 import ch.hearc.ig.guideresto.persistence.PersistanceContext;
 import ch.hearc.ig.guideresto.persistence.RestaurantMapper;
+import ch.hearc.ig.guideresto.persistence.RestaurantNameTrie;
 import ch.hearc.ig.guideresto.persistence.RestaurantTypeMapper;
+import ch.hearc.ig.guideresto.persistence.UnitOfWork;
 
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 public class RestaurantService implements IRestaurantService {
 
     private RestaurantMapper restaurantMapper;
     private RestaurantTypeMapper restaurantTypeMapper;
     private CityMapper cityMapper;
+    private UnitOfWork unitOfWork;
+    private final RestaurantNameTrie nameTrie = RestaurantNameTrie.getInstance();
 
     public RestaurantService(PersistanceContext persistenceContext) {
         this.restaurantMapper = persistenceContext.getRestaurantMapper();
         this.restaurantTypeMapper = persistenceContext.getRestaurantTypeMapper();
         this.cityMapper = persistenceContext.getCityMapper();
+        this.unitOfWork = persistenceContext.getUnitOfWork();
     }
 
     @Override
@@ -27,6 +44,57 @@ public class RestaurantService implements IRestaurantService {
         return restaurantMapper.findAll();
     }
 
+    @Override
+    public Page<Restaurant> getRestaurants(PageRequest request) {
+        return restaurantMapper.findPage(request);
+    }
+
+    @Override
+    public Page<Restaurant> getRestaurantsByName(String research, PageRequest request) {
+        return restaurantMapper.findPageByName(research, request);
+    }
+
+    @Override
+    public Page<Restaurant> getRestaurantsByCity(String research, PageRequest request) {
+        return restaurantMapper.findPageByCity(research, request);
+    }
+
+    @Override
+    public Page<RestaurantSummary> getRestaurantSummaries(PageRequest request) {
+        return restaurantMapper.findSummaryPage(request);
+    }
+
+    @Override
+    public Page<RestaurantSummary> getRestaurantSummariesByName(String research, PageRequest request) {
+        return restaurantMapper.findSummaryPageByName(research, request);
+    }
+
+    @Override
+    public Page<RestaurantSummary> getRestaurantSummariesByCity(String research, PageRequest request) {
+        return restaurantMapper.findSummaryPageByCity(research, request);
+    }
+
+    @Override
+    public List<RestaurantSummary> getRestaurantSummariesByType(RestaurantType restaurantType) {
+        return restaurantMapper.findSummariesByType(restaurantType.getId());
+    }
+
+    /**
+     * Parcourt tous les restaurants sans les charger en mémoire ; le stream doit être fermé après usage.
+     */
+    @Override
+    public Stream<Restaurant> streamAllRestaurants() {
+        return restaurantMapper.streamAll();
+    }
+
+    /**
+     * Construit l'index de recherche par nom et par ville, à appeler au démarrage.
+     */
+    @Override
+    public void buildSearchIndex() {
+        restaurantMapper.buildSearchIndex();
+    }
+
     @Override
     public Set<Restaurant> getRestaurantsByName(String research) {
         return restaurantMapper.findByName(research);
@@ -74,12 +142,15 @@ public class RestaurantService implements IRestaurantService {
             restaurant.getType().getRestaurants().remove(restaurant); // Il faut d'abord supprimer notre restaurant puisque le type va peut-être changer
             restaurant.setType(newType);
             newType.getRestaurants().add(restaurant);
+            unitOfWork.registerDirty(restaurant);
         }
     }
 
     @Override
     public void updateRestaurant(Restaurant restaurant) {
-        restaurantMapper.update(restaurant);
+        // Seules les colonnes réellement modifiées depuis le chargement sont écrites
+        unitOfWork.registerDirty(restaurant);
+        unitOfWork.commit();
     }
 
     @Override
@@ -88,6 +159,7 @@ public class RestaurantService implements IRestaurantService {
             restaurant.getAddress().getCity().getRestaurants().remove(restaurant);
             restaurant.getAddress().setCity(newCity);
             newCity.getRestaurants().add(restaurant);
+            unitOfWork.registerDirty(restaurant);
         }
     }
 
@@ -99,21 +171,78 @@ public class RestaurantService implements IRestaurantService {
     }
 
     public RestaurantType getRestaurantTypeByLabel(String label) {
-        for (RestaurantType restaurantType : restaurantTypeMapper.findAll()) {
-            if (restaurantType.getLabel().equalsIgnoreCase(label)) {
-                return restaurantType;
+        return restaurantTypeMapper.findByLabel(label);
+    }
+
+    /**
+     * Restaurants dont le nom commence par un préfixe, les plus aimés d'abord : depuis l'arbre de préfixes
+     * en mémoire s'il est activé, sinon en une requête.
+     */
+    @Override
+    public List<RestaurantSuggestion> suggestRestaurants(String prefix, int limit) {
+        if (nameTrie.isEnabled()) {
+            return nameTrie.complete(prefix, limit, restaurantMapper::streamSuggestions);
+        }
+        return restaurantMapper.findSuggestions(prefix, limit);
+    }
+
+    @Override
+    public Restaurant getRestaurantById(int id) {
+        return restaurantMapper.findById(id);
+    }
+
+    @Override
+    public RestaurantDetails loadDetails(int id) {
+        return loadDetails(id, ConnectionUtils.getDetailsTimeoutMillis());
+    }
+
+    /**
+     * Charge la fiche d'un restaurant en parallèle : likes, évaluations complètes avec leurs notes et statistiques
+     * des notes sont lus chacun sur un thread virtuel et sa propre connexion, pendant que le restaurant lui-même
+     * est lu dans le contexte de ce service. La durée est ainsi celle de la plus lente des lectures, et non leur somme.
+     * <p>
+     * Au premier échec, ou si le délai est dépassé, les lectures encore en cours sont annulées et l'erreur est levée.
+     * @param id l'identifiant du restaurant
+     * @param timeoutMillis le délai accordé à l'ensemble des lectures
+     * @return la fiche, ou null si le restaurant n'existe pas
+     */
+    public RestaurantDetails loadDetails(int id, long timeoutMillis) {
+        // Référence minimale pour lire les évaluations ailleurs ; elles sont rattachées au vrai restaurant ensuite
+        Restaurant reference = new Restaurant();
+        reference.setId(id);
+
+        try (FanOutScope scope = new FanOutScope(ServiceExecutor.getInstance(), timeoutMillis)) {
+            Future<LikeStats> likeStats = scope.fork(context -> new EvaluationService(context).getLikeStats(id));
+            Future<Set<CompleteEvaluation>> evaluations = scope.fork(
+                    context -> context.getCompleteEvaluationMapper().findByRestaurant(reference));
+            Future<RestaurantRatings> ratings = scope.fork(context -> context.getRatingSummaryMapper().findRatings(id));
+
+            Restaurant restaurant = restaurantMapper.findById(id);
+            if (restaurant == null) {
+                return null;
+            }
+            scope.join();
+
+            for (CompleteEvaluation evaluation : evaluations.resultNow()) {
+                evaluation.setRestaurant(restaurant);
             }
+            return new RestaurantDetails(restaurant, likeStats.resultNow(), evaluations.resultNow(), ratings.resultNow());
         }
-        return null;
     }
 
     public Restaurant getRestaurantByExactName(String name) {
-        for (Restaurant restaurant : restaurantMapper.findByName(name)) {
-            if (restaurant.getName().equalsIgnoreCase(name)) {
-                return restaurant;
+        if (nameTrie.isEnabled()) {
+            // L'arbre donne directement les restaurants portant ce nom, lus ensuite par clé primaire
+            for (RestaurantSuggestion match : nameTrie.findExact(name, restaurantMapper::streamSuggestions)) {
+                Restaurant restaurant = restaurantMapper.findById(match.restaurantId());
+                if (restaurant != null && restaurant.getName().equalsIgnoreCase(name)) {
+                    return restaurant;
+                }
             }
+            return null;
         }
-        return null;
+        Set<Restaurant> restaurants = restaurantMapper.findByExactName(name);
+        return restaurants.isEmpty() ? null : restaurants.iterator().next();
     }
 
 }
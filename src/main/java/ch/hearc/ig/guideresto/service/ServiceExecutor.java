@@ -0,0 +1,120 @@
+package ch.hearc.ig.guideresto.service;
+
+import ch.hearc.ig.guideresto.persistence.ConnectionUtils;
+import ch.hearc.ig.guideresto.persistence.PersistanceContext;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * Exécute les appels asynchrones des services, chacun sur son propre thread virtuel et dans son propre
+ * {@link PersistanceContext}, donc sur sa propre connexion du pool, rendue dès la fin de la tâche.
+ * <p>
+ * Les threads virtuels ne coûtent presque rien, mais les connexions sont limitées : un sémaphore borne le
+ * nombre de tâches qui travaillent en même temps à la taille maximale du pool ({@code pool.maxSize}) moins
+ * les connexions réservées aux contextes ouverts hors de l'exécuteur ({@code async.reservedConnections}),
+ * ou à {@code async.maxConcurrency} s'il est plus petit (voir {@link ConnectionUtils#getAsyncMaxConcurrency()}).
+ * Les tâches en surnombre attendent leur tour sur le sémaphore, sans bloquer de thread de la plateforme
+ * ni épuiser le pool.
+ */
+public class ServiceExecutor implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    private static ServiceExecutor instance;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;
+    private final int maxConcurrency;
+
+    public ServiceExecutor(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("La concurrence maximale doit être positive : " + maxConcurrency);
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency, true);
+    }
+
+    /**
+     * @return l'exécuteur partagé, dont la concurrence suit la configuration du pool de connexions
+     */
+    public static synchronized ServiceExecutor getInstance() {
+        if (instance == null || instance.executor.isShutdown()) {
+            instance = new ServiceExecutor(ConnectionUtils.getAsyncMaxConcurrency());
+            logger.info("Exécuteur asynchrone des services créé (concurrence maximale : {})", instance.maxConcurrency);
+        }
+        return instance;
+    }
+
+    /**
+     * Ferme l'exécuteur partagé s'il a été créé, par exemple à l'arrêt de l'application.
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    /**
+     * Exécute un travail sur un thread virtuel, dans un contexte de persistance ouvert pour lui seul
+     * et fermé dès qu'il se termine. Le résultat ne doit donc pas dépendre de collections encore à charger.
+     * @param work le travail, qui reçoit son contexte
+     * @return le résultat du travail, ou son exception
+     */
+    public <R> CompletableFuture<R> submit(Function<PersistanceContext, R> work) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call(work);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Lance une tâche sur un thread virtuel de l'exécuteur, sans attendre de permis.
+     */
+    void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    /**
+     * Exécute un travail sur le thread courant, dès qu'un permis est libre, dans un contexte ouvert pour lui seul.
+     * @throws InterruptedException si le thread est interrompu en attendant son permis
+     */
+    <R> R call(Function<PersistanceContext, R> work) throws InterruptedException {
+        permits.acquire();
+        try (PersistanceContext context = PersistanceContext.open()) {
+            return work.apply(context);
+        } finally {
+            permits.release();
+        }
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * @return le nombre de tâches qui travaillent en ce moment, chacune avec sa connexion
+     */
+    public int getActiveCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    /**
+     * Refuse les nouvelles tâches et attend la fin de celles en cours.
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
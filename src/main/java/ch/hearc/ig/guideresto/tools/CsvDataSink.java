@@ -0,0 +1,80 @@
+package ch.hearc.ig.guideresto.tools;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Écrit les lignes générées dans un fichier CSV par table ({@code <TABLE>.csv}), avec une ligne d'en-tête,
+ * par exemple pour SQL*Loader ou un import externe. Les dates sont au format {@code AAAA-MM-JJ}, et les valeurs
+ * qui contiennent une virgule, un guillemet ou un saut de ligne sont entre guillemets.
+ * <p>
+ * Les séquences ne sont pas touchées : après l'import, elles doivent reprendre après les identifiants chargés.
+ */
+public class CsvDataSink implements DataSink {
+
+    private final Path directory;
+    private final Map<Table, BufferedWriter> writers = new EnumMap<>(Table.class);
+
+    public CsvDataSink(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new RuntimeException("Impossible de créer " + directory + " : " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void write(Table table, Object... values) {
+        try {
+            BufferedWriter writer = writers.get(table);
+            if (writer == null) {
+                writer = Files.newBufferedWriter(directory.resolve(table + ".csv"), StandardCharsets.UTF_8);
+                writer.write(String.join(",", table.getColumns()));
+                writer.newLine();
+                writers.put(table, writer);
+            }
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(field(values[i]));
+            }
+            writer.newLine();
+        } catch (IOException e) {
+            throw new RuntimeException("Erreur : " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        IOException failure = null;
+        for (BufferedWriter writer : writers.values()) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        writers.clear();
+        if (failure != null) {
+            throw new RuntimeException("Erreur : " + failure.getMessage(), failure);
+        }
+    }
+
+    private static String field(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+}
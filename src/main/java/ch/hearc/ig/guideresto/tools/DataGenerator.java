@@ -0,0 +1,300 @@
+package ch.hearc.ig.guideresto.tools;
+
+import ch.hearc.ig.guideresto.persistence.ConnectionUtils;
+import ch.hearc.ig.guideresto.tools.DataSink.Table;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Générateur déterministe de données pour le schéma GuideResto, pour les benchmarks et les tests de charge.
+ * <p>
+ * Les données imitent la forme de la production :
+ * <ul>
+ *     <li>les évaluations et les likes se concentrent sur les restaurants populaires selon une loi de Zipf,
+ *     l'ordre de popularité étant tiré au hasard parmi les identifiants ;</li>
+ *     <li>les restaurants se concentrent de même dans les grandes villes ;</li>
+ *     <li>les likes arrivent par rafales de quelques jours autour de dates propres à chaque restaurant ;</li>
+ *     <li>chaque restaurant a un niveau de qualité, qui oriente ses notes et la part de ses likes.</li>
+ * </ul>
+ * Les lignes sont produites restaurant par restaurant, sans les garder en mémoire : seul l'ordre de popularité
+ * (un entier par restaurant) est conservé, ce qui permet d'atteindre des dizaines de millions de lignes.
+ * <p>
+ * Usage : {@code DataGenerator <jdbc|sql|csv> <nombre de restaurants> [graine] [fichier ou dossier]}.
+ * En JDBC, les tables doivent exister et être vides ; la synthèse des notes est reconstruite après le chargement.
+ */
+public class DataGenerator {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    /**
+     * Mots qui composent les noms de restaurants ; chacun apparaît dans le nom d'environ un restaurant sur
+     * {@code NAME_WORDS.size()}.
+     */
+    public static final List<String> NAME_WORDS = List.of("Auberge", "Bistrot", "Brasserie", "Café", "Chalet", "Cheval",
+            "Croix", "Étoile", "Fleur", "Gare", "Jardin", "Lac", "Lion", "Marché", "Moulin", "Pêcheur", "Pont", "Port",
+            "Soleil", "Tilleul", "Tour", "Vigne");
+
+    private static final List<String> NAME_PREFIXES = List.of("Restaurant", "Café", "Auberge", "Brasserie", "Chez",
+            "Hôtel", "Pizzeria", "Relais");
+
+    private static final List<String> CRITERIA = List.of("Service", "Cuisine", "Cadre");
+
+    private static final List<String> TYPES = List.of("Pizzeria", "Brasserie", "Gastronomique", "Japonais", "Indien",
+            "Libanais", "Végétarien", "Thaï", "Mexicain", "Fondue", "Grill", "Crêperie", "Italien", "Chinois",
+            "Fruits de mer", "Tapas", "Burger", "Vietnamien", "Éthiopien", "Péruvien");
+
+    private static final List<String> CITIES = List.of("Zürich", "Genève", "Bâle", "Lausanne", "Berne", "Winterthour",
+            "Lucerne", "Saint-Gall", "Lugano", "Bienne", "Thoune", "Neuchâtel", "Fribourg", "Sion", "La Chaux-de-Fonds");
+
+    private static final List<String> COMMENTS = List.of("Très bon accueil", "Plats copieux et savoureux",
+            "Service un peu lent", "Cadre magnifique", "Rapport qualité-prix correct", "Décevant pour le prix",
+            "Une adresse à recommander", "Carte des vins remarquable", "Bruyant le soir", "Personnel attentionné");
+
+    private static final int PROGRESS_INTERVAL = 100_000;
+
+    /**
+     * Part des likes qui tombent dans une rafale, et durée moyenne (en jours) d'une rafale.
+     */
+    private static final double BURST_SHARE = 0.8;
+    private static final double BURST_MEAN_DAYS = 2.0;
+
+    private final GeneratorSettings settings;
+
+    public DataGenerator(GeneratorSettings settings) {
+        this.settings = settings;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage : DataGenerator <jdbc|sql|csv> <nombre de restaurants> [graine] [fichier ou dossier]");
+            return;
+        }
+        GeneratorSettings settings = GeneratorSettings.forRestaurants(Integer.parseInt(args[1]));
+        if (args.length > 2) {
+            settings = settings.withSeed(Long.parseLong(args[2]));
+        }
+        DataGenerator generator = new DataGenerator(settings);
+        long start = System.nanoTime();
+        Map<Table, Long> counts;
+        try {
+            counts = switch (args[0]) {
+                case "jdbc" -> generateIntoDatabase(generator);
+                case "sql" -> generator.generate(new SqlFileDataSink(Path.of(args.length > 3 ? args[3] : "GuideResto_GENERATED_DATA.sql")));
+                case "csv" -> generator.generate(new CsvDataSink(Path.of(args.length > 3 ? args[3] : "generated-data")));
+                default -> throw new IllegalArgumentException("Destination inconnue : " + args[0]);
+            };
+        } finally {
+            ConnectionUtils.closeConnection();
+        }
+        System.out.println("Données générées en " + (System.nanoTime() - start) / 1_000_000 + " ms : " + counts);
+    }
+
+    private static Map<Table, Long> generateIntoDatabase(DataGenerator generator) {
+        Connection connection = ConnectionUtils.getConnection();
+        Map<Table, Long> counts;
+        try {
+            connection.setAutoCommit(false);
+            counts = generator.generate(new JdbcDataSink(connection, JdbcDataSink.DEFAULT_BATCH_SIZE));
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur : " + e.getMessage(), e);
+        } finally {
+            ConnectionUtils.releaseConnection(connection);
+        }
+        RatingSummaryRebuilder.rebuild(ConnectionUtils.getPool().getMaxSize());
+        return counts;
+    }
+
+    /**
+     * Produit toutes les lignes dans une destination, puis la ferme.
+     * @return le nombre de lignes écrites par table
+     */
+    public Map<Table, Long> generate(DataSink sink) {
+        Map<Table, Long> counts = new EnumMap<>(Table.class);
+        for (Table table : Table.values()) {
+            counts.put(table, 0L);
+        }
+        try (sink) {
+            SplittableRandom random = new SplittableRandom(settings.seed());
+
+            for (int i = 0; i < CRITERIA.size(); i++) {
+                write(sink, counts, Table.CRITERES_EVALUATION, i + 1, CRITERIA.get(i), "Qualité : " + CRITERIA.get(i));
+            }
+            for (int i = 0; i < TYPES.size(); i++) {
+                write(sink, counts, Table.TYPES_GASTRONOMIQUES, i + 1, TYPES.get(i), "Cuisine " + TYPES.get(i));
+            }
+            for (int i = 1; i <= settings.cities(); i++) {
+                String name = i <= CITIES.size() ? CITIES.get(i - 1) : "Ville " + i;
+                write(sink, counts, Table.VILLES, i, String.valueOf(1000 + (i * 37) % 9000), name);
+            }
+
+            int[] popularityRanks = shuffledRanks(settings.restaurants(), random);
+            double[] cityWeights = cumulativeZipf(settings.cities(), 1.0);
+            double[] typeWeights = cumulativeZipf(TYPES.size(), 0.6);
+            double harmonic = harmonic(settings.restaurants(), settings.zipfExponent());
+            double totalEvaluations = settings.meanEvaluations() * settings.restaurants();
+            double totalLikes = settings.meanLikes() * settings.restaurants();
+            int users = Math.max(100, settings.restaurants() * 2);
+
+            int commentId = 0;
+            int gradeId = 0;
+            int likeId = 0;
+            for (int id = 1; id <= settings.restaurants(); id++) {
+                write(sink, counts, Table.RESTAURANTS, id, restaurantName(random),
+                        "Rue " + NAME_WORDS.get(random.nextInt(NAME_WORDS.size())) + " " + (1 + random.nextInt(150)),
+                        "Description du restaurant " + id, "https://restaurant-" + id + ".ch",
+                        1 + sample(typeWeights, random), 1 + sample(cityWeights, random));
+
+                double weight = Math.pow(popularityRanks[id - 1], -settings.zipfExponent()) / harmonic;
+                double quality = Math.clamp(3.4 + random.nextGaussian() * 0.7, 1.0, 5.0);
+
+                int evaluations = count(totalEvaluations * weight, random);
+                for (int e = 0; e < evaluations; e++) {
+                    commentId++;
+                    write(sink, counts, Table.COMMENTAIRES, commentId, randomDate(random),
+                            COMMENTS.get(random.nextInt(COMMENTS.size())), "utilisateur" + random.nextInt(users), id);
+                    for (int c = 1; c <= CRITERIA.size(); c++) {
+                        gradeId++;
+                        int grade = Math.clamp(Math.round(quality + random.nextGaussian() * 0.8), 1, 5);
+                        write(sink, counts, Table.NOTES, gradeId, grade, commentId, c);
+                    }
+                }
+
+                int likes = count(totalLikes * weight, random);
+                int[] bursts = burstCenters(likes, random);
+                double likeProbability = Math.clamp(0.35 + 0.12 * (quality - 1), 0.0, 1.0);
+                for (int l = 0; l < likes; l++) {
+                    likeId++;
+                    write(sink, counts, Table.LIKES, likeId, random.nextDouble() < likeProbability ? "Y" : "N",
+                            burstyDate(bursts, random), "10." + random.nextInt(256) + "." + random.nextInt(256) + "."
+                                    + random.nextInt(256), id);
+                }
+
+                if (id % PROGRESS_INTERVAL == 0) {
+                    logger.info("{} restaurants générés sur {}", id, settings.restaurants());
+                }
+            }
+
+            // Prochains identifiants libres ; commentaires et likes partagent la même séquence
+            Map<Table, Integer> nextIds = new EnumMap<>(Table.class);
+            nextIds.put(Table.CRITERES_EVALUATION, CRITERIA.size() + 1);
+            nextIds.put(Table.TYPES_GASTRONOMIQUES, TYPES.size() + 1);
+            nextIds.put(Table.VILLES, settings.cities() + 1);
+            nextIds.put(Table.RESTAURANTS, settings.restaurants() + 1);
+            nextIds.put(Table.COMMENTAIRES, Math.max(commentId, likeId) + 1);
+            nextIds.put(Table.NOTES, gradeId + 1);
+            nextIds.put(Table.LIKES, Math.max(commentId, likeId) + 1);
+            sink.finish(nextIds);
+        }
+        return counts;
+    }
+
+    private static void write(DataSink sink, Map<Table, Long> counts, Table table, Object... values) {
+        sink.write(table, values);
+        counts.merge(table, 1L, Long::sum);
+    }
+
+    private static String restaurantName(SplittableRandom random) {
+        String prefix = NAME_PREFIXES.get(random.nextInt(NAME_PREFIXES.size()));
+        String word = NAME_WORDS.get(random.nextInt(NAME_WORDS.size()));
+        return random.nextInt(3) == 0 ? prefix + " du " + word : prefix + " " + word;
+    }
+
+    /**
+     * @return un rang de popularité (de 1 à n) pour chaque restaurant, dans un ordre aléatoire
+     */
+    private static int[] shuffledRanks(int n, SplittableRandom random) {
+        int[] ranks = new int[n];
+        for (int i = 0; i < n; i++) {
+            ranks[i] = i + 1;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int rank = ranks[i];
+            ranks[i] = ranks[j];
+            ranks[j] = rank;
+        }
+        return ranks;
+    }
+
+    /**
+     * @return la somme des 1 / k^s pour k de 1 à n, qui normalise la loi de Zipf
+     */
+    private static double harmonic(int n, double exponent) {
+        double sum = 0;
+        for (int k = n; k >= 1; k--) {
+            sum += Math.pow(k, -exponent);
+        }
+        return sum;
+    }
+
+    /**
+     * @return les poids cumulés et normalisés d'une loi de Zipf sur n éléments
+     */
+    private static double[] cumulativeZipf(int n, double exponent) {
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for (int k = 1; k <= n; k++) {
+            sum += Math.pow(k, -exponent);
+            cumulative[k - 1] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cumulative[k] /= sum;
+        }
+        return cumulative;
+    }
+
+    /**
+     * @return l'indice (à partir de 0) tiré selon des poids cumulés
+     */
+    private static int sample(double[] cumulative, SplittableRandom random) {
+        int position = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(position >= 0 ? position : -position - 1, cumulative.length - 1);
+    }
+
+    /**
+     * Arrondit une espérance à un entier voisin, de sorte que la moyenne des tirages soit l'espérance.
+     */
+    private static int count(double expected, SplittableRandom random) {
+        int whole = (int) expected;
+        return random.nextDouble() < expected - whole ? whole + 1 : whole;
+    }
+
+    private Date randomDate(SplittableRandom random) {
+        return day(random.nextInt(settings.days()));
+    }
+
+    /**
+     * @return les jours autour desquels se concentrent les likes d'un restaurant, environ un pour 25 likes
+     */
+    private int[] burstCenters(int likes, SplittableRandom random) {
+        int[] centers = new int[1 + likes / 25];
+        for (int i = 0; i < centers.length; i++) {
+            centers[i] = random.nextInt(settings.days());
+        }
+        return centers;
+    }
+
+    private Date burstyDate(int[] bursts, SplittableRandom random) {
+        if (random.nextDouble() >= BURST_SHARE) {
+            return randomDate(random);
+        }
+        int center = bursts[random.nextInt(bursts.length)];
+        int offset = (int) Math.round(-Math.log(1 - random.nextDouble()) * BURST_MEAN_DAYS);
+        return day(Math.min(center + offset, settings.days() - 1));
+    }
+
+    private Date day(int offset) {
+        return Date.valueOf(settings.firstDay().plusDays(offset));
+    }
+}
@@ -0,0 +1,64 @@
+package ch.hearc.ig.guideresto.tools;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Destination des lignes produites par le {@link DataGenerator}. Les erreurs d'écriture sont levées
+ * en RuntimeException.
+ * <p>
+ * Les lignes arrivent restaurant par restaurant : le restaurant, puis ses commentaires, leurs notes et ses likes.
+ * Une destination qui regroupe les lignes par table doit donc écrire ses lots dans l'ordre de {@link Table},
+ * qui respecte les clés étrangères.
+ */
+public interface DataSink extends AutoCloseable {
+
+    /**
+     * Tables remplies par le générateur, dans l'ordre de leurs dépendances, avec leurs colonnes dans l'ordre des valeurs.
+     */
+    enum Table {
+        CRITERES_EVALUATION(List.of("NUMERO", "NOM", "DESCRIPTION"), "SEQ_CRITERES_EVALUATION"),
+        TYPES_GASTRONOMIQUES(List.of("NUMERO", "LIBELLE", "DESCRIPTION"), "SEQ_TYPES_GASTRONOMIQUES"),
+        VILLES(List.of("NUMERO", "CODE_POSTAL", "NOM_VILLE"), "SEQ_VILLES"),
+        RESTAURANTS(List.of("NUMERO", "NOM", "ADRESSE", "DESCRIPTION", "SITE_WEB", "FK_TYPE", "FK_VILL"), "SEQ_RESTAURANTS"),
+        COMMENTAIRES(List.of("NUMERO", "DATE_EVAL", "COMMENTAIRE", "NOM_UTILISATEUR", "FK_REST"), "SEQ_EVAL"),
+        NOTES(List.of("NUMERO", "NOTE", "FK_COMM", "FK_CRIT"), "SEQ_NOTES"),
+        LIKES(List.of("NUMERO", "APPRECIATION", "DATE_EVAL", "ADRESSE_IP", "FK_REST"), "SEQ_EVAL");
+
+        private final List<String> columns;
+        private final String sequenceName;
+
+        Table(List<String> columns, String sequenceName) {
+            this.columns = columns;
+            this.sequenceName = sequenceName;
+        }
+
+        public List<String> getColumns() {
+            return columns;
+        }
+
+        /**
+         * @return la séquence qui fournit les identifiants de la table à l'application
+         */
+        public String getSequenceName() {
+            return sequenceName;
+        }
+    }
+
+    /**
+     * Écrit une ligne.
+     * @param table la table
+     * @param values les valeurs, dans l'ordre de {@link Table#getColumns()} : Integer, String ou java.sql.Date
+     */
+    void write(Table table, Object... values);
+
+    /**
+     * Appelé une fois toutes les lignes écrites, avec le prochain identifiant libre de chaque séquence.
+     * @param nextIds le prochain identifiant, par table
+     */
+    default void finish(Map<Table, Integer> nextIds) {
+    }
+
+    @Override
+    void close();
+}
@@ -0,0 +1,46 @@
+package ch.hearc.ig.guideresto.tools;
+
+import java.time.LocalDate;
+
+/**
+ * Paramètres du {@link DataGenerator}. Deux générations avec les mêmes paramètres produisent exactement les mêmes lignes.
+ *
+ * @param seed             la graine de tous les tirages
+ * @param restaurants      le nombre de restaurants
+ * @param cities           le nombre de villes
+ * @param meanEvaluations  le nombre moyen d'évaluations complètes par restaurant
+ * @param meanLikes        le nombre moyen de likes et dislikes par restaurant
+ * @param zipfExponent     l'exposant de la loi de Zipf qui répartit évaluations et likes selon la popularité
+ *                         des restaurants : 0 pour une répartition uniforme, proche de 1 pour une forte concentration
+ * @param firstDay         le premier jour des dates d'évaluation
+ * @param days             le nombre de jours couverts par les dates d'évaluation
+ */
+public record GeneratorSettings(long seed, int restaurants, int cities, double meanEvaluations, double meanLikes,
+                                double zipfExponent, LocalDate firstDay, int days) {
+
+    public GeneratorSettings {
+        if (restaurants < 1 || cities < 1 || days < 1) {
+            throw new IllegalArgumentException("Les nombres de restaurants, de villes et de jours doivent être positifs");
+        }
+        if (meanEvaluations < 0 || meanLikes < 0 || zipfExponent < 0) {
+            throw new IllegalArgumentException("Les moyennes et l'exposant ne peuvent pas être négatifs");
+        }
+    }
+
+    /**
+     * Paramètres par défaut pour un nombre de restaurants : une ville pour cent restaurants, 3 évaluations
+     * et 8 likes par restaurant en moyenne, exposant de Zipf 0.8, cinq ans de dates.
+     */
+    public static GeneratorSettings forRestaurants(int restaurants) {
+        return new GeneratorSettings(42, restaurants, Math.max(10, restaurants / 100), 3, 8, 0.8,
+                LocalDate.of(2020, 1, 1), 5 * 365);
+    }
+
+    public GeneratorSettings withSeed(long seed) {
+        return new GeneratorSettings(seed, restaurants, cities, meanEvaluations, meanLikes, zipfExponent, firstDay, days);
+    }
+
+    public GeneratorSettings withVolumes(double meanEvaluations, double meanLikes) {
+        return new GeneratorSettings(seed, restaurants, cities, meanEvaluations, meanLikes, zipfExponent, firstDay, days);
+    }
+}
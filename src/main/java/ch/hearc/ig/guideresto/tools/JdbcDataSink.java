@@ -0,0 +1,125 @@
+package ch.hearc.ig.guideresto.tools;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Écrit les lignes générées dans la base par lots d'insertions JDBC.
+ * <p>
+ * Chaque table a sa requête préparée. Quand un lot atteint sa taille, les lots de toutes les tables sont
+ * envoyés dans l'ordre de {@link DataSink.Table}, puis validés si la connexion n'est pas en auto-commit :
+ * un commentaire n'est jamais inséré avant son restaurant, et la transaction reste de taille bornée.
+ * <p>
+ * À la fin, les séquences existantes reprennent après les identifiants chargés. La connexion n'est pas fermée.
+ */
+public class JdbcDataSink implements DataSink {
+
+    public static final int DEFAULT_BATCH_SIZE = 1_000;
+
+    /**
+     * ORA-02289 (séquence inexistante) et son équivalent H2, 90036.
+     */
+    private static final Set<Integer> MISSING_SEQUENCE_ERRORS = Set.of(2289, 90036);
+
+    private final Connection connection;
+    private final int batchSize;
+    private final Map<Table, PreparedStatement> statements = new EnumMap<>(Table.class);
+    private int pending;
+
+    public JdbcDataSink(Connection connection, int batchSize) {
+        this.connection = connection;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void write(Table table, Object... values) {
+        try {
+            PreparedStatement ps = statements.get(table);
+            if (ps == null) {
+                ps = connection.prepareStatement("INSERT INTO " + table + " (" + String.join(", ", table.getColumns())
+                        + ") VALUES (" + String.join(", ", Collections.nCopies(table.getColumns().size(), "?")) + ")");
+                statements.put(table, ps);
+            }
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] instanceof Date date) {
+                    ps.setDate(i + 1, date);
+                } else {
+                    ps.setObject(i + 1, values[i]);
+                }
+            }
+            ps.addBatch();
+            if (++pending >= batchSize) {
+                flush();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur : " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Fait reprendre chaque séquence après les identifiants chargés ; les séquences absentes sont ignorées.
+     */
+    @Override
+    public void finish(Map<Table, Integer> nextIds) {
+        // Plusieurs tables peuvent partager une séquence : elle reprend après la plus grande
+        Map<String, Integer> sequences = new TreeMap<>();
+        nextIds.forEach((table, next) -> sequences.merge(table.getSequenceName(), next, Math::max));
+        try {
+            flush();
+            boolean oracle = connection.getMetaData().getDatabaseProductName().toLowerCase().contains("oracle");
+            try (Statement statement = connection.createStatement()) {
+                for (Map.Entry<String, Integer> sequence : sequences.entrySet()) {
+                    try {
+                        statement.execute("ALTER SEQUENCE " + sequence.getKey()
+                                + (oracle ? " RESTART START WITH " : " RESTART WITH ") + sequence.getValue());
+                    } catch (SQLException e) {
+                        if (!MISSING_SEQUENCE_ERRORS.contains(e.getErrorCode())) {
+                            throw e;
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur : " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            flush();
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur : " + e.getMessage(), e);
+        } finally {
+            for (PreparedStatement ps : statements.values()) {
+                try {
+                    ps.close();
+                } catch (SQLException ignored) {
+                    // La fermeture d'une requête préparée n'empêche pas celle des suivantes
+                }
+            }
+            statements.clear();
+        }
+    }
+
+    private void flush() throws SQLException {
+        if (pending == 0) {
+            return;
+        }
+        for (PreparedStatement ps : statements.values()) {
+            ps.executeBatch();
+        }
+        if (!connection.getAutoCommit()) {
+            connection.commit();
+        }
+        pending = 0;
+    }
+}
@@ -0,0 +1,33 @@
+package ch.hearc.ig.guideresto.tools;
+
+import ch.hearc.ig.guideresto.persistence.ConnectionUtils;
+import ch.hearc.ig.guideresto.persistence.SchemaMigrator;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Applique les migrations du schéma (voir {@link SchemaMigrator}) : c'est l'étape de déploiement d'une nouvelle
+ * version, à lancer hors charge avant de démarrer l'application. Les créations et suppressions d'index verrouillent
+ * leur table en écriture le temps de leur exécution ; l'application ne migre donc pas le schéma au démarrage,
+ * sauf si {@code schema.migrateOnStartup} est activé (tests et benchmarks, sur leur propre base).
+ * <p>
+ * Usage : {@code MigrateSchema [version cible]} (par défaut, toutes les migrations).
+ */
+public class MigrateSchema {
+
+    public static void main(String[] args) {
+        int targetVersion = args.length > 0 ? Integer.parseInt(args[0]) : Integer.MAX_VALUE;
+        Connection connection = ConnectionUtils.getConnection();
+        try {
+            SchemaMigrator migrator = new SchemaMigrator(connection);
+            int applied = migrator.migrateTo(targetVersion);
+            System.out.println(applied + " migration(s) appliquée(s), schéma en version " + migrator.currentVersion());
+        } catch (SQLException e) {
+            System.err.println("Erreur : " + e.getMessage());
+        } finally {
+            ConnectionUtils.releaseConnection(connection);
+            ConnectionUtils.closeConnection();
+        }
+    }
+}
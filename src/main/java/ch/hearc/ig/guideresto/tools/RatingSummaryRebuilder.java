@@ -0,0 +1,127 @@
+package ch.hearc.ig.guideresto.tools;
+
+import ch.hearc.ig.guideresto.persistence.ConnectionPool;
+import ch.hearc.ig.guideresto.persistence.ConnectionUtils;
+import ch.hearc.ig.guideresto.persistence.RatingSummaryMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reconstruit entièrement la table RESTAURANT_RATING_SUMMARY depuis NOTES et LIKES, par exemple après
+ * un chargement de données fait hors de l'application.
+ * <p>
+ * Les restaurants sont découpés en plages d'identifiants traitées en parallèle, chacune sur sa propre
+ * connexion du pool et dans sa propre transaction.
+ * <p>
+ * Usage : {@code RatingSummaryRebuilder [nombre de threads]} (par défaut, la taille maximale du pool).
+ */
+public class RatingSummaryRebuilder {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    /**
+     * Nombre de plages par thread, pour équilibrer la charge entre plages plus ou moins denses.
+     */
+    private static final int RANGES_PER_THREAD = 4;
+
+    public static void main(String[] args) {
+        ConnectionPool pool = ConnectionUtils.getPool();
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : pool.getMaxSize();
+        try {
+            long start = System.nanoTime();
+            int ranges = rebuild(threads);
+            System.out.println("Synthèse des notes reconstruite (" + ranges + " plages, " + threads + " threads) en "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } finally {
+            ConnectionUtils.closeConnection();
+        }
+    }
+
+    /**
+     * Reconstruit la synthèse de tous les restaurants.
+     * @param threads le nombre de plages traitées simultanément (borné par la taille du pool)
+     * @return le nombre de plages traitées
+     */
+    public static int rebuild(int threads) {
+        threads = Math.max(1, Math.min(threads, ConnectionUtils.getPool().getMaxSize()));
+
+        int[] bounds = findIdBounds();
+        if (bounds == null) {
+            return 0;
+        }
+        int minId = bounds[0];
+        long maxIdExclusive = (long) bounds[1] + 1;
+        int rangeCount = threads * RANGES_PER_THREAD;
+        long rangeSize = Math.max(1, (maxIdExclusive - minId + rangeCount - 1) / rangeCount);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (long from = minId; from < maxIdExclusive; from += rangeSize) {
+                int fromId = (int) from;
+                int toId = (int) Math.min(from + rangeSize, maxIdExclusive);
+                futures.add(executor.submit(() -> rebuildRange(fromId, toId)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return futures.size();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Erreur : reconstruction interrompue", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Erreur : " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void rebuildRange(int fromId, int toId) {
+        Connection connection = ConnectionUtils.getConnection();
+        try {
+            connection.setAutoCommit(false);
+            try {
+                new RatingSummaryMapper(connection).rebuildRange(fromId, toId);
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+            logger.debug("Synthèse des restaurants [{}, {}[ reconstruite", fromId, toId);
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur : " + e.getMessage(), e);
+        } finally {
+            ConnectionUtils.releaseConnection(connection);
+        }
+    }
+
+    /**
+     * @return le plus petit et le plus grand identifiant de restaurant, ou null s'il n'y a aucun restaurant
+     */
+    private static int[] findIdBounds() {
+        Connection connection = ConnectionUtils.getConnection();
+        try (PreparedStatement ps = connection.prepareStatement("SELECT MIN(NUMERO), MAX(NUMERO) FROM RESTAURANTS");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            int minId = rs.getInt(1);
+            return rs.wasNull() ? null : new int[]{minId, rs.getInt(2)};
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur : " + e.getMessage(), e);
+        } finally {
+            ConnectionUtils.releaseConnection(connection);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package ch.hearc.ig.guideresto.tools;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Écrit les lignes générées dans un script SQL pour Oracle, au fil de l'eau, une instruction INSERT par ligne
+ * et un COMMIT toutes les {@value #COMMIT_INTERVAL} lignes, dans le style de {@code GuideResto_INSERT_DATA.sql}.
+ * <p>
+ * Les lignes sont écrites dans l'ordre où elles arrivent, qui respecte déjà les clés étrangères. Le script se
+ * termine par la reprise des séquences après les identifiants chargés.
+ */
+public class SqlFileDataSink implements DataSink {
+
+    private static final int COMMIT_INTERVAL = 10_000;
+
+    private final BufferedWriter writer;
+    private long rows;
+
+    public SqlFileDataSink(Path file) {
+        try {
+            this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("Impossible de créer " + file + " : " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void write(Table table, Object... values) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (")
+                .append(String.join(", ", table.getColumns())).append(") VALUES (");
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(literal(values[i]));
+        }
+        sql.append(");");
+        println(sql.toString());
+        if (++rows % COMMIT_INTERVAL == 0) {
+            println("COMMIT;");
+        }
+    }
+
+    @Override
+    public void finish(Map<Table, Integer> nextIds) {
+        println("COMMIT;");
+        Map<String, Integer> sequences = new TreeMap<>();
+        nextIds.forEach((table, next) -> sequences.merge(table.getSequenceName(), next, Math::max));
+        sequences.forEach((sequence, next) -> println("ALTER SEQUENCE " + sequence + " RESTART START WITH " + next + ";"));
+    }
+
+    @Override
+    public void close() {
+        try {
+            writer.write("COMMIT;");
+            writer.newLine();
+            writer.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Erreur : " + e.getMessage(), e);
+        }
+    }
+
+    private void println(String line) {
+        try {
+            writer.write(line);
+            writer.newLine();
+        } catch (IOException e) {
+            throw new RuntimeException("Erreur : " + e.getMessage(), e);
+        }
+    }
+
+    private static String literal(Object value) {
+        if (value == null) {
+            return "NULL";
+        }
+        if (value instanceof Date date) {
+            return "TO_DATE('" + date + "', 'YYYY-MM-DD')";
+        }
+        if (value instanceof String text) {
+            return "'" + text.replace("'", "''") + "'";
+        }
+        return value.toString();
+    }
+}
@@ -0,0 +1,8 @@
+-- Index des clés étrangères : recherches par restaurant ou par commentaire, et suppressions en cascade
+-- sans parcours ni verrouillage de toute la table fille
+CREATE INDEX IX_REST_FK_TYPE ON RESTAURANTS (fk_type);
+CREATE INDEX IX_REST_FK_VILL ON RESTAURANTS (fk_vill);
+CREATE INDEX IX_COMM_FK_REST ON COMMENTAIRES (fk_rest);
+CREATE INDEX IX_LIKE_FK_REST ON LIKES (fk_rest);
+CREATE INDEX IX_NOTE_FK_COMM ON NOTES (fk_comm);
+CREATE INDEX IX_NOTE_FK_CRIT ON NOTES (fk_crit);
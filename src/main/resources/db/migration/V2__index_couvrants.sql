@@ -0,0 +1,10 @@
+-- Index composites couvrant les agrégations : le comptage des likes et les statistiques de notes
+-- sont lus dans l'index, sans accès à la table
+CREATE INDEX IX_LIKE_REST_APPR ON LIKES (fk_rest, appreciation);
+CREATE INDEX IX_NOTE_COMM_CRIT_NOTE ON NOTES (fk_comm, fk_crit, note);
+CREATE INDEX IX_COMM_REST_NUMERO ON COMMENTAIRES (fk_rest, numero);
+
+-- Index devenus redondants : leur colonne est en tête d'un index composite
+DROP INDEX IX_LIKE_FK_REST;
+DROP INDEX IX_NOTE_FK_COMM;
+DROP INDEX IX_COMM_FK_REST;
@@ -0,0 +1,8 @@
+-- Recherche exacte sans tenir compte de la casse
+--#oracle
+CREATE INDEX IX_REST_NOM_UPPER ON RESTAURANTS (UPPER(nom));
+--#oracle
+CREATE INDEX IX_TYPE_LIBELLE_UPPER ON TYPES_GASTRONOMIQUES (UPPER(libelle));
+
+-- Pagination par clé triée par nom : ORDER BY nom, numero lu dans l'index
+CREATE INDEX IX_REST_NOM_NUMERO ON RESTAURANTS (nom, numero);
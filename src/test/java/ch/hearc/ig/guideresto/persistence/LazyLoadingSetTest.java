@@ -0,0 +1,47 @@
+package ch.hearc.ig.guideresto.persistence;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Les ajouts et retraits sur un {@link LazyLoadingSet} non chargé ne le chargent pas, et ne sont pas perdus.
+ */
+class LazyLoadingSetTest {
+
+    @Test
+    void addAndRemoveDoNotLoad() {
+        AtomicInteger loads = new AtomicInteger();
+        LazyLoadingSet<String> set = new LazyLoadingSet<>(null, () -> {
+            loads.incrementAndGet();
+            return List.of("a", "b");
+        });
+
+        set.add("c");
+        set.remove("a");
+
+        assertFalse(set.isInitialized());
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    void pendingChangesAreReplayedInOrderOnLoad() {
+        LazyLoadingSet<String> set = new LazyLoadingSet<>(null, () -> List.of("a", "b"));
+
+        set.add("c");
+        set.remove("a");
+        set.add("d");
+        set.remove("d");
+
+        assertEquals(Set.of("b", "c"), Set.copyOf(set));
+        assertTrue(set.isInitialized());
+        assertTrue(set.add("e"));
+        assertFalse(set.add("e"));
+    }
+}
@@ -0,0 +1,69 @@
+package ch.hearc.ig.guideresto.persistence;
+
+import ch.hearc.ig.guideresto.business.CompleteEvaluation;
+import ch.hearc.ig.guideresto.business.Evaluation;
+import ch.hearc.ig.guideresto.business.Restaurant;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.sql.SQLException;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Le nombre de requêtes du {@link RestaurantGraphLoader} ne dépend pas du nombre de restaurants chargés.
+ */
+class RestaurantGraphLoaderTest {
+
+    @AfterAll
+    static void closePool() {
+        ConnectionUtils.closeConnection();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {10, 100, 1000})
+    void loadsWholeGraphInThreeStatementsAtAnyScale(int restaurants) throws SQLException {
+        TestDatabase.seed(restaurants, 3);
+        StatementCounter counter = new StatementCounter();
+
+        try (PersistanceContext context = PersistanceContext.open()) {
+            RestaurantGraphLoader loader = new RestaurantGraphLoader(counter.wrap(context.getConnection()),
+                    context.getIdentityMap(), context.getRestaurantMapper());
+            Set<Restaurant> loaded = loader.load(null, true);
+
+            assertEquals(restaurants, loaded.size());
+            assertEquals(3, counter.getExecuted(), "restaurants, commentaires, notes");
+
+            // Le graphe est complet : le parcourir ne déclenche aucun chargement à la demande
+            int grades = 0;
+            for (Restaurant restaurant : loaded) {
+                assertFalse(restaurant.getEvaluations() instanceof LazyLoadingSet);
+                for (Evaluation evaluation : restaurant.getEvaluations()) {
+                    CompleteEvaluation complete = (CompleteEvaluation) evaluation;
+                    assertFalse(complete.getGrades() instanceof LazyLoadingSet);
+                    grades += complete.getGrades().size();
+                }
+            }
+            assertTrue(grades > 0);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {10, 1000})
+    void loadsRestaurantsAloneInOneStatementAtAnyScale(int restaurants) throws SQLException {
+        TestDatabase.seed(restaurants, 3);
+        StatementCounter counter = new StatementCounter();
+
+        try (PersistanceContext context = PersistanceContext.open()) {
+            RestaurantGraphLoader loader = new RestaurantGraphLoader(counter.wrap(context.getConnection()),
+                    context.getIdentityMap(), context.getRestaurantMapper());
+
+            assertEquals(restaurants, loader.load(null, false).size());
+            assertEquals(1, counter.getExecuted());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package ch.hearc.ig.guideresto.persistence;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Migrations du schéma sur une base H2 (mode Oracle) neuve à chaque test, avec les seules tables du projet.
+ */
+class SchemaMigratorTest {
+
+    private static final AtomicInteger databases = new AtomicInteger();
+
+    private Connection connection;
+    private SchemaMigrator migrator;
+
+    @BeforeEach
+    void createSchema() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:migrator" + databases.incrementAndGet() + ";MODE=Oracle");
+        TestDatabase.executeScript(connection, "test-schema.sql");
+        migrator = new SchemaMigrator(connection);
+    }
+
+    @AfterEach
+    void dropSchema() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void appliesEveryMigrationOnFreshSchema() throws SQLException {
+        assertEquals(0, migrator.currentVersion());
+
+        assertEquals(3, migrator.migrate());
+
+        assertEquals(3, migrator.currentVersion());
+        assertEquals(3, count("SELECT COUNT(*) FROM SCHEMA_VERSION"));
+        assertTrue(indexExists("IX_REST_FK_TYPE"), "V1");
+        assertTrue(indexExists("IX_LIKE_REST_APPR"), "V2");
+        assertFalse(indexExists("IX_LIKE_FK_REST"), "supprimé par V2");
+        assertTrue(indexExists("IX_REST_NOM_NUMERO"), "V3");
+        assertFalse(indexExists("IX_REST_NOM_UPPER"), "réservé à Oracle");
+    }
+
+    @Test
+    void rerunAppliesNothing() throws SQLException {
+        migrator.migrate();
+
+        assertEquals(0, migrator.migrate());
+        assertEquals(0, new SchemaMigrator(connection).migrate());
+
+        assertEquals(3, migrator.currentVersion());
+        assertEquals(3, count("SELECT COUNT(*) FROM SCHEMA_VERSION"));
+    }
+
+    @Test
+    void completesPartiallyMigratedSchema() throws SQLException {
+        assertEquals(1, migrator.migrateTo(1));
+        assertEquals(1, migrator.currentVersion());
+        assertFalse(indexExists("IX_LIKE_REST_APPR"));
+
+        assertEquals(2, migrator.migrate());
+
+        assertEquals(3, migrator.currentVersion());
+        assertTrue(indexExists("IX_LIKE_REST_APPR"));
+        assertTrue(indexExists("IX_REST_NOM_NUMERO"));
+    }
+
+    @Test
+    void replaysInterruptedMigration() throws SQLException {
+        // V1 interrompue après sa première instruction : l'index existe, mais la version n'est pas enregistrée
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE INDEX IX_REST_FK_TYPE ON RESTAURANTS (fk_type)");
+        }
+
+        assertEquals(3, migrator.migrate());
+
+        assertEquals(3, migrator.currentVersion());
+        assertTrue(indexExists("IX_NOTE_FK_CRIT"), "fin de V1");
+    }
+
+    private boolean indexExists(String name) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES WHERE INDEX_NAME = ?")) {
+            ps.setString(1, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getInt(1) > 0;
+            }
+        }
+    }
+
+    private int count(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
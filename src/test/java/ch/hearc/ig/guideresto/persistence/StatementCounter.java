@@ -0,0 +1,73 @@
+package ch.hearc.ig.guideresto.persistence;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compte les instructions SQL exécutées à travers une connexion : la connexion et les instructions qu'elle crée
+ * sont enveloppées dans des proxys, qui comptent chaque appel à une méthode {@code execute*}.
+ */
+final class StatementCounter {
+
+    private static final Set<String> EXECUTE_METHODS = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private final AtomicInteger executed = new AtomicInteger();
+
+    /**
+     * @return une connexion qui délègue à celle donnée en comptant les instructions exécutées
+     */
+    Connection wrap(Connection connection) {
+        return proxy(Connection.class, connection, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            return switch (result) {
+                case CallableStatement statement -> proxy(CallableStatement.class, statement, this::count);
+                case PreparedStatement statement -> proxy(PreparedStatement.class, statement, this::count);
+                case Statement statement -> proxy(Statement.class, statement, this::count);
+                case null, default -> result;
+            };
+        });
+    }
+
+    int getExecuted() {
+        return executed.get();
+    }
+
+    void reset() {
+        executed.set(0);
+    }
+
+    private Object count(Object target, Method method, Object[] args) throws Throwable {
+        if (EXECUTE_METHODS.contains(method.getName())) {
+            executed.incrementAndGet();
+        }
+        return invoke(target, method, args);
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(Object target, Method method, Object[] args) throws Throwable;
+    }
+
+    private static <T> T proxy(Class<T> type, T target, Handler handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> handler.handle(target, method, args);
+        return type.cast(Proxy.newProxyInstance(StatementCounter.class.getClassLoader(), new Class<?>[]{type},
+                invocationHandler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package ch.hearc.ig.guideresto.persistence;
+
+import ch.hearc.ig.guideresto.tools.DataGenerator;
+import ch.hearc.ig.guideresto.tools.GeneratorSettings;
+import ch.hearc.ig.guideresto.tools.JdbcDataSink;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Base H2 en mémoire (mode Oracle) des tests, décrite par {@code database.properties} des ressources de test :
+ * le schéma est créé au premier remplissage, puis chaque remplissage remplace toutes les données.
+ */
+final class TestDatabase {
+
+    private static final List<String> TABLES_IN_DELETE_ORDER = List.of("RESTAURANT_RATING_SUMMARY", "NOTES", "LIKES",
+            "COMMENTAIRES", "RESTAURANTS", "VILLES", "TYPES_GASTRONOMIQUES", "CRITERES_EVALUATION");
+
+    private static boolean schemaCreated;
+
+    private TestDatabase() {
+    }
+
+    /**
+     * Remplace les données par celles du générateur pour un nombre de restaurants.
+     * @param restaurants le nombre de restaurants
+     * @param evaluationsPerRestaurant le nombre moyen d'évaluations complètes par restaurant
+     */
+    static synchronized void seed(int restaurants, double evaluationsPerRestaurant) {
+        Connection connection = ConnectionUtils.getConnection();
+        try {
+            if (!schemaCreated) {
+                executeScript(connection, "test-schema.sql");
+                schemaCreated = true;
+            } else {
+                try (Statement statement = connection.createStatement()) {
+                    for (String table : TABLES_IN_DELETE_ORDER) {
+                        statement.execute("DELETE FROM " + table);
+                    }
+                }
+            }
+            connection.setAutoCommit(false);
+            GeneratorSettings settings = GeneratorSettings.forRestaurants(restaurants).withVolumes(evaluationsPerRestaurant, 2);
+            new DataGenerator(settings).generate(new JdbcDataSink(connection, JdbcDataSink.DEFAULT_BATCH_SIZE));
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur : " + e.getMessage(), e);
+        } finally {
+            ConnectionUtils.releaseConnection(connection);
+        }
+    }
+
+    /**
+     * Exécute un script des ressources de test, dont les instructions sont séparées par des points-virgules.
+     */
+    static void executeScript(Connection connection, String resource) throws SQLException {
+        String script;
+        try (InputStream input = TestDatabase.class.getClassLoader().getResourceAsStream(resource)) {
+            if (input == null) {
+                throw new IllegalStateException("Ressource introuvable : " + resource);
+            }
+            script = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Impossible de lire " + resource + " : " + e.getMessage(), e);
+        }
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : script.replaceAll("(?m)^--.*$", "").split(";")) {
+                if (!sql.isBlank()) {
+                    statement.execute(sql.strip());
+                }
+            }
+        }
+    }
+}